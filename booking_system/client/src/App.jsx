@@ -3,6 +3,7 @@ import { Routes, Route, useParams, useNavigate, useSearchParams } from 'react-ro
 import Header from './components/Header'
 import CategoryNav from './components/CategoryNav'
 import AdminPanel from './pages/AdminPanel'
+import { fetchAllPages } from './utils/fetchAllPages'
 import { Star, Heart, Send, MessageCircle } from 'lucide-react'
 
 // Контекст для избранного и пользователя
@@ -134,11 +135,7 @@ function HomePage() {
   const cityFilter = searchParams.get('city') || searchFilters.city
 
   useEffect(() => {
-    fetch('/api/apartments/available')
-      .then(res => {
-        if (!res.ok) throw new Error('API error')
-        return res.json()
-      })
+    fetchAllPages('/api/apartments/available')
       .then(data => { 
         setApartments(Array.isArray(data) ? data : [])
         setLoading(false) 
@@ -265,13 +262,13 @@ function ApartmentPage() {
   const isFavorite = favorites.includes(parseInt(id))
 
   useEffect(() => {
-    fetch('/api/apartments/available')
-      .then(res => res.json())
+    fetchAllPages('/api/apartments/available')
       .then(data => {
         const found = data.find(a => a.id === parseInt(id))
         setApt(found)
         setLoading(false)
       })
+      .catch(() => setLoading(false))
     // Загрузка отзывов из localStorage (имитация)
     const savedReviews = localStorage.getItem(`reviews_${id}`)
     if (savedReviews) setReviews(JSON.parse(savedReviews))
@@ -710,11 +707,15 @@ function FavoritesPage() {
   const [loading, setLoading] = useState(true)
 
   useEffect(() => {
-    fetch('/api/apartments/available')
+    if (favorites.length === 0) {
+      setApartments([])
+      setLoading(false)
+      return
+    }
+    fetch(`/api/apartments/batch?ids=${favorites.join(',')}`)
       .then(res => res.json())
       .then(data => {
-        const favApts = data.filter(apt => favorites.includes(apt.id))
-        setApartments(favApts)
+        setApartments(data.items)
         setLoading(false)
       })
       .catch(() => setLoading(false))
@@ -751,11 +752,7 @@ function BookingsPage() {
     if (currentUser) {
       // Загружаем бронирования с сервера
       console.log('Loading bookings for user:', currentUser.id)
-      fetch(`/api/bookings/client/${currentUser.id}`)
-        .then(res => {
-          console.log('Bookings response status:', res.status)
-          return res.ok ? res.json() : []
-        })
+      fetchAllPages(`/api/bookings/client/${currentUser.id}`)
         .then(data => {
           console.log('Bookings data:', data)
           setTickets(Array.isArray(data) ? data : [])
@@ -1305,8 +1302,7 @@ function MyApartmentsPage() {
 
   useEffect(() => {
     if (currentUser) {
-      fetch(`/api/apartments/owner/${currentUser.id}`)
-        .then(res => res.json())
+      fetchAllPages(`/api/apartments/owner/${currentUser.id}`)
         .then(data => {
           setApartments(data)
           setLoading(false)
@@ -1387,7 +1383,7 @@ function OwnerDashboard() {
     if (currentUser && (currentUser.role === 'OWNER' || currentUser.role === 'ADMIN')) {
       Promise.all([
         fetch(`/api/admin/owner/${currentUser.id}/stats`).then(r => r.ok ? r.json() : null),
-        fetch(`/api/bookings/owner/${currentUser.id}`).then(r => r.ok ? r.json() : [])
+        fetchAllPages(`/api/bookings/owner/${currentUser.id}`).catch(() => [])
       ]).then(([statsData, bookingsData]) => {
         setStats(statsData)
         setBookings(Array.isArray(bookingsData) ? bookingsData : [])
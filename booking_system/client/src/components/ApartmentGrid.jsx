@@ -1,5 +1,6 @@
 import React, { useState, useEffect } from 'react'
 import ApartmentCard from './ApartmentCard'
+import { fetchAllPages } from '../utils/fetchAllPages'
 
 export default function ApartmentGrid() {
   const [apartments, setApartments] = useState([])
@@ -12,8 +13,7 @@ export default function ApartmentGrid() {
   const loadApartments = async () => {
     try {
       setLoading(true)
-      const response = await fetch('/api/apartments/available')
-      const data = await response.json()
+      const data = await fetchAllPages('/api/apartments/available')
       setApartments(data)
     } catch (error) {
       console.error('Error loading apartments:', error)
@@ -1,6 +1,7 @@
 import React, { useState, useEffect } from 'react'
 import { useParams, useNavigate } from 'react-router-dom'
 import { ArrowLeft, Star, Heart, Share, MapPin, Users, Home, Calendar } from 'lucide-react'
+import { fetchAllPages } from '../utils/fetchAllPages'
 
 export default function ApartmentPage() {
   const { id } = useParams()
@@ -26,8 +27,7 @@ export default function ApartmentPage() {
         setApartment(data)
       } else {
         // Если конкретный endpoint не работает, загрузим из списка
-        const listResponse = await fetch('/api/apartments/available')
-        const apartments = await listResponse.json()
+        const apartments = await fetchAllPages('/api/apartments/available')
         const found = apartments.find(a => a.id === parseInt(id))
         if (found) setApartment(found)
       }
@@ -1,4 +1,5 @@
 import React, { useState } from 'react'
+import { fetchAllPages } from '../utils/fetchAllPages'
 
 export default function TestPage() {
   const [result, setResult] = useState('')
@@ -10,8 +11,7 @@ export default function TestPage() {
     
     try {
       // Тест 1: Проверка доступности backend
-      const response = await fetch('/api/apartments/available')
-      const data = await response.json()
+      const data = await fetchAllPages('/api/apartments/available')
       
       setResult(`✅ Backend работает!\n\nПолучено квартир: ${data.length}\n\nОтвет: ${JSON.stringify(data, null, 2)}`)
     } catch (error) {
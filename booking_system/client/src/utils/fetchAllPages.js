@@ -0,0 +1,20 @@
+// Загрузка всего списка с keyset-пагинацией: сервер отдаёт страницу,
+// а курсор следующей — в заголовке X-Next-Cursor. Идём по курсорам, пока он есть.
+
+export async function fetchAllPages(url, options) {
+  const items = []
+  let after = null
+  do {
+    const pageUrl = after === null
+      ? url
+      : `${url}${url.includes('?') ? '&' : '?'}after=${encodeURIComponent(after)}`
+    const response = await fetch(pageUrl, options)
+    if (!response.ok) {
+      throw new Error(`API error: ${response.status}`)
+    }
+    const page = await response.json()
+    items.push(...(Array.isArray(page) ? page : []))
+    after = response.headers.get('X-Next-Cursor')
+  } while (after !== null)
+  return items
+}
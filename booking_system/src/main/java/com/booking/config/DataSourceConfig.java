@@ -0,0 +1,84 @@
+package com.booking.config;
+
+import com.booking.service.ReplicaRouting;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Основная БД из spring.datasource и реплики из booking.datasource.replica.urls.
+// JPA и JdbcTemplate получают один DataSource: маршрутизатор за LazyConnectionDataSourceProxy.
+// Прокси берёт настоящее соединение только при первом запросе, когда транзакция уже открыта
+// и известно, read-only ли она. Без реплик всё идёт на основную БД, как раньше.
+@Configuration
+public class DataSourceConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(HikariDataSource primaryDataSource,
+                                 DataSourceProperties properties,
+                                 ReplicaRouting replicaRouting,
+                                 @Value("${booking.datasource.replica.urls:}") List<String> replicaUrls,
+                                 @Value("${booking.datasource.replica.username:${spring.datasource.username:}}") String username,
+                                 @Value("${booking.datasource.replica.password:${spring.datasource.password:}}") String password,
+                                 @Value("${booking.datasource.replica.pool-size:10}") int poolSize) {
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        for (String url : replicaUrls) {
+            if (url.isBlank()) {
+                continue;
+            }
+            String key = "replica-" + replicas.size();
+            HikariDataSource replica = DataSourceBuilder.create()
+                    .type(HikariDataSource.class)
+                    .driverClassName(properties.determineDriverClassName())
+                    .url(url.trim())
+                    .username(username)
+                    .password(password)
+                    .build();
+            replica.setPoolName(key);
+            replica.setMaximumPoolSize(poolSize);
+            replica.setReadOnly(true);
+            replicas.put(key, replica);
+        }
+        replicaRouting.register(replicas);
+
+        Map<Object, Object> targets = new HashMap<>(replicas);
+        targets.put(ReplicaRouting.PRIMARY, primaryDataSource);
+        ReadWriteRoutingDataSource routing = new ReadWriteRoutingDataSource(replicaRouting);
+        routing.setTargetDataSources(targets);
+        routing.setDefaultTargetDataSource(primaryDataSource);
+        routing.afterPropertiesSet();
+        return new LazyConnectionDataSourceProxy(routing);
+    }
+
+    static class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+        private final ReplicaRouting replicaRouting;
+
+        ReadWriteRoutingDataSource(ReplicaRouting replicaRouting) {
+            this.replicaRouting = replicaRouting;
+        }
+
+        @Override
+        protected Object determineCurrentLookupKey() {
+            return replicaRouting.route();
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.booking.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.Collections;
+import java.util.List;
+
+// Профиль dev: реплики H2 — отдельные базы, которые раз в sync-ms получают снимок основной.
+// Так локально видно настоящее отставание: чтение с реплики отстаёт на период синхронизации,
+// а после своей записи (ReplicaRouting.recordWrite) чтение идёт на основную БД.
+// Схема копируется при старте (SCRIPT NODATA), данные — целиком в одной транзакции реплики,
+// поэтому читатели видят либо прежний снимок, либо новый. Время снимка пишется в replica_sync,
+// из него lag-query считает отставание.
+@Slf4j
+@Component
+@Profile("dev")
+public class DevReplicaFeeder {
+
+    private static final int INSERT_BATCH = 500;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate snapshot;
+    private final List<String> replicaUrls;
+    private final String username;
+    private final String password;
+
+    public DevReplicaFeeder(JdbcTemplate jdbcTemplate,
+                            PlatformTransactionManager transactionManager,
+                            @Value("${booking.datasource.replica.urls:}") List<String> replicaUrls,
+                            @Value("${booking.datasource.replica.username:${spring.datasource.username:}}") String username,
+                            @Value("${booking.datasource.replica.password:${spring.datasource.password:}}") String password) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.snapshot = new TransactionTemplate(transactionManager);
+        this.snapshot.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.snapshot.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.replicaUrls = replicaUrls.stream().filter(url -> !url.isBlank()).map(String::trim).toList();
+        this.username = username;
+        this.password = password;
+    }
+
+    // После SchemaMigrations: реплика получает уже мигрированную схему
+    @EventListener(ApplicationReadyEvent.class)
+    public void copySchema() {
+        List<String> script = jdbcTemplate.queryForList("SCRIPT NODATA", String.class);
+        for (String url : replicaUrls) {
+            try (Connection replica = DriverManager.getConnection(url, username, password);
+                 Statement statement = replica.createStatement()) {
+                statement.execute("DROP ALL OBJECTS");
+                for (String sql : script) {
+                    statement.execute(sql);
+                }
+                statement.execute("CREATE TABLE replica_sync (id INT PRIMARY KEY, synced_at TIMESTAMP NOT NULL)");
+            } catch (SQLException e) {
+                throw new RuntimeException("Failed to create dev replica schema at " + url, e);
+            }
+        }
+        sync();
+        log.info("Dev replicas created: {}", replicaUrls);
+    }
+
+    @Scheduled(fixedDelayString = "${booking.datasource.replica.sync-ms:2000}",
+            initialDelayString = "${booking.datasource.replica.sync-ms:2000}")
+    public synchronized void sync() {
+        for (String url : replicaUrls) {
+            try (Connection replica = DriverManager.getConnection(url, username, password)) {
+                replica.setAutoCommit(false);
+                snapshot.executeWithoutResult(tx -> copyData(replica));
+                replica.commit();
+            } catch (SQLException | RuntimeException e) {
+                log.warn("Dev replica sync failed for {}", url, e);
+            }
+        }
+    }
+
+    // Читает основную БД в транзакции snapshot, пишет в транзакцию реплики
+    private void copyData(Connection replica) {
+        // Момент снимка по часам основной БД: реплика отстаёт на время от него до следующей синхронизации
+        Timestamp syncedAt = jdbcTemplate.queryForObject("SELECT LOCALTIMESTAMP", Timestamp.class);
+        List<String> tables = jdbcTemplate.queryForList("SELECT TABLE_NAME FROM INFORMATION_SCHEMA.TABLES " +
+                "WHERE TABLE_SCHEMA = 'PUBLIC' AND TABLE_TYPE = 'BASE TABLE'", String.class);
+        try (Statement statement = replica.createStatement()) {
+            statement.execute("SET REFERENTIAL_INTEGRITY FALSE");
+            for (String table : tables) {
+                statement.execute("DELETE FROM \"" + table + "\"");
+                copyTable(replica, table);
+            }
+            statement.execute("SET REFERENTIAL_INTEGRITY TRUE");
+            try (PreparedStatement mark = replica.prepareStatement("MERGE INTO replica_sync KEY (id) VALUES (1, ?)")) {
+                mark.setTimestamp(1, syncedAt);
+                mark.executeUpdate();
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to copy data to dev replica", e);
+        }
+    }
+
+    private void copyTable(Connection replica, String table) {
+        jdbcTemplate.query("SELECT * FROM \"" + table + "\"", rs -> {
+            int columns = rs.getMetaData().getColumnCount();
+            String placeholders = String.join(", ", Collections.nCopies(columns, "?"));
+            try (PreparedStatement insert = replica.prepareStatement(
+                    "INSERT INTO \"" + table + "\" VALUES (" + placeholders + ")")) {
+                int pending = 0;
+                do {
+                    for (int i = 1; i <= columns; i++) {
+                        insert.setObject(i, rs.getObject(i));
+                    }
+                    insert.addBatch();
+                    if (++pending == INSERT_BATCH) {
+                        insert.executeBatch();
+                        pending = 0;
+                    }
+                } while (rs.next());
+                if (pending > 0) {
+                    insert.executeBatch();
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,178 @@
+package com.booking.config;
+
+import com.booking.model.Booking;
+import com.booking.model.LedgerEntry;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.stream.Collectors;
+
+// Разовые миграции данных, которые ddl-auto=update сделать не может.
+// Каждая миграция идемпотентна и запускается при старте до построения индексов.
+@Slf4j
+@Component
+@Order(0)
+@RequiredArgsConstructor
+public class SchemaMigrations implements CommandLineRunner {
+    private final JdbcTemplate jdbcTemplate;
+    private final EntityManagerFactory entityManagerFactory;
+
+    // Старые boolean-колонки удобств в порядке битов Amenity
+    private static final String[] AMENITY_COLUMNS = {
+            "has_wifi", "has_parking", "has_kitchen", "has_air_conditioning",
+            "has_washer", "has_tv", "has_pool", "has_balcony"
+    };
+
+    // Таблицы, чьи id выдаёт последовательность <таблица>_seq (раньше — IDENTITY)
+    private static final String[] SEQUENCE_TABLES = {
+            "users", "apartments", "bookings", "payments", "tickets", "alerts", "reviews", "ratings"
+    };
+
+    @Override
+    @Transactional
+    public void run(String... args) {
+        refreshEnumChecks();
+        migrateAmenityFlags();
+        backfillRoomNights();
+        alignIdSequences();
+        resetDerivedStatuses();
+    }
+
+    // ddl-auto создаёт для enum-колонок CHECK со списком значений, но update его не пересоздаёт:
+    // в базах, созданных до HOLD/EXPIRED или до проводок возврата, новые значения не вставить
+    private void refreshEnumChecks() {
+        refreshEnumCheck("bookings", "status", Booking.BookingStatus.values(), Booking.BookingStatus.CONFIRMED);
+        refreshEnumCheck("ledger_entries", "kind", LedgerEntry.EntryKind.values(), LedgerEntry.EntryKind.GUEST_PAYMENT);
+    }
+
+    // Ограничение на колонку — то, где перечислено значение marker; устаревшее — где каких-то значений нет.
+    // Устаревшее заменяется ограничением ck_<таблица>_<колонка> по текущему enum.
+    private void refreshEnumCheck(String table, String column, Enum<?>[] constants, Enum<?> marker) {
+        List<String> values = Arrays.stream(constants).map(Enum::name).toList();
+        List<String> stale = new ArrayList<>();
+        for (Map<String, Object> check : jdbcTemplate.queryForList(
+                "SELECT tc.constraint_name AS name, cc.check_clause AS clause " +
+                "FROM information_schema.table_constraints tc " +
+                "JOIN information_schema.check_constraints cc " +
+                "ON cc.constraint_schema = tc.constraint_schema AND cc.constraint_name = tc.constraint_name " +
+                "WHERE tc.constraint_type = 'CHECK' AND LOWER(tc.table_name) = ?", table)) {
+            String clause = String.valueOf(check.get("clause"));
+            if (clause.contains("'" + marker.name() + "'")
+                    && !values.stream().allMatch(value -> clause.contains("'" + value + "'"))) {
+                stale.add(String.valueOf(check.get("name")));
+            }
+        }
+        if (stale.isEmpty()) {
+            return;
+        }
+
+        for (String name : stale) {
+            jdbcTemplate.execute("ALTER TABLE " + table + " DROP CONSTRAINT " + name);
+        }
+        String list = values.stream().map(value -> "'" + value + "'").collect(Collectors.joining(", "));
+        jdbcTemplate.execute("ALTER TABLE " + table + " ADD CONSTRAINT ck_" + table + "_" + column +
+                " CHECK (" + column + " IN (" + list + "))");
+        log.info("Check {} on {}.{} replaced: {} IN ({})", stale, table, column, column, list);
+    }
+
+    // has_* -> apartments.amenities (битовая маска), затем старые колонки удаляются
+    private void migrateAmenityFlags() {
+        if (!columnExists("apartments", AMENITY_COLUMNS[0])) {
+            return;
+        }
+
+        StringBuilder mask = new StringBuilder();
+        for (int bit = 0; bit < AMENITY_COLUMNS.length; bit++) {
+            if (bit > 0) {
+                mask.append(" + ");
+            }
+            mask.append("(CASE WHEN ").append(AMENITY_COLUMNS[bit])
+                    .append(" THEN ").append(1 << bit).append(" ELSE 0 END)");
+        }
+        int migrated = jdbcTemplate.update("UPDATE apartments SET amenities = " + mask + " WHERE amenities IS NULL");
+
+        for (String column : AMENITY_COLUMNS) {
+            if (columnExists("apartments", column)) {
+                jdbcTemplate.execute("ALTER TABLE apartments DROP COLUMN " + column);
+            }
+        }
+        log.info("Amenity flags migrated to bitmask for {} apartments", migrated);
+    }
+
+    // room_nights по действующим броням — для баз, созданных до сетки номеров
+    private void backfillRoomNights() {
+        Integer existing = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM room_nights", Integer.class);
+        if (existing == null || existing > 0) {
+            return;
+        }
+
+        String statuses = Arrays.stream(Booking.BookingStatus.values())
+                .filter(Booking.BookingStatus::blocksDates)
+                .map(status -> "'" + status.name() + "'")
+                .collect(Collectors.joining(", "));
+        LocalDate today = LocalDate.now();
+        Map<Long, Map<LocalDate, Integer>> booked = new HashMap<>();
+        jdbcTemplate.query("SELECT apartment_id, check_in, check_out FROM bookings " +
+                "WHERE status IN (" + statuses + ") AND check_out > ?", rs -> {
+            Map<LocalDate, Integer> nights = booked.computeIfAbsent(rs.getLong("apartment_id"), k -> new TreeMap<>());
+            LocalDate from = rs.getDate("check_in").toLocalDate();
+            LocalDate to = rs.getDate("check_out").toLocalDate();
+            for (LocalDate night = from.isBefore(today) ? today : from; night.isBefore(to); night = night.plusDays(1)) {
+                nights.merge(night, 1, Integer::sum);
+            }
+        }, Date.valueOf(today));
+
+        List<Object[]> rows = new ArrayList<>();
+        booked.forEach((apartmentId, nights) -> nights.forEach((night, count) ->
+                rows.add(new Object[]{apartmentId, Date.valueOf(night), count})));
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate("INSERT INTO room_nights (apartment_id, night, booked) VALUES (?, ?, ?)", rows);
+        }
+        log.info("Room nights backfilled: {} nights in {} apartments", rows.size(), booked.size());
+    }
+
+    // Последовательности, созданные ddl-auto поверх старых IDENTITY-таблиц, начинаются с 1.
+    // Блоки выдаются pooled-lo: значение последовательности — первый id блока,
+    // поэтому достаточно, чтобы следующее значение было больше max(id).
+    private void alignIdSequences() {
+        Dialect dialect = entityManagerFactory.unwrap(SessionFactoryImplementor.class).getJdbcServices().getDialect();
+        for (String table : SEQUENCE_TABLES) {
+            String sequence = table + "_seq";
+            Long maxId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM " + table, Long.class);
+            if (maxId == null) {
+                continue;
+            }
+            Long next = jdbcTemplate.queryForObject(dialect.getSequenceSupport().getSequenceNextValString(sequence), Long.class);
+            if (next != null && next <= maxId) {
+                jdbcTemplate.execute("ALTER SEQUENCE " + sequence + " RESTART WITH " + (maxId + 1));
+                log.info("Sequence {} moved past existing ids: restarts at {}", sequence, maxId + 1);
+            }
+        }
+    }
+
+    // BOOKED и OCCUPIED теперь вычисляются из броней; в apartments.status остаётся статус публикации
+    private void resetDerivedStatuses() {
+        int reset = jdbcTemplate.update("UPDATE apartments SET status = 'AVAILABLE' WHERE status IN ('BOOKED', 'OCCUPIED')");
+        if (reset > 0) {
+            log.info("Apartment status reset to AVAILABLE for {} apartments, occupancy is now derived from bookings", reset);
+        }
+    }
+
+    private boolean columnExists(String table, String column) {
+        Integer count = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM information_schema.columns WHERE LOWER(table_name) = ? AND LOWER(column_name) = ?",
+                Integer.class, table, column);
+        return count != null && count > 0;
+    }
+}
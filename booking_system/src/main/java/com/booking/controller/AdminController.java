@@ -1,13 +1,17 @@
 package com.booking.controller;
 
-import com.booking.model.Payment;
+import com.booking.model.LedgerAccount;
 import com.booking.model.User;
 import com.booking.repository.ApartmentRepository;
 import com.booking.repository.BookingRepository;
 import com.booking.repository.PaymentRepository;
 import com.booking.repository.UserRepository;
+import com.booking.service.ApartmentOccupancy;
+import com.booking.service.PaymentLedger;
+import com.booking.service.ReplicaRouting;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.HashMap;
@@ -24,32 +28,25 @@ public class AdminController {
     private final ApartmentRepository apartmentRepository;
     private final BookingRepository bookingRepository;
     private final PaymentRepository paymentRepository;
+    private final ReplicaRouting replicaRouting;
+    private final ApartmentOccupancy apartmentOccupancy;
+    private final PaymentLedger paymentLedger;
 
     // Статистика для дашборда
+    @Transactional(readOnly = true)
     @GetMapping("/stats")
     public ResponseEntity<Map<String, Object>> getStats() {
         Map<String, Object> stats = new HashMap<>();
         
         long totalUsers = userRepository.count();
-        long totalClients = userRepository.findAll().stream()
-                .filter(u -> u.getRole() == User.UserRole.CLIENT).count();
-        long totalOwners = userRepository.findAll().stream()
-                .filter(u -> u.getRole() == User.UserRole.OWNER).count();
+        long totalClients = userRepository.countByRole(User.UserRole.CLIENT);
+        long totalOwners = userRepository.countByRole(User.UserRole.OWNER);
         long totalApartments = apartmentRepository.count();
         long totalBookings = bookingRepository.count();
         long totalPayments = paymentRepository.count();
         
-        // Общий доход всех оплат
-        double totalRevenue = paymentRepository.findAll().stream()
-                .filter(p -> p.getStatus() == Payment.PaymentStatus.PAID)
-                .mapToDouble(p -> p.getAmount().doubleValue())
-                .sum();
-        
-        // Комиссия сайта (10%)
-        double platformRevenue = paymentRepository.findAll().stream()
-                .filter(p -> p.getStatus() == Payment.PaymentStatus.PAID && p.getPlatformFee() != null)
-                .mapToDouble(p -> p.getPlatformFee().doubleValue())
-                .sum();
+        // Выручка — обороты счетов книги платежей, без обхода платежей
+        Map<String, Object> ledger = paymentLedger.stats();
         
         stats.put("totalUsers", totalUsers);
         stats.put("totalClients", totalClients);
@@ -57,13 +54,14 @@ public class AdminController {
         stats.put("totalApartments", totalApartments);
         stats.put("totalBookings", totalBookings);
         stats.put("totalPayments", totalPayments);
-        stats.put("totalRevenue", totalRevenue);
-        stats.put("platformRevenue", platformRevenue);
+        stats.put("totalRevenue", ledger.get("totalRevenue"));
+        stats.put("platformRevenue", ledger.get("platformRevenue"));
         
         return ResponseEntity.ok(stats);
     }
 
     // Все пользователи
+    @Transactional(readOnly = true)
     @GetMapping("/users")
     public ResponseEntity<List<Map<String, Object>>> getAllUsers() {
         List<Map<String, Object>> users = userRepository.findAll().stream()
@@ -87,6 +85,7 @@ public class AdminController {
     }
 
     // Владельцы с их квартирами
+    @Transactional(readOnly = true)
     @GetMapping("/owners")
     public ResponseEntity<List<Map<String, Object>>> getOwners() {
         List<Map<String, Object>> owners = userRepository.findAll().stream()
@@ -107,7 +106,7 @@ public class AdminController {
                                 aptMap.put("city", apt.getCity());
                                 aptMap.put("address", apt.getAddress());
                                 aptMap.put("pricePerNight", apt.getPricePerNight());
-                                aptMap.put("status", apt.getStatus().name());
+                                aptMap.put("status", apartmentOccupancy.status(apt.getId(), apt.getStatus()).name());
                                 return aptMap;
                             })
                             .collect(Collectors.toList()));
@@ -119,6 +118,7 @@ public class AdminController {
     }
 
     // Все квартиры
+    @Transactional(readOnly = true)
     @GetMapping("/apartments")
     public ResponseEntity<List<Map<String, Object>>> getAllApartments() {
         List<Map<String, Object>> apartments = apartmentRepository.findAll().stream()
@@ -131,7 +131,7 @@ public class AdminController {
                     aptMap.put("pricePerNight", apt.getPricePerNight());
                     aptMap.put("rooms", apt.getRooms());
                     aptMap.put("maxGuests", apt.getMaxGuests());
-                    aptMap.put("status", apt.getStatus().name());
+                    aptMap.put("status", apartmentOccupancy.status(apt.getId(), apt.getStatus()).name());
                     aptMap.put("averageRating", apt.getAverageRating());
                     aptMap.put("ownerName", apt.getOwner().getFirstName() + " " + apt.getOwner().getLastName());
                     aptMap.put("ownerEmail", apt.getOwner().getEmail());
@@ -143,6 +143,7 @@ public class AdminController {
     }
 
     // Все бронирования
+    @Transactional(readOnly = true)
     @GetMapping("/bookings")
     public ResponseEntity<List<Map<String, Object>>> getAllBookings() {
         List<Map<String, Object>> bookings = bookingRepository.findAll().stream()
@@ -166,6 +167,7 @@ public class AdminController {
     }
 
     // Все платежи
+    @Transactional(readOnly = true)
     @GetMapping("/payments")
     public ResponseEntity<List<Map<String, Object>>> getAllPayments() {
         List<Map<String, Object>> payments = paymentRepository.findAll().stream()
@@ -217,39 +219,29 @@ public class AdminController {
         return ResponseEntity.ok(response);
     }
 
+    // Состояние реплик чтения: отставание, в ротации ли, сколько чтений ушло мимо реплик
+    @GetMapping("/replicas")
+    public ResponseEntity<Map<String, Object>> getReplicaStats() {
+        return ResponseEntity.ok(replicaRouting.stats());
+    }
+
     // Статистика владельца
+    @Transactional(readOnly = true)
     @GetMapping("/owner/{ownerId}/stats")
     public ResponseEntity<Map<String, Object>> getOwnerStats(@PathVariable Long ownerId) {
-        User owner = userRepository.findById(ownerId)
-                .orElseThrow(() -> new RuntimeException("Владелец не найден"));
+        replicaRouting.readingAs(ReplicaRouting.user(ownerId));
+        if (!userRepository.existsById(ownerId)) {
+            throw new RuntimeException("Владелец не найден");
+        }
         
         Map<String, Object> stats = new HashMap<>();
+        stats.put("totalApartments", apartmentRepository.countByOwnerId(ownerId));
+        stats.put("totalBookings", bookingRepository.countByApartmentOwnerId(ownerId));
         
-        // Квартиры владельца
-        var apartments = owner.getApartments();
-        stats.put("totalApartments", apartments.size());
-        
-        // Все бронирования квартир владельца
-        var bookings = apartments.stream()
-                .flatMap(apt -> bookingRepository.findByApartment(apt).stream())
-                .collect(Collectors.toList());
-        stats.put("totalBookings", bookings.size());
-        
-        // Общий доход владельца (90% от оплат)
-        double ownerRevenue = bookings.stream()
-                .map(b -> paymentRepository.findByBooking(b).orElse(null))
-                .filter(p -> p != null && p.getStatus() == Payment.PaymentStatus.PAID && p.getOwnerAmount() != null)
-                .mapToDouble(p -> p.getOwnerAmount().doubleValue())
-                .sum();
-        stats.put("ownerRevenue", ownerRevenue);
-        
-        // Общая сумма бронирований
-        double totalAmount = bookings.stream()
-                .map(b -> paymentRepository.findByBooking(b).orElse(null))
-                .filter(p -> p != null && p.getStatus() == Payment.PaymentStatus.PAID)
-                .mapToDouble(p -> p.getAmount().doubleValue())
-                .sum();
-        stats.put("totalAmount", totalAmount);
+        // Счёт владельца: кредит — оплаты его броней за вычетом возвратов, баланс — они же без комиссии (90%)
+        LedgerAccount account = paymentLedger.account(PaymentLedger.owner(ownerId));
+        stats.put("ownerRevenue", account.getBalance());
+        stats.put("totalAmount", account.getCredits());
         
         return ResponseEntity.ok(stats);
     }
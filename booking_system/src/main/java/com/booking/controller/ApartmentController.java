@@ -1,13 +1,25 @@
 package com.booking.controller;
 
+import com.booking.dto.ApartmentBatchDTO;
 import com.booking.dto.ApartmentDTO;
+import com.booking.dto.ApartmentSearchCriteria;
+import com.booking.dto.ApartmentSearchResultDTO;
+import com.booking.dto.CalendarDTO;
+import com.booking.dto.PriceQuoteDTO;
+import com.booking.dto.PriceRuleDTO;
+import com.booking.dto.TextSearchResultDTO;
 import com.booking.model.Apartment;
 import com.booking.service.ApartmentService;
+import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
 
+import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/apartments")
@@ -16,23 +28,119 @@ public class ApartmentController {
     private final ApartmentService apartmentService;
 
     @GetMapping
-    public ResponseEntity<List<ApartmentDTO>> getAllApartments() {
-        return ResponseEntity.ok(apartmentService.getAllApartments());
+    public ResponseEntity<List<ApartmentDTO>> getAllApartments(
+            @RequestParam(required = false) Long after,
+            @RequestParam(required = false) Integer limit,
+            ServletWebRequest request) {
+        if (ConditionalResponses.notModified(request, apartmentService.getCatalogVersion())) {
+            return null;
+        }
+        return CursorResponses.ok(apartmentService.getAllApartments(after, limit));
     }
 
     @GetMapping("/available")
-    public ResponseEntity<List<ApartmentDTO>> getAvailableApartments() {
-        return ResponseEntity.ok(apartmentService.getAvailableApartments());
+    public ResponseEntity<List<ApartmentDTO>> getAvailableApartments(
+            @RequestParam(required = false) Long after,
+            @RequestParam(required = false) Integer limit,
+            ServletWebRequest request) {
+        if (ConditionalResponses.notModified(request, apartmentService.getCatalogVersion())) {
+            return null;
+        }
+        return CursorResponses.ok(apartmentService.getAvailableApartments(after, limit));
+    }
+
+    @GetMapping("/search")
+    public ResponseEntity<ApartmentSearchResultDTO> search(@ModelAttribute ApartmentSearchCriteria criteria) {
+        return ResponseEntity.ok(apartmentService.search(criteria));
+    }
+
+    @GetMapping("/search/text")
+    public ResponseEntity<TextSearchResultDTO> searchText(
+            @RequestParam String q,
+            @RequestParam(required = false) Integer limit) {
+        return ResponseEntity.ok(apartmentService.searchText(q, limit));
+    }
+
+    @GetMapping("/search/text/stats")
+    public ResponseEntity<Map<String, Object>> getTextIndexStats() {
+        return ResponseEntity.ok(apartmentService.getTextIndexStats());
+    }
+
+    // Несколько квартир за один запрос: /batch?ids=3,1,7 — порядок ответа как в запросе
+    @GetMapping("/batch")
+    public ResponseEntity<ApartmentBatchDTO> getApartmentsByIds(@RequestParam List<Long> ids) {
+        return ResponseEntity.ok(apartmentService.getApartmentsByIds(ids));
+    }
+
+    @GetMapping("/cache/stats")
+    public ResponseEntity<Map<String, Object>> getCacheStats() {
+        return ResponseEntity.ok(apartmentService.getCacheStats());
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<ApartmentDTO> getApartmentById(@PathVariable Long id) {
+    public ResponseEntity<ApartmentDTO> getApartmentById(@PathVariable Long id, ServletWebRequest request) {
+        if (ConditionalResponses.notModified(request, apartmentService.getApartmentVersion(id))) {
+            return null;
+        }
         return ResponseEntity.ok(apartmentService.getApartmentById(id));
     }
 
+    @GetMapping("/{id}/calendar")
+    public ResponseEntity<CalendarDTO> getCalendar(
+            @PathVariable Long id,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return ResponseEntity.ok(apartmentService.getCalendar(id, from, to));
+    }
+
+    @GetMapping("/{id}/quote")
+    public ResponseEntity<PriceQuoteDTO> getQuote(
+            @PathVariable Long id,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate checkIn,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate checkOut,
+            @RequestParam(required = false) Integer guests) {
+        return ResponseEntity.ok(apartmentService.getQuote(id, checkIn, checkOut, guests));
+    }
+
+    @GetMapping("/{id}/price-rules")
+    public ResponseEntity<List<PriceRuleDTO>> getPriceRules(@PathVariable Long id) {
+        return ResponseEntity.ok(apartmentService.getPriceRules(id));
+    }
+
+    @PostMapping("/{id}/price-rules")
+    public ResponseEntity<PriceRuleDTO> addPriceRule(
+            @PathVariable Long id,
+            @Valid @RequestBody PriceRuleDTO dto,
+            @RequestParam Long ownerId) {
+        return ResponseEntity.ok(apartmentService.addPriceRule(id, dto, ownerId));
+    }
+
+    @DeleteMapping("/{id}/price-rules/{ruleId}")
+    public ResponseEntity<Void> deletePriceRule(
+            @PathVariable Long id,
+            @PathVariable Long ruleId,
+            @RequestParam Long ownerId) {
+        apartmentService.deletePriceRule(id, ruleId, ownerId);
+        return ResponseEntity.noContent().build();
+    }
+
+    @GetMapping("/{id}/similar")
+    public ResponseEntity<List<ApartmentDTO>> getSimilarApartments(
+            @PathVariable Long id,
+            @RequestParam(required = false) Integer limit) {
+        return ResponseEntity.ok(apartmentService.getSimilarApartments(id, limit));
+    }
+
     @GetMapping("/owner/{ownerId}")
-    public ResponseEntity<List<ApartmentDTO>> getApartmentsByOwner(@PathVariable Long ownerId) {
-        return ResponseEntity.ok(apartmentService.getApartmentsByOwner(ownerId));
+    public ResponseEntity<List<ApartmentDTO>> getApartmentsByOwner(
+            @PathVariable Long ownerId,
+            @RequestParam(required = false) Long after,
+            @RequestParam(required = false) Integer limit,
+            ServletWebRequest request) {
+        if (ConditionalResponses.notModified(request, apartmentService.getCatalogVersion())) {
+            return null;
+        }
+        return CursorResponses.ok(apartmentService.getApartmentsByOwner(ownerId, after, limit));
     }
 
     @PostMapping
@@ -50,5 +158,3 @@ public class ApartmentController {
         return ResponseEntity.ok(apartmentService.updateApartmentStatus(id, status, availableRooms));
     }
 }
-
-
@@ -2,25 +2,79 @@ package com.booking.controller;
 
 import com.booking.dto.BookingDTO;
 import com.booking.dto.BookingRequestDTO;
+import com.booking.dto.GroupBookingRequestDTO;
+import com.booking.dto.GroupBookingResultDTO;
+import com.booking.dto.TimelineEventDTO;
+import com.booking.service.BookingExport;
 import com.booking.service.BookingService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/bookings")
 @RequiredArgsConstructor
 public class BookingController {
     private final BookingService bookingService;
+    private final BookingExport bookingExport;
 
     @PostMapping
     public ResponseEntity<BookingDTO> createBooking(
             @Valid @RequestBody BookingRequestDTO request,
+            @RequestParam Long clientId,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
+        return ResponseEntity.ok(bookingService.createBooking(request, clientId, idempotencyKey));
+    }
+
+    // Удержать даты на время оплаты; оплата — POST /{id}/confirm
+    @PostMapping("/hold")
+    public ResponseEntity<BookingDTO> holdBooking(
+            @Valid @RequestBody BookingRequestDTO request,
+            @RequestParam Long clientId) {
+        return ResponseEntity.ok(bookingService.holdBooking(request, clientId));
+    }
+
+    // Групповая бронь: 200 — забронировано всё, 409 — ничего, причины в items
+    @PostMapping("/batch")
+    public ResponseEntity<GroupBookingResultDTO> createGroupBooking(
+            @Valid @RequestBody GroupBookingRequestDTO request,
             @RequestParam Long clientId) {
-        return ResponseEntity.ok(bookingService.createBooking(request, clientId));
+        GroupBookingResultDTO result = bookingService.createGroupBooking(request, clientId);
+        return ResponseEntity.status(result.isSuccess() ? HttpStatus.OK : HttpStatus.CONFLICT).body(result);
+    }
+
+    @GetMapping("/outbox/stats")
+    public ResponseEntity<Map<String, Object>> getOutboxStats() {
+        return ResponseEntity.ok(bookingService.getOutboxStats());
+    }
+
+    // Выгрузка броней потоком: format=csv|ndjson, from/to — даты заезда [from, to)
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportBookings(
+            @RequestParam(required = false) String format,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) Long ownerId) {
+        BookingExport.Format exportFormat = BookingExport.Format.of(format);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(exportFormat.contentType))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"bookings." + exportFormat.extension + "\"")
+                .body(out -> bookingExport.write(exportFormat, from, to, ownerId, out));
+    }
+
+    @GetMapping("/completion/stats")
+    public ResponseEntity<Map<String, Object>> getCompletionStats() {
+        return ResponseEntity.ok(bookingService.getCompletionStats());
     }
 
     @GetMapping("/{id}")
@@ -28,14 +82,28 @@ public class BookingController {
         return ResponseEntity.ok(bookingService.getBookingById(id));
     }
 
+    @GetMapping("/{id}/timeline")
+    public ResponseEntity<List<TimelineEventDTO>> getBookingTimeline(
+            @PathVariable Long id,
+            @RequestParam(required = false) Long after,
+            @RequestParam(required = false) Integer limit) {
+        return CursorResponses.ok(bookingService.getBookingTimeline(id, after, limit));
+    }
+
     @GetMapping("/client/{clientId}")
-    public ResponseEntity<List<BookingDTO>> getBookingsByClient(@PathVariable Long clientId) {
-        return ResponseEntity.ok(bookingService.getBookingsByClient(clientId));
+    public ResponseEntity<List<BookingDTO>> getBookingsByClient(
+            @PathVariable Long clientId,
+            @RequestParam(required = false) Long after,
+            @RequestParam(required = false) Integer limit) {
+        return CursorResponses.ok(bookingService.getBookingsByClient(clientId, after, limit));
     }
 
     @GetMapping("/owner/{ownerId}")
-    public ResponseEntity<List<BookingDTO>> getBookingsByOwner(@PathVariable Long ownerId) {
-        return ResponseEntity.ok(bookingService.getBookingsByOwner(ownerId));
+    public ResponseEntity<List<BookingDTO>> getBookingsByOwner(
+            @PathVariable Long ownerId,
+            @RequestParam(required = false) Long after,
+            @RequestParam(required = false) Integer limit) {
+        return CursorResponses.ok(bookingService.getBookingsByOwner(ownerId, after, limit));
     }
 
     @PostMapping("/{id}/confirm")
@@ -0,0 +1,30 @@
+package com.booking.controller;
+
+import com.booking.service.ApartmentVersions;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.context.request.ServletWebRequest;
+
+// Условный GET: ETag и Last-Modified выставляются до построения ответа,
+// и если клиент прислал актуальный валидатор, отвечаем 304 без DTO и JSON
+final class ConditionalResponses {
+    // Кешировать можно, но перед использованием — перепроверять
+    private static final String CACHE_CONTROL = CacheControl.noCache().getHeaderValue();
+
+    private ConditionalResponses() {
+    }
+
+    // true — ответ 304 уже сформирован, контроллер возвращает null
+    static boolean notModified(ServletWebRequest request, ApartmentVersions.Version version) {
+        if (version == null) {
+            return false;
+        }
+        HttpServletResponse response = request.getResponse();
+        if (response != null) {
+            // Иначе Spring Security выставит no-store и браузер не сможет перепроверить ответ
+            response.setHeader(HttpHeaders.CACHE_CONTROL, CACHE_CONTROL);
+        }
+        return request.checkNotModified(version.etag(), version.lastModified());
+    }
+}
@@ -0,0 +1,23 @@
+package com.booking.controller;
+
+import com.booking.dto.CursorPage;
+import org.springframework.http.ResponseEntity;
+
+import java.util.List;
+
+// Ответ со страницей keyset-пагинации: тело — список, курсор — в заголовке,
+// чтобы формат существующих list-эндпоинтов не менялся
+final class CursorResponses {
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    private CursorResponses() {
+    }
+
+    static <T> ResponseEntity<List<T>> ok(CursorPage<T> page) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.getNextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, String.valueOf(page.getNextCursor()));
+        }
+        return response.body(page.getItems());
+    }
+}
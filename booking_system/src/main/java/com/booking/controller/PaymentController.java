@@ -16,8 +16,9 @@ public class PaymentController {
     @PostMapping("/booking/{bookingId}")
     public ResponseEntity<Payment> processPayment(
             @PathVariable Long bookingId,
-            @RequestParam PaymentMethod method) {
-        return ResponseEntity.ok(paymentService.processPayment(bookingId, method));
+            @RequestParam PaymentMethod method,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
+        return ResponseEntity.ok(paymentService.processPayment(bookingId, method, idempotencyKey));
     }
 
     @GetMapping("/booking/{bookingId}")
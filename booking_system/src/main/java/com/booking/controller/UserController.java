@@ -1,5 +1,6 @@
 package com.booking.controller;
 
+import com.booking.dto.TimelineEventDTO;
 import com.booking.dto.UserDTO;
 import com.booking.service.UserService;
 import lombok.RequiredArgsConstructor;
@@ -23,6 +24,14 @@ public class UserController {
     public ResponseEntity<UserDTO> getUserById(@PathVariable Long id) {
         return ResponseEntity.ok(userService.getUserById(id));
     }
+
+    @GetMapping("/{id}/timeline")
+    public ResponseEntity<List<TimelineEventDTO>> getUserTimeline(
+            @PathVariable Long id,
+            @RequestParam(required = false) Long after,
+            @RequestParam(required = false) Integer limit) {
+        return CursorResponses.ok(userService.getUserTimeline(id, after, limit));
+    }
 }
 
 
@@ -0,0 +1,13 @@
+package com.booking.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class ApartmentBatchDTO {
+    // Найденные квартиры в порядке запрошенных id
+    private List<ApartmentDTO> items;
+    // Запрошенные id, которых нет в базе
+    private List<Long> missingIds;
+}
@@ -1,13 +1,16 @@
 package com.booking.dto;
 
+import com.booking.model.Amenity;
 import com.booking.model.Apartment;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 
 import java.math.BigDecimal;
 import java.util.Arrays;
 import java.util.List;
 
 @Data
+@NoArgsConstructor
 public class ApartmentDTO {
     private Long id;
     private String title;
@@ -28,16 +31,40 @@ public class ApartmentDTO {
     // Новые поля
     private Integer beds;
     private Integer bathrooms;
-    private boolean hasWifi;
-    private boolean hasParking;
-    private boolean hasKitchen;
-    private boolean hasAirConditioning;
-    private boolean hasWasher;
-    private boolean hasTv;
-    private boolean hasPool;
-    private boolean hasBalcony;
+    // Удобства — битовая маска из Amenity; флаги has* ниже вычисляются из неё
+    private int amenities;
     private List<String> photos;
 
+    // Карточка для списков: JPQL constructor expression (см. ApartmentRepository.CARD_SELECT).
+    // Имя владельца приходит join'ом в том же запросе, description не читается,
+    // из photos берётся только первая ссылка — обложка.
+    public ApartmentDTO(Long id, String title, String address, String city, Integer rooms, Integer maxGuests,
+                        BigDecimal pricePerNight, Apartment.ApartmentStatus status, double averageRating,
+                        int reviewsCount, Long ownerId, String ownerFirstName, String ownerLastName,
+                        Integer totalRooms, Integer availableRooms, Integer beds, Integer bathrooms,
+                        Integer amenities, String coverPhoto) {
+        this.id = id;
+        this.title = title;
+        this.address = address;
+        this.city = city;
+        this.rooms = rooms;
+        this.maxGuests = maxGuests;
+        this.pricePerNight = pricePerNight;
+        this.status = status;
+        this.averageRating = averageRating;
+        this.totalReviews = reviewsCount;
+        this.ownerId = ownerId;
+        this.ownerName = ownerFirstName + " " + ownerLastName;
+        this.totalRooms = totalRooms;
+        this.availableRooms = availableRooms;
+        this.beds = beds;
+        this.bathrooms = bathrooms;
+        this.amenities = amenities != null ? amenities : 0;
+        if (coverPhoto != null && !coverPhoto.isEmpty()) {
+            this.photos = List.of(coverPhoto);
+        }
+    }
+
     public static ApartmentDTO fromEntity(Apartment apartment) {
         ApartmentDTO dto = new ApartmentDTO();
         dto.setId(apartment.getId());
@@ -59,14 +86,7 @@ public class ApartmentDTO {
         // Новые поля
         dto.setBeds(apartment.getBeds());
         dto.setBathrooms(apartment.getBathrooms());
-        dto.setHasWifi(apartment.isHasWifi());
-        dto.setHasParking(apartment.isHasParking());
-        dto.setHasKitchen(apartment.isHasKitchen());
-        dto.setHasAirConditioning(apartment.isHasAirConditioning());
-        dto.setHasWasher(apartment.isHasWasher());
-        dto.setHasTv(apartment.isHasTv());
-        dto.setHasPool(apartment.isHasPool());
-        dto.setHasBalcony(apartment.isHasBalcony());
+        dto.setAmenities(apartment.getAmenities() != null ? apartment.getAmenities() : 0);
         
         if (apartment.getPhotos() != null && !apartment.getPhotos().isEmpty()) {
             dto.setPhotos(Arrays.asList(apartment.getPhotos().split(",")));
@@ -74,6 +94,58 @@ public class ApartmentDTO {
         
         return dto;
     }
-}
 
+    // Копия с другим статусом: кешированные карточки хранят статус публикации,
+    // а отдаются со статусом из текущей занятости
+    public ApartmentDTO withStatus(Apartment.ApartmentStatus status) {
+        if (status == this.status) {
+            return this;
+        }
+        ApartmentDTO copy = new ApartmentDTO();
+        copy.id = id;
+        copy.title = title;
+        copy.description = description;
+        copy.address = address;
+        copy.city = city;
+        copy.rooms = rooms;
+        copy.maxGuests = maxGuests;
+        copy.pricePerNight = pricePerNight;
+        copy.status = status;
+        copy.averageRating = averageRating;
+        copy.totalReviews = totalReviews;
+        copy.ownerId = ownerId;
+        copy.ownerName = ownerName;
+        copy.totalRooms = totalRooms;
+        copy.availableRooms = availableRooms;
+        copy.beds = beds;
+        copy.bathrooms = bathrooms;
+        copy.amenities = amenities;
+        copy.photos = photos;
+        return copy;
+    }
+
+    // Флаги удобств для клиента (JSON-формат не меняется)
+    public boolean isHasWifi() { return Amenity.WIFI.isIn(amenities); }
+    public void setHasWifi(boolean value) { amenities = Amenity.WIFI.applyTo(amenities, value); }
 
+    public boolean isHasParking() { return Amenity.PARKING.isIn(amenities); }
+    public void setHasParking(boolean value) { amenities = Amenity.PARKING.applyTo(amenities, value); }
+
+    public boolean isHasKitchen() { return Amenity.KITCHEN.isIn(amenities); }
+    public void setHasKitchen(boolean value) { amenities = Amenity.KITCHEN.applyTo(amenities, value); }
+
+    public boolean isHasAirConditioning() { return Amenity.AIR_CONDITIONING.isIn(amenities); }
+    public void setHasAirConditioning(boolean value) { amenities = Amenity.AIR_CONDITIONING.applyTo(amenities, value); }
+
+    public boolean isHasWasher() { return Amenity.WASHER.isIn(amenities); }
+    public void setHasWasher(boolean value) { amenities = Amenity.WASHER.applyTo(amenities, value); }
+
+    public boolean isHasTv() { return Amenity.TV.isIn(amenities); }
+    public void setHasTv(boolean value) { amenities = Amenity.TV.applyTo(amenities, value); }
+
+    public boolean isHasPool() { return Amenity.POOL.isIn(amenities); }
+    public void setHasPool(boolean value) { amenities = Amenity.POOL.applyTo(amenities, value); }
+
+    public boolean isHasBalcony() { return Amenity.BALCONY.isIn(amenities); }
+    public void setHasBalcony(boolean value) { amenities = Amenity.BALCONY.applyTo(amenities, value); }
+}
@@ -0,0 +1,52 @@
+package com.booking.dto;
+
+import com.booking.model.Amenity;
+import lombok.Data;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+@Data
+public class ApartmentSearchCriteria {
+    private String city;
+    private BigDecimal minPrice;
+    private BigDecimal maxPrice;
+    private Integer rooms;
+    private Integer guests;
+    private Integer beds;
+    private Integer bathrooms;
+
+    // Период проживания: квартира должна быть свободна на все ночи [checkIn, checkOut)
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate checkIn;
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate checkOut;
+
+    // Удобства: true — обязательно должно быть
+    private Boolean hasWifi;
+    private Boolean hasParking;
+    private Boolean hasKitchen;
+    private Boolean hasAirConditioning;
+    private Boolean hasWasher;
+    private Boolean hasTv;
+    private Boolean hasPool;
+    private Boolean hasBalcony;
+
+    private int page = 0;
+    private int size = 20;
+
+    // Маска обязательных удобств
+    public int getRequiredAmenities() {
+        int mask = 0;
+        mask = Amenity.WIFI.applyTo(mask, Boolean.TRUE.equals(hasWifi));
+        mask = Amenity.PARKING.applyTo(mask, Boolean.TRUE.equals(hasParking));
+        mask = Amenity.KITCHEN.applyTo(mask, Boolean.TRUE.equals(hasKitchen));
+        mask = Amenity.AIR_CONDITIONING.applyTo(mask, Boolean.TRUE.equals(hasAirConditioning));
+        mask = Amenity.WASHER.applyTo(mask, Boolean.TRUE.equals(hasWasher));
+        mask = Amenity.TV.applyTo(mask, Boolean.TRUE.equals(hasTv));
+        mask = Amenity.POOL.applyTo(mask, Boolean.TRUE.equals(hasPool));
+        mask = Amenity.BALCONY.applyTo(mask, Boolean.TRUE.equals(hasBalcony));
+        return mask;
+    }
+}
@@ -0,0 +1,16 @@
+package com.booking.dto;
+
+import lombok.Data;
+
+import java.util.List;
+import java.util.Map;
+
+@Data
+public class ApartmentSearchResultDTO {
+    private List<ApartmentDTO> items;
+    private int total;
+    private int page;
+    private int size;
+    // Фасеты: имя фасета -> значение -> количество квартир
+    private Map<String, Map<String, Integer>> facets;
+}
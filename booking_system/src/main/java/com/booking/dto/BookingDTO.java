@@ -29,6 +29,7 @@ public class BookingDTO {
     private LocalDateTime paymentDate;
     private LocalDateTime checkInTime;
     private LocalDateTime checkOutTime;
+    private LocalDateTime holdExpiresAt;
 
     public static BookingDTO fromEntity(Booking booking) {
         BookingDTO dto = new BookingDTO();
@@ -52,6 +53,7 @@ public class BookingDTO {
         dto.setPaymentDate(booking.getPaymentDate());
         dto.setCheckInTime(booking.getCheckInTime());
         dto.setCheckOutTime(booking.getCheckOutTime());
+        dto.setHoldExpiresAt(booking.getHoldExpiresAt());
         return dto;
     }
 }
@@ -0,0 +1,16 @@
+package com.booking.dto;
+
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Data
+public class CalendarDTO {
+    private Long apartmentId;
+    private LocalDate from;
+    // Не включительно: календарь покрывает ночи [from, to)
+    private LocalDate to;
+    private List<LocalDate> occupiedDates;
+    private int freeDays;
+}
@@ -0,0 +1,44 @@
+package com.booking.dto;
+
+import lombok.Data;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Страница keyset-пагинации: элементы по возрастанию id и курсор для следующего запроса
+@Data
+public class CursorPage<T> {
+    public static final int DEFAULT_LIMIT = 100;
+    public static final int MAX_LIMIT = 500;
+
+    private List<T> items;
+    // id последнего элемента, если дальше есть ещё данные, иначе null
+    private Long nextCursor;
+
+    public static long after(Long after) {
+        return after != null ? after : 0L;
+    }
+
+    public static int limit(Integer limit) {
+        if (limit == null) {
+            return DEFAULT_LIMIT;
+        }
+        return Math.max(1, Math.min(limit, MAX_LIMIT));
+    }
+
+    // Запрашиваем на одну строку больше, чтобы понять, есть ли следующая страница
+    public static PageRequest seek(int limit) {
+        return PageRequest.of(0, limit + 1);
+    }
+
+    public static <E, T> CursorPage<T> of(List<E> rows, int limit, Function<E, Long> idOf, Function<E, T> mapper) {
+        CursorPage<T> page = new CursorPage<>();
+        boolean hasMore = rows.size() > limit;
+        List<E> pageRows = hasMore ? rows.subList(0, limit) : rows;
+        page.setItems(pageRows.stream().map(mapper).collect(Collectors.toList()));
+        page.setNextCursor(hasMore ? idOf.apply(pageRows.get(pageRows.size() - 1)) : null);
+        return page;
+    }
+}
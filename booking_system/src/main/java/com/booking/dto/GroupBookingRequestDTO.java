@@ -0,0 +1,16 @@
+package com.booking.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class GroupBookingRequestDTO {
+    // Квартиры/номера одной групповой брони; одна и та же квартира может встречаться несколько раз
+    @NotEmpty
+    @Size(max = 100)
+    private List<@Valid BookingRequestDTO> items;
+}
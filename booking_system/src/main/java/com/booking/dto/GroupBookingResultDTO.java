@@ -0,0 +1,28 @@
+package com.booking.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class GroupBookingResultDTO {
+    // true — забронированы все позиции; false — не забронировано ничего
+    private boolean success;
+    private List<Item> items;
+
+    @Data
+    public static class Item {
+        // Позиция в запросе
+        private int index;
+        private Long apartmentId;
+        private ItemStatus status;
+        private BookingDTO booking;
+        private String error;
+    }
+
+    public enum ItemStatus {
+        BOOKED,   // бронь создана
+        REJECTED, // позиция не прошла проверку или мест нет
+        SKIPPED   // позиция в порядке, но группа не забронирована из-за других
+    }
+}
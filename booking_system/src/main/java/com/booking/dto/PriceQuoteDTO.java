@@ -0,0 +1,19 @@
+package com.booking.dto;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+@Data
+public class PriceQuoteDTO {
+    private Long apartmentId;
+    private LocalDate checkIn;
+    private LocalDate checkOut;
+    private Integer guests;
+    private int nights;
+    // Цена каждой ночи [checkIn, checkOut) по порядку
+    private List<BigDecimal> nightlyPrices;
+    private BigDecimal total;
+}
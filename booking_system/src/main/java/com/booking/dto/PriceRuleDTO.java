@@ -0,0 +1,57 @@
+package com.booking.dto;
+
+import com.booking.model.PriceRule;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.EnumSet;
+import java.util.Set;
+
+@Data
+public class PriceRuleDTO {
+    private Long id;
+    private Long apartmentId;
+    private LocalDate dateFrom;
+    // Включительно
+    private LocalDate dateTo;
+    // Пусто — все дни недели
+    private Set<DayOfWeek> daysOfWeek;
+
+    @NotNull
+    @DecimalMin(value = "0.01")
+    private BigDecimal pricePerNight;
+
+    private Integer priority;
+
+    public int daysOfWeekMask() {
+        int mask = 0;
+        if (daysOfWeek != null) {
+            for (DayOfWeek day : daysOfWeek) {
+                mask |= PriceRule.dayBit(day);
+            }
+        }
+        return mask;
+    }
+
+    public static PriceRuleDTO fromEntity(PriceRule rule) {
+        PriceRuleDTO dto = new PriceRuleDTO();
+        dto.setId(rule.getId());
+        dto.setApartmentId(rule.getApartment().getId());
+        dto.setDateFrom(rule.getDateFrom());
+        dto.setDateTo(rule.getDateTo());
+        Set<DayOfWeek> days = EnumSet.noneOf(DayOfWeek.class);
+        for (DayOfWeek day : DayOfWeek.values()) {
+            if ((rule.getDaysOfWeek() & PriceRule.dayBit(day)) != 0) {
+                days.add(day);
+            }
+        }
+        dto.setDaysOfWeek(days);
+        dto.setPricePerNight(rule.getPricePerNight());
+        dto.setPriority(rule.getPriority());
+        return dto;
+    }
+}
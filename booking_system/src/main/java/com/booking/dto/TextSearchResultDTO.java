@@ -0,0 +1,25 @@
+package com.booking.dto;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+@Data
+public class TextSearchResultDTO {
+    private String query;
+    private List<Hit> hits;
+    private long tookMicros;
+
+    @Data
+    public static class Hit {
+        private Long apartmentId;
+        private String title;
+        private String city;
+        private BigDecimal pricePerNight;
+        private double score;
+        // HTML: совпавшие слова обёрнуты в <mark>, остальное экранировано
+        private String titleHighlight;
+        private String snippet;
+    }
+}
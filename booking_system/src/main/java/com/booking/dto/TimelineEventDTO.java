@@ -0,0 +1,25 @@
+package com.booking.dto;
+
+import com.booking.model.Ticket;
+import com.fasterxml.jackson.annotation.JsonRawValue;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TimelineEventDTO {
+    // Смещение в журнале — курсор для следующей страницы
+    private Long offset;
+    private Long ticketId;
+    private Long bookingId;
+    private Long userId;
+    private Ticket.TicketType type;
+    // dataJson тикета, отдаётся как есть
+    @JsonRawValue
+    private String data;
+    private LocalDateTime createdAt;
+}
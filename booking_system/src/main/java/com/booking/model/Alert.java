@@ -17,7 +17,8 @@ import java.time.LocalDateTime;
 public class Alert {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "alerts_seq")
+    @SequenceGenerator(name = "alerts_seq", sequenceName = "alerts_seq", allocationSize = 50)
     private Long id;
 
     // Кому показан алерт
@@ -43,6 +44,10 @@ public class Alert {
     private LocalDateTime createdAt;
     private LocalDateTime acceptedAt;
 
+    // Запись outbox, из которой создан; уникальность не даёт записать её дважды
+    @Column(name = "outbox_id", unique = true)
+    private Long outboxId;
+
     @PrePersist
     protected void onCreate() {
         if (createdAt == null) {
@@ -0,0 +1,39 @@
+package com.booking.model;
+
+// Удобства квартиры. Каждому соответствует фиксированный бит в Apartment.amenities —
+// значения битов хранятся в БД, поэтому их нельзя менять или переиспользовать.
+public enum Amenity {
+    WIFI(0, "wifi"),
+    PARKING(1, "parking"),
+    KITCHEN(2, "kitchen"),
+    AIR_CONDITIONING(3, "airConditioning"),
+    WASHER(4, "washer"),
+    TV(5, "tv"),
+    POOL(6, "pool"),
+    BALCONY(7, "balcony");
+
+    private final int bit;
+    // Ключ в фасетах поиска (как у флагов hasWifi -> "wifi")
+    private final String key;
+
+    Amenity(int bit, String key) {
+        this.bit = bit;
+        this.key = key;
+    }
+
+    public String key() {
+        return key;
+    }
+
+    public int mask() {
+        return 1 << bit;
+    }
+
+    public boolean isIn(int amenities) {
+        return (amenities & mask()) != 0;
+    }
+
+    public int applyTo(int amenities, boolean present) {
+        return present ? amenities | mask() : amenities & ~mask();
+    }
+}
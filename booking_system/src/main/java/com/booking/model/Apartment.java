@@ -12,7 +12,10 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "apartments")
+@Table(name = "apartments", indexes = {
+        @Index(name = "idx_apartments_status_id", columnList = "status, id"),
+        @Index(name = "idx_apartments_owner_id", columnList = "owner_id, id")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -20,7 +23,8 @@ import java.util.List;
 public class Apartment {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "apartments_seq")
+    @SequenceGenerator(name = "apartments_seq", sequenceName = "apartments_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false, length = 200)
@@ -55,7 +59,8 @@ public class Apartment {
     @JoinColumn(name = "owner_id", nullable = false)
     private User owner;
 
-    // Статус для онлайна/оффлайна
+    // Статус публикации (AVAILABLE / ARCHIVED). BOOKED и OCCUPIED сюда не пишутся:
+    // они вычисляются из броней (ApartmentOccupancy) при чтении
     @Builder.Default
     @Enumerated(EnumType.STRING)
     @Column(nullable = false, length = 20)
@@ -83,23 +88,10 @@ public class Apartment {
     @Column(nullable = false)
     private int totalNights = 0;
 
-    // Удобства
+    // Удобства — битовая маска из Amenity
     @Builder.Default
-    private boolean hasWifi = false;
-    @Builder.Default
-    private boolean hasParking = false;
-    @Builder.Default
-    private boolean hasKitchen = false;
-    @Builder.Default
-    private boolean hasAirConditioning = false;
-    @Builder.Default
-    private boolean hasWasher = false;
-    @Builder.Default
-    private boolean hasTv = false;
-    @Builder.Default
-    private boolean hasPool = false;
-    @Builder.Default
-    private boolean hasBalcony = false;
+    @Column(name = "amenities")
+    private Integer amenities = 0;
 
     @Column
     private Integer beds;
@@ -119,6 +111,10 @@ public class Apartment {
     @OneToMany(mappedBy = "targetApartment")
     private List<Review> reviews = new ArrayList<>();
 
+    public boolean hasAmenity(Amenity amenity) {
+        return amenities != null && amenity.isIn(amenities);
+    }
+
     @PrePersist
     protected void onCreate() {
         LocalDateTime now = LocalDateTime.now();
@@ -130,11 +126,22 @@ public class Apartment {
         }
     }
 
+    // Любое изменение карточки (статус, рейтинг, комнаты) меняет валидатор HTTP-кеша
+    @PreUpdate
+    protected void onUpdate() {
+        lastStatusUpdate = LocalDateTime.now();
+    }
+
     public enum ApartmentStatus {
         AVAILABLE, // свободна
         FREE,      // alias для AVAILABLE (deprecated)
         BOOKED,    // забронирована
         OCCUPIED,  // занята (check-in выполнен)
-        ARCHIVED   // снята с публикации
+        ARCHIVED;  // снята с публикации
+
+        // Статус следует из броней и не задаётся вручную
+        public boolean isDerived() {
+            return this == BOOKED || this == OCCUPIED;
+        }
     }
 }
@@ -13,7 +13,11 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "bookings")
+@Table(name = "bookings", indexes = {
+        @Index(name = "idx_bookings_client_id", columnList = "client_id, id"),
+        @Index(name = "idx_bookings_apartment_id", columnList = "apartment_id, id"),
+        @Index(name = "idx_bookings_status_check_out", columnList = "status, check_out")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -21,7 +25,8 @@ import java.util.List;
 public class Booking {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "bookings_seq")
+    @SequenceGenerator(name = "bookings_seq", sequenceName = "bookings_seq", allocationSize = 50)
     private Long id;
 
     // Какая квартира
@@ -37,7 +42,8 @@ public class Booking {
     @Column(nullable = false)
     private LocalDate checkIn;
 
-    @Column(nullable = false)
+    // Имя задано явно: на колонку ссылается индекс idx_bookings_status_check_out
+    @Column(name = "check_out", nullable = false)
     private LocalDate checkOut;
 
     // Alias fields for DTO compatibility
@@ -75,6 +81,9 @@ public class Booking {
     private LocalDateTime checkInTime;
     private LocalDateTime checkOutTime;
 
+    // До какого момента держится бронь в статусе HOLD
+    private LocalDateTime holdExpiresAt;
+
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
 
@@ -105,11 +114,23 @@ public class Booking {
     }
 
     public enum BookingStatus {
+        HOLD,        // даты удержаны на время оплаты, до holdExpiresAt
         CREATED,     // создана, но еще не подтверждена
         CONFIRMED,   // подтверждена
         CHECKED_IN,  // гость заселился
         CHECKED_OUT, // гость выехал
         COMPLETED,   // всё завершено
-        CANCELLED    // отменена
+        CANCELLED,   // отменена
+        EXPIRED;     // удержание истекло без оплаты
+
+        // Бронь занимает даты checkIn..checkOut, пока она не отменена и не завершена
+        public boolean blocksDates() {
+            return this == HOLD || this == CREATED || this == CONFIRMED || this == CHECKED_IN;
+        }
+
+        // Отменить можно только до заселения
+        public boolean isCancellable() {
+            return this == HOLD || this == CREATED || this == CONFIRMED;
+        }
     }
 }
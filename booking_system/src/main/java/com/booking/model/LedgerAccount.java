@@ -0,0 +1,63 @@
+package com.booking.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// Счёт книги платежей: деньги гостей, комиссия сайта или доля владельца.
+// Обороты копятся здесь же при каждой проводке, баланс читается одной строкой.
+@Entity
+@Table(name = "ledger_accounts")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class LedgerAccount {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "ledger_accounts_seq")
+    @SequenceGenerator(name = "ledger_accounts_seq", sequenceName = "ledger_accounts_seq", allocationSize = 50)
+    private Long id;
+
+    // guests, platform или owner:<id>
+    @Column(nullable = false, unique = true, length = 50)
+    private String code;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private AccountType type;
+
+    // Для счетов владельцев
+    private Long ownerId;
+
+    // Обороты меняются только инкрементом в LedgerAccountRepository
+    @Builder.Default
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal debits = BigDecimal.ZERO;
+
+    @Builder.Default
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal credits = BigDecimal.ZERO;
+
+    @Builder.Default
+    @Column(nullable = false)
+    private Long entryCount = 0L;
+
+    private LocalDateTime updatedAt;
+
+    // Баланс — кредит минус дебет
+    public BigDecimal getBalance() {
+        return credits.subtract(debits);
+    }
+
+    public enum AccountType {
+        GUESTS,    // поступления от гостей
+        PLATFORM,  // комиссия сайта
+        OWNER      // доля владельца
+    }
+}
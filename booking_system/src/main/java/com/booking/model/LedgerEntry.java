@@ -0,0 +1,61 @@
+package com.booking.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Immutable;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// Проводка книги платежей: сумма переходит с дебетуемого счёта на кредитуемый.
+// Записи только добавляются; исправление — встречная проводка, а не UPDATE.
+// Возврат — сторно: те же счета, сумма с минусом, поэтому обороты счетов остаются нетто.
+@Entity
+@Immutable
+@Table(name = "ledger_entries",
+        uniqueConstraints = @UniqueConstraint(name = "uk_ledger_entries_payment_kind", columnNames = {"payment_id", "kind"}))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class LedgerEntry {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "ledger_entries_seq")
+    @SequenceGenerator(name = "ledger_entries_seq", sequenceName = "ledger_entries_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(name = "debit_account_id", nullable = false, updatable = false)
+    private Long debitAccountId;
+
+    @Column(name = "credit_account_id", nullable = false, updatable = false)
+    private Long creditAccountId;
+
+    @Column(nullable = false, updatable = false, precision = 10, scale = 2)
+    private BigDecimal amount;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, updatable = false, length = 20)
+    private EntryKind kind;
+
+    // Платёж, по которому проводка; вместе с kind не даёт провести платёж дважды
+    @Column(name = "payment_id", nullable = false, updatable = false)
+    private Long paymentId;
+
+    @Column(name = "booking_id", nullable = false, updatable = false)
+    private Long bookingId;
+
+    // Время проводки — из Clock книги платежей
+    @Column(nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    public enum EntryKind {
+        GUEST_PAYMENT,  // гости -> владелец, вся сумма платежа
+        PLATFORM_FEE,   // владелец -> сайт, комиссия
+        GUEST_REFUND,   // сторно GUEST_PAYMENT при возврате платежа
+        FEE_REFUND      // сторно PLATFORM_FEE при возврате платежа
+    }
+}
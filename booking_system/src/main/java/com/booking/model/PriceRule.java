@@ -0,0 +1,55 @@
+package com.booking.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+
+// Правило цены за ночь: на даты [dateFrom, dateTo] (границы необязательны) и выбранные дни недели
+// цена ночи — pricePerNight вместо базовой цены квартиры. Из пересекающихся правил
+// действует правило с большим priority, при равном — более позднее.
+@Entity
+@Table(name = "price_rules", indexes = {
+        @Index(name = "idx_price_rules_apartment_id", columnList = "apartment_id")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PriceRule {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "price_rules_seq")
+    @SequenceGenerator(name = "price_rules_seq", sequenceName = "price_rules_seq", allocationSize = 50)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "apartment_id", nullable = false)
+    private Apartment apartment;
+
+    private LocalDate dateFrom;
+
+    // Включительно
+    private LocalDate dateTo;
+
+    // Битовая маска дней недели: бит 0 — понедельник ... бит 6 — воскресенье; 0 — все дни
+    @Builder.Default
+    @Column(nullable = false)
+    private Integer daysOfWeek = 0;
+
+    @Column(nullable = false, precision = 10, scale = 2)
+    private BigDecimal pricePerNight;
+
+    @Builder.Default
+    @Column(nullable = false)
+    private Integer priority = 0;
+
+    public static int dayBit(DayOfWeek day) {
+        return 1 << (day.getValue() - 1);
+    }
+}
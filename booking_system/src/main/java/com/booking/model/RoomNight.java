@@ -0,0 +1,36 @@
+package com.booking.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+// Сколько номеров квартиры/отеля продано на конкретную ночь.
+// Пишется пакетно через JDBC (RoomInventory), сущность нужна для схемы.
+@Entity
+@Table(name = "room_nights", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_room_nights_apartment_night", columnNames = {"apartment_id", "night"})
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class RoomNight {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "apartment_id", nullable = false)
+    private Long apartmentId;
+
+    @Column(nullable = false)
+    private LocalDate night;
+
+    @Builder.Default
+    @Column(nullable = false)
+    private int booked = 0;
+}
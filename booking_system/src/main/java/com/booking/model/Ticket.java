@@ -17,7 +17,8 @@ import java.time.LocalDateTime;
 public class Ticket {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "tickets_seq")
+    @SequenceGenerator(name = "tickets_seq", sequenceName = "tickets_seq", allocationSize = 50)
     private Long id;
 
     // Для какого пользователя показывать историю
@@ -38,6 +39,10 @@ public class Ticket {
     @Column(columnDefinition = "TEXT")
     private String dataJson;
 
+    // Запись outbox, из которой создан; уникальность не даёт записать её дважды
+    @Column(name = "outbox_id", unique = true)
+    private Long outboxId;
+
     @Column(nullable = false)
     private LocalDateTime createdAt;
 
@@ -4,7 +4,10 @@ import com.booking.model.Alert;
 import com.booking.model.Booking;
 import com.booking.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface AlertRepository extends JpaRepository<Alert, Long> {
@@ -12,4 +15,7 @@ public interface AlertRepository extends JpaRepository<Alert, Long> {
     List<Alert> findByUser(User user);
 
     List<Alert> findByBooking(Booking booking);
+
+    @Query("SELECT a.outboxId FROM Alert a WHERE a.outboxId IN :outboxIds")
+    List<Long> findOutboxIdsIn(@Param("outboxIds") Collection<Long> outboxIds);
 }
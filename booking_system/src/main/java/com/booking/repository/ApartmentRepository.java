@@ -1,9 +1,14 @@
 package com.booking.repository;
 
+import com.booking.dto.ApartmentDTO;
 import com.booking.model.Apartment;
 import com.booking.model.User;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface ApartmentRepository extends JpaRepository<Apartment, Long> {
@@ -13,4 +18,36 @@ public interface ApartmentRepository extends JpaRepository<Apartment, Long> {
     List<Apartment> findByCityIgnoreCase(String city);
 
     List<Apartment> findByStatus(Apartment.ApartmentStatus status);
+
+    // Карточка квартиры одним запросом: владелец через join, без description и полного photos
+    String CARD_SELECT = "SELECT new com.booking.dto.ApartmentDTO(" +
+            "a.id, a.title, a.address, a.city, a.rooms, a.maxGuests, a.pricePerNight, a.status, " +
+            "a.averageRating, a.reviewsCount, o.id, o.firstName, o.lastName, a.totalRooms, a.availableRooms, " +
+            "a.beds, a.bathrooms, a.amenities, " +
+            "CASE WHEN LOCATE(',', a.photos) > 0 THEN SUBSTRING(a.photos, 1, LOCATE(',', a.photos) - 1) ELSE a.photos END) " +
+            "FROM Apartment a JOIN a.owner o ";
+
+    // Keyset-пагинация: seek по первичному ключу вместо OFFSET
+    @Query(CARD_SELECT + "WHERE a.id > :after ORDER BY a.id")
+    List<ApartmentDTO> findCards(@Param("after") Long after, Pageable pageable);
+
+    @Query(CARD_SELECT + "WHERE a.status = :status AND a.id > :after ORDER BY a.id")
+    List<ApartmentDTO> findCardsByStatus(@Param("status") Apartment.ApartmentStatus status,
+                                         @Param("after") Long after, Pageable pageable);
+
+    @Query(CARD_SELECT + "WHERE o.id = :ownerId AND a.id > :after ORDER BY a.id")
+    List<ApartmentDTO> findCardsByOwner(@Param("ownerId") Long ownerId, @Param("after") Long after, Pageable pageable);
+
+    @Query(CARD_SELECT + "WHERE a.id IN :ids")
+    List<ApartmentDTO> findCardsByIdIn(@Param("ids") Collection<Long> ids);
+
+    // Полные сущности с владельцем одним запросом — для пакетного чтения по списку id
+    @Query("SELECT a FROM Apartment a JOIN FETCH a.owner WHERE a.id IN :ids")
+    List<Apartment> findWithOwnerByIdIn(@Param("ids") Collection<Long> ids);
+
+    // Время последнего изменения каждой квартиры — для ETag/Last-Modified без загрузки сущностей
+    @Query("SELECT a.id AS id, COALESCE(a.lastStatusUpdate, a.createdAt) AS lastModified FROM Apartment a")
+    List<ApartmentVersion> findVersions();
+
+    long countByOwnerId(Long ownerId);
 }
@@ -0,0 +1,10 @@
+package com.booking.repository;
+
+import java.time.LocalDateTime;
+
+// Проекция квартиры: id и время последнего изменения
+public interface ApartmentVersion {
+    Long getId();
+
+    LocalDateTime getLastModified();
+}
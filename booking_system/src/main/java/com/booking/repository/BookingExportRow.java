@@ -0,0 +1,40 @@
+package com.booking.repository;
+
+import com.booking.model.Booking;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+// Строка выгрузки броней: плоские колонки брони, квартиры и клиента, без сущностей
+public interface BookingExportRow {
+    Long getId();
+
+    Long getApartmentId();
+
+    String getApartmentTitle();
+
+    String getApartmentCity();
+
+    Long getClientId();
+
+    String getClientFirstName();
+
+    String getClientLastName();
+
+    String getClientEmail();
+
+    LocalDate getCheckIn();
+
+    LocalDate getCheckOut();
+
+    Integer getGuests();
+
+    BigDecimal getTotalAmount();
+
+    Booking.BookingStatus getStatus();
+
+    Boolean getPaymentCompleted();
+
+    LocalDateTime getCreatedAt();
+}
@@ -0,0 +1,10 @@
+package com.booking.repository;
+
+import java.time.LocalDateTime;
+
+// Проекция удержания: id брони и срок, до которого держатся даты
+public interface BookingHold {
+    Long getId();
+
+    LocalDateTime getHoldExpiresAt();
+}
@@ -0,0 +1,14 @@
+package com.booking.repository;
+
+import java.time.LocalDate;
+
+// Проекция брони: только период и квартира, без загрузки сущностей
+public interface BookingPeriod {
+    Long getId();
+
+    Long getApartmentId();
+
+    LocalDate getCheckIn();
+
+    LocalDate getCheckOut();
+}
@@ -4,10 +4,19 @@ import com.booking.model.Booking;
 import com.booking.model.Booking.BookingStatus;
 import com.booking.model.User;
 import com.booking.model.Apartment;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface BookingRepository extends JpaRepository<Booking, Long> {
 
@@ -15,7 +24,50 @@ public interface BookingRepository extends JpaRepository<Booking, Long> {
 
     List<Booking> findByApartment(Apartment apartment);
 
+    long countByApartmentOwnerId(Long ownerId);
+
+    // Квартира брони не меняется — её можно узнать до транзакции, чтобы взять блокировку квартиры
+    @Query("SELECT b.apartment.id FROM Booking b WHERE b.id = :id")
+    Optional<Long> findApartmentIdById(@Param("id") Long id);
+
+    @Query("SELECT DISTINCT b.apartment.id FROM Booking b WHERE b.id IN :ids")
+    List<Long> findApartmentIdsByIdIn(@Param("ids") Collection<Long> ids);
+
     List<Booking> findByApartmentAndStatus(Apartment apartment, BookingStatus status);
 
     List<Booking> findByCheckInBetween(LocalDate from, LocalDate to);
+
+    // Keyset-пагинация: seek по первичному ключу вместо OFFSET; квартира и клиент — в том же запросе
+    @EntityGraph(attributePaths = {"apartment", "client"})
+    List<Booking> findByClientIdAndIdGreaterThanOrderByIdAsc(Long clientId, Long after, Pageable pageable);
+
+    @EntityGraph(attributePaths = {"apartment", "client"})
+    List<Booking> findByApartmentOwnerIdAndIdGreaterThanOrderByIdAsc(Long ownerId, Long after, Pageable pageable);
+
+    // Периоды броней, которые ещё занимают даты (для построения индексов занятости)
+    @Query("SELECT b.id AS id, b.apartment.id AS apartmentId, b.checkIn AS checkIn, b.checkOut AS checkOut " +
+           "FROM Booking b WHERE b.status IN :statuses AND b.checkOut > :after")
+    List<BookingPeriod> findPeriods(@Param("statuses") Collection<BookingStatus> statuses, @Param("after") LocalDate after);
+
+    // Неистёкшие и ещё не обработанные удержания — для восстановления таймеров после рестарта
+    @Query("SELECT b.id AS id, b.holdExpiresAt AS holdExpiresAt FROM Booking b WHERE b.status = :status")
+    List<BookingHold> findHolds(@Param("status") BookingStatus status);
+
+    // Выгрузка: заезды в [from, to) (границы необязательны), опционально только квартиры владельца; строки читаются
+    // курсором порциями по fetchSize и в контекст персистентности не попадают
+    @QueryHints({
+            @QueryHint(name = "org.hibernate.fetchSize", value = "1000"),
+            @QueryHint(name = "org.hibernate.readOnly", value = "true")
+    })
+    @Query("SELECT b.id AS id, a.id AS apartmentId, a.title AS apartmentTitle, a.city AS apartmentCity, " +
+           "c.id AS clientId, c.firstName AS clientFirstName, c.lastName AS clientLastName, c.email AS clientEmail, " +
+           "b.checkIn AS checkIn, b.checkOut AS checkOut, b.guests AS guests, b.totalAmount AS totalAmount, " +
+           "b.status AS status, b.paymentCompleted AS paymentCompleted, b.createdAt AS createdAt " +
+           "FROM Booking b JOIN b.apartment a JOIN b.client c " +
+           "WHERE (:from IS NULL OR b.checkIn >= :from) AND (:to IS NULL OR b.checkIn < :to) " +
+           "AND (:ownerId IS NULL OR a.owner.id = :ownerId) " +
+           "ORDER BY b.id")
+    Stream<BookingExportRow> streamForExport(@Param("from") LocalDate from,
+                                             @Param("to") LocalDate to,
+                                             @Param("ownerId") Long ownerId);
 }
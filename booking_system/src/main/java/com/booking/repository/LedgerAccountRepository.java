@@ -0,0 +1,29 @@
+package com.booking.repository;
+
+import com.booking.model.LedgerAccount;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+public interface LedgerAccountRepository extends JpaRepository<LedgerAccount, Long> {
+
+    Optional<LedgerAccount> findByCode(String code);
+
+    @Query("SELECT a.id FROM LedgerAccount a WHERE a.code = :code")
+    Optional<Long> findIdByCode(@Param("code") String code);
+
+    // Инкремент оборотов в БД: без чтения строки и без потерянных обновлений
+    @Modifying
+    @Query("UPDATE LedgerAccount a SET a.debits = a.debits + :debits, a.credits = a.credits + :credits, " +
+           "a.entryCount = a.entryCount + :entries, a.updatedAt = :now WHERE a.id = :id")
+    int addTurnover(@Param("id") Long id,
+                    @Param("debits") BigDecimal debits,
+                    @Param("credits") BigDecimal credits,
+                    @Param("entries") long entries,
+                    @Param("now") LocalDateTime now);
+}
@@ -0,0 +1,11 @@
+package com.booking.repository;
+
+import com.booking.model.LedgerEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+
+public interface LedgerEntryRepository extends JpaRepository<LedgerEntry, Long> {
+
+    List<LedgerEntry> findByPaymentId(Long paymentId);
+}
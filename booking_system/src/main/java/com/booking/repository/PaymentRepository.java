@@ -2,10 +2,13 @@ package com.booking.repository;
 
 import com.booking.model.Payment;
 import com.booking.model.Booking;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.util.List;
 import java.util.Optional;
 
 public interface PaymentRepository extends JpaRepository<Payment, Long> {
@@ -14,4 +17,10 @@ public interface PaymentRepository extends JpaRepository<Payment, Long> {
 
     @Query("SELECT p FROM Payment p WHERE p.booking.id = :bookingId")
     Optional<Payment> findByBookingId(@Param("bookingId") Long bookingId);
+
+    // Оплаченные платежи, ещё не проведённые по книге (перенос платежей, сделанных до неё)
+    @EntityGraph(attributePaths = {"booking", "booking.apartment"})
+    @Query("SELECT p FROM Payment p WHERE p.status = :status " +
+           "AND NOT EXISTS (SELECT 1 FROM LedgerEntry e WHERE e.paymentId = p.id) ORDER BY p.id")
+    List<Payment> findUnposted(@Param("status") Payment.PaymentStatus status, Pageable pageable);
 }
@@ -0,0 +1,14 @@
+package com.booking.repository;
+
+import com.booking.model.PriceRule;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+
+public interface PriceRuleRepository extends JpaRepository<PriceRule, Long> {
+
+    // Порядок применения: по возрастанию приоритета, при равном — по id
+    List<PriceRule> findAllByOrderByPriorityAscIdAsc();
+
+    List<PriceRule> findByApartmentIdOrderByPriorityAscIdAsc(Long apartmentId);
+}
@@ -4,7 +4,10 @@ import com.booking.model.Ticket;
 import com.booking.model.User;
 import com.booking.model.Booking;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface TicketRepository extends JpaRepository<Ticket, Long> {
@@ -12,4 +15,7 @@ public interface TicketRepository extends JpaRepository<Ticket, Long> {
     List<Ticket> findByUserOrderByCreatedAtDesc(User user);
 
     List<Ticket> findByBookingOrderByCreatedAtAsc(Booking booking);
+
+    @Query("SELECT t.outboxId FROM Ticket t WHERE t.outboxId IN :outboxIds")
+    List<Long> findOutboxIdsIn(@Param("outboxIds") Collection<Long> outboxIds);
 }
@@ -0,0 +1,157 @@
+package com.booking.service;
+
+import com.booking.dto.ApartmentDTO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+// Read-through кеш ApartmentDTO по id: LRU с ограничением размера и TTL.
+// Сбрасывается после коммита любого изменения квартиры (ApartmentChangedEvent):
+// статус публикации, цена, рейтинг из отзывов. Статус по броням в кеш не входит.
+@Component
+public class ApartmentCache {
+
+    private final int maxSize;
+    private final long ttlMillis;
+
+    private final LinkedHashMap<Long, Entry> entries;
+    // Растёт при каждой инвалидации; значение, загруженное до неё, в кеш не кладём
+    private final AtomicLong generation = new AtomicLong();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong expirations = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public ApartmentCache(@Value("${booking.cache.apartments.max-size:10000}") int maxSize,
+                          @Value("${booking.cache.apartments.ttl-seconds:300}") long ttlSeconds) {
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlSeconds * 1000;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+                if (size() > ApartmentCache.this.maxSize) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public ApartmentDTO get(Long id, Supplier<ApartmentDTO> loader) {
+        long now = System.currentTimeMillis();
+        synchronized (entries) {
+            Entry entry = entries.get(id);
+            if (entry != null) {
+                if (entry.expiresAt > now) {
+                    hits.incrementAndGet();
+                    return entry.value;
+                }
+                entries.remove(id);
+                expirations.incrementAndGet();
+            }
+        }
+
+        misses.incrementAndGet();
+        long loadedAt = generation.get();
+        ApartmentDTO value = loader.get();
+        synchronized (entries) {
+            if (generation.get() == loadedAt) {
+                entries.put(id, new Entry(value, now + ttlMillis));
+            }
+        }
+        return value;
+    }
+
+    // Пакетное чтение: промахи загружаются одним вызовом loader, результат — в порядке ids.
+    // Квартир, которых loader не вернул, в результате нет.
+    public Map<Long, ApartmentDTO> getAll(Collection<Long> ids,
+                                          Function<Collection<Long>, Map<Long, ApartmentDTO>> loader) {
+        long now = System.currentTimeMillis();
+        Map<Long, ApartmentDTO> found = new LinkedHashMap<>();
+        List<Long> missing = new ArrayList<>();
+        synchronized (entries) {
+            for (Long id : ids) {
+                Entry entry = entries.get(id);
+                if (entry != null && entry.expiresAt > now) {
+                    hits.incrementAndGet();
+                    found.put(id, entry.value);
+                    continue;
+                }
+                if (entry != null) {
+                    entries.remove(id);
+                    expirations.incrementAndGet();
+                }
+                found.put(id, null);
+                missing.add(id);
+            }
+        }
+        if (missing.isEmpty()) {
+            return found;
+        }
+
+        misses.addAndGet(missing.size());
+        long loadedAt = generation.get();
+        Map<Long, ApartmentDTO> loaded = loader.apply(missing);
+        synchronized (entries) {
+            boolean fresh = generation.get() == loadedAt;
+            for (Long id : missing) {
+                ApartmentDTO value = loaded.get(id);
+                if (value == null) {
+                    found.remove(id);
+                } else {
+                    found.put(id, value);
+                    if (fresh) {
+                        entries.put(id, new Entry(value, now + ttlMillis));
+                    }
+                }
+            }
+        }
+        return found;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onApartmentChanged(ApartmentChangedEvent event) {
+        invalidate(event.getApartment().getId());
+    }
+
+    public void invalidate(Long id) {
+        synchronized (entries) {
+            generation.incrementAndGet();
+            entries.remove(id);
+        }
+        invalidations.incrementAndGet();
+    }
+
+    public Map<String, Object> stats() {
+        long hitCount = hits.get();
+        long missCount = misses.get();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        synchronized (entries) {
+            stats.put("size", entries.size());
+        }
+        stats.put("maxSize", maxSize);
+        stats.put("ttlSeconds", ttlMillis / 1000);
+        stats.put("hits", hitCount);
+        stats.put("misses", missCount);
+        stats.put("hitRatio", hitCount + missCount == 0 ? 0.0 : (double) hitCount / (hitCount + missCount));
+        stats.put("evictions", evictions.get());
+        stats.put("expirations", expirations.get());
+        stats.put("invalidations", invalidations.get());
+        return stats;
+    }
+
+    private record Entry(ApartmentDTO value, long expiresAt) {
+    }
+}
@@ -0,0 +1,10 @@
+package com.booking.service;
+
+import com.booking.model.Apartment;
+import lombok.Value;
+
+// Событие об изменении квартиры — на него подписываются in-memory индексы
+@Value
+public class ApartmentChangedEvent {
+    Apartment apartment;
+}
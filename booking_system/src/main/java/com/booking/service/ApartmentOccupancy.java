@@ -0,0 +1,195 @@
+package com.booking.service;
+
+import com.booking.model.Apartment;
+import com.booking.model.Booking;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.sql.Date;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+// Текущая занятость квартир по броням — из неё вычисляются статусы BOOKED и OCCUPIED.
+// В apartments.status хранится только статус публикации (AVAILABLE / ARCHIVED), переходы броней
+// строку квартиры не трогают. Здесь по каждой квартире — заселённые брони и действующие с выездом после сегодня;
+// по ним держится готовая сводка (сколько заселено, до какой даты забронирована),
+// так что статус квартиры читается за O(1). Сводка пересчитывается при изменении брони.
+// Отпечаток всех сводок вместе с сегодняшней датой входит в ETag каталога (ApartmentVersions).
+@Slf4j
+@Component
+public class ApartmentOccupancy {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Clock clock;
+
+    // apartmentId -> bookingId -> бронь; меняется под this
+    private final Map<Long, Map<Long, Stay>> stays = new HashMap<>();
+    // apartmentId -> сводка для чтения без блокировок
+    private final Map<Long, Summary> summaries = new ConcurrentHashMap<>();
+    // Сумма хешей (квартира, сводка) по всем сводкам; меняется под this
+    private volatile long summaryHash;
+    // День, по который убраны брони с наступившим выездом
+    private volatile LocalDate rolledTo = LocalDate.MIN;
+
+    public ApartmentOccupancy(JdbcTemplate jdbcTemplate, Clock clock) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.clock = clock;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void rebuild() {
+        LocalDate today = LocalDate.now(clock);
+        String statuses = Arrays.stream(Booking.BookingStatus.values())
+                .filter(Booking.BookingStatus::blocksDates)
+                .map(status -> "'" + status.name() + "'")
+                .collect(Collectors.joining(", "));
+        stays.clear();
+        jdbcTemplate.query("SELECT id, apartment_id, check_out, status FROM bookings " +
+                "WHERE status = 'CHECKED_IN' OR (status IN (" + statuses + ") AND check_out > ?)", rs -> {
+            stays.computeIfAbsent(rs.getLong("apartment_id"), id -> new HashMap<>())
+                    .put(rs.getLong("id"), new Stay(rs.getDate("check_out").toLocalDate(),
+                            Booking.BookingStatus.CHECKED_IN.name().equals(rs.getString("status"))));
+        }, Date.valueOf(today));
+        rolledTo = today;
+        summaries.clear();
+        summaryHash = 0;
+        stays.forEach(this::refresh);
+        log.info("Apartment occupancy loaded: {} apartments with active bookings", stays.size());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onBookingChanged(BookingChangedEvent event) {
+        refresh(event.getApartmentId(), apply(event));
+    }
+
+    // Пачка: сводка каждой затронутой квартиры пересчитывается один раз
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onBookingsChanged(BookingBatchChangedEvent event) {
+        Map<Long, Map<Long, Stay>> touched = new HashMap<>();
+        for (BookingChangedEvent change : event.getChanges()) {
+            touched.put(change.getApartmentId(), apply(change));
+        }
+        touched.forEach(this::refresh);
+    }
+
+    private Map<Long, Stay> apply(BookingChangedEvent event) {
+        Map<Long, Stay> apartmentStays = stays.computeIfAbsent(event.getApartmentId(), id -> new HashMap<>());
+        boolean checkedIn = event.getStatus() == Booking.BookingStatus.CHECKED_IN;
+        if (checkedIn || (event.getStatus().blocksDates() && event.getCheckOut().isAfter(LocalDate.now(clock)))) {
+            apartmentStays.put(event.getBookingId(), new Stay(event.getCheckOut(), checkedIn));
+        } else {
+            apartmentStays.remove(event.getBookingId());
+        }
+        return apartmentStays;
+    }
+
+    // Раз в сутки убираем брони, у которых наступил день выезда. Статус с них снимается
+    // и без этого (он сравнивается с сегодняшней датой), уборка держит сводки и отпечаток
+    // такими же, какими их соберёт rebuild после рестарта
+    @Scheduled(cron = "${booking.occupancy.roll-cron:5 0 0 * * *}")
+    public synchronized void roll() {
+        LocalDate today = LocalDate.now(clock);
+        for (Long apartmentId : List.copyOf(stays.keySet())) {
+            Map<Long, Stay> apartmentStays = stays.get(apartmentId);
+            if (apartmentStays.values().removeIf(stay -> !stay.checkOut.isAfter(today) && !stay.checkedIn)) {
+                refresh(apartmentId, apartmentStays);
+            }
+        }
+        rolledTo = today;
+    }
+
+    // Отпечаток занятости для ETag каталога: 0 — активных броней нет и статусы не меняются,
+    // иначе хеш сводок и сегодняшней даты (от неё зависит, истёк ли BOOKED).
+    // Если уборка за сегодня ещё не прошла, она делается здесь — иначе отпечаток
+    // разошёлся бы с тем, что соберёт rebuild после рестарта
+    public long fingerprint() {
+        LocalDate today = LocalDate.now(clock);
+        if (rolledTo.isBefore(today)) {
+            roll();
+        }
+        if (summaries.isEmpty()) {
+            return 0;
+        }
+        return summaryHash * 31 + today.toEpochDay();
+    }
+
+    // Статус квартиры для ответа: listed — статус публикации из apartments.status
+    public Apartment.ApartmentStatus status(Long apartmentId, Apartment.ApartmentStatus listed) {
+        return status(summaries.get(apartmentId), listed);
+    }
+
+    // Квартира занята сейчас или забронирована на будущие даты
+    public boolean isTaken(Long apartmentId) {
+        return status(apartmentId, Apartment.ApartmentStatus.AVAILABLE) != Apartment.ApartmentStatus.AVAILABLE;
+    }
+
+    private Apartment.ApartmentStatus status(Summary summary, Apartment.ApartmentStatus listed) {
+        if (listed == Apartment.ApartmentStatus.ARCHIVED || summary == null) {
+            return listed;
+        }
+        if (summary.checkedIn > 0) {
+            return Apartment.ApartmentStatus.OCCUPIED;
+        }
+        if (summary.bookedUntil != null && summary.bookedUntil.isAfter(LocalDate.now(clock))) {
+            return Apartment.ApartmentStatus.BOOKED;
+        }
+        return listed;
+    }
+
+    private void refresh(Long apartmentId, Map<Long, Stay> apartmentStays) {
+        Summary previous = apartmentStays.isEmpty() ? summaries.remove(apartmentId)
+                : summaries.put(apartmentId, summarize(apartmentStays));
+        if (apartmentStays.isEmpty()) {
+            stays.remove(apartmentId);
+        }
+        long hash = summaryHash;
+        if (previous != null) {
+            hash -= hash(apartmentId, previous);
+        }
+        Summary current = summaries.get(apartmentId);
+        if (current != null) {
+            hash += hash(apartmentId, current);
+        }
+        summaryHash = hash;
+    }
+
+    // Сумма по квартирам не зависит от порядка событий; перемешивание — чтобы суммы разных наборов не совпадали
+    private static long hash(Long apartmentId, Summary summary) {
+        long h = apartmentId * 0x9E3779B97F4A7C15L
+                + summary.checkedIn * 0xC2B2AE3D27D4EB4FL
+                + (summary.bookedUntil != null ? summary.bookedUntil.toEpochDay() : -1) * 0x165667B19E3779F9L;
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        return h ^ (h >>> 33);
+    }
+
+    private static Summary summarize(Map<Long, Stay> apartmentStays) {
+        int checkedIn = 0;
+        LocalDate bookedUntil = null;
+        for (Stay stay : apartmentStays.values()) {
+            if (stay.checkedIn) {
+                checkedIn++;
+            } else if (bookedUntil == null || stay.checkOut.isAfter(bookedUntil)) {
+                bookedUntil = stay.checkOut;
+            }
+        }
+        return new Summary(checkedIn, bookedUntil);
+    }
+
+    private record Stay(LocalDate checkOut, boolean checkedIn) {
+    }
+
+    private record Summary(int checkedIn, LocalDate bookedUntil) {
+    }
+}
@@ -0,0 +1,264 @@
+package com.booking.service;
+
+import com.booking.dto.ApartmentSearchCriteria;
+import com.booking.model.Amenity;
+import com.booking.model.Apartment;
+import com.booking.repository.ApartmentRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.LongPredicate;
+
+// In-memory инвертированный индекс квартир для фасетного поиска.
+// Постинги — битовые карты по порядковому номеру квартиры в индексе: фильтр "wifi + парковка + бассейн"
+// сводится к AND нескольких BitSet, таблица apartments не сканируется.
+// Номера плотные (0, 1, 2, ... в порядке id), поэтому BitSet занимает ~1 бит на квартиру,
+// даже если в id есть дыры (последовательность выдаёт id блоками по 50, блок теряется при рестарте).
+// Квартиры не удаляются, так что номер, раз выданный, за квартирой и остаётся.
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ApartmentSearchIndex {
+
+    private static final Amenity[] AMENITIES = Amenity.values();
+
+    private final ApartmentRepository apartmentRepository;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    // id -> порядковый номер; по номеру — снимок квартиры
+    private final Map<Long, Integer> ordinals = new HashMap<>();
+    private Entry[] entries = new Entry[1024];
+    private final Map<String, BitSet> byCity = new HashMap<>();
+    private final BitSet[] byAmenity = new BitSet[AMENITIES.length];
+    private final Map<Apartment.ApartmentStatus, BitSet> byStatus = new EnumMap<>(Apartment.ApartmentStatus.class);
+
+    {
+        for (int i = 0; i < byAmenity.length; i++) {
+            byAmenity[i] = new BitSet();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        List<Apartment> apartments = new ArrayList<>(apartmentRepository.findAll());
+        // Номера по возрастанию id — порядок выдачи результатов остаётся порядком id
+        apartments.sort(Comparator.comparing(Apartment::getId));
+        lock.writeLock().lock();
+        try {
+            ordinals.clear();
+            entries = new Entry[Math.max(1024, apartments.size())];
+            byCity.clear();
+            byStatus.clear();
+            for (BitSet bitmap : byAmenity) {
+                bitmap.clear();
+            }
+            apartments.forEach(this::put);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Apartment search index built: {} apartments, {} KB of postings", apartments.size(), postingBytes() / 1024);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onApartmentChanged(ApartmentChangedEvent event) {
+        index(event.getApartment());
+    }
+
+    public void index(Apartment apartment) {
+        lock.writeLock().lock();
+        try {
+            remove(apartment.getId());
+            put(apartment);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean contains(Long id) {
+        lock.readLock().lock();
+        try {
+            Integer ordinal = ordinals.get(id);
+            return ordinal != null && entries[ordinal] != null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public SearchResult search(ApartmentSearchCriteria criteria, Set<Apartment.ApartmentStatus> statuses,
+                               LongPredicate filter) {
+        lock.readLock().lock();
+        try {
+            BitSet candidates = new BitSet();
+            for (Apartment.ApartmentStatus status : statuses) {
+                BitSet ids = byStatus.get(status);
+                if (ids != null) {
+                    candidates.or(ids);
+                }
+            }
+            if (criteria.getCity() != null && !criteria.getCity().isBlank()) {
+                candidates.and(byCity.getOrDefault(cityKey(criteria.getCity()), new BitSet()));
+            }
+            int required = criteria.getRequiredAmenities();
+            for (Amenity amenity : AMENITIES) {
+                if (amenity.isIn(required)) {
+                    candidates.and(byAmenity[amenity.ordinal()]);
+                }
+            }
+
+            // Диапазонные условия и внешний фильтр проверяются только по оставшимся кандидатам
+            BitSet matched = new BitSet();
+            List<Long> ids = new ArrayList<>(candidates.cardinality());
+            for (int ordinal = candidates.nextSetBit(0); ordinal >= 0; ordinal = candidates.nextSetBit(ordinal + 1)) {
+                Entry entry = entries[ordinal];
+                if (entry.matches(criteria) && filter.test(entry.id)) {
+                    matched.set(ordinal);
+                    ids.add(entry.id);
+                }
+            }
+
+            return new SearchResult(ids, facets(matched));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Map<String, Map<String, Integer>> facets(BitSet matched) {
+        Map<String, Integer> cities = new TreeMap<>();
+        Map<String, Integer> rooms = new TreeMap<>();
+        for (int ordinal = matched.nextSetBit(0); ordinal >= 0; ordinal = matched.nextSetBit(ordinal + 1)) {
+            Entry entry = entries[ordinal];
+            if (entry.city != null) {
+                cities.merge(entry.city, 1, Integer::sum);
+            }
+            if (entry.rooms != null) {
+                rooms.merge(String.valueOf(entry.rooms), 1, Integer::sum);
+            }
+        }
+
+        Map<String, Integer> amenities = new LinkedHashMap<>();
+        for (Amenity amenity : AMENITIES) {
+            BitSet withAmenity = (BitSet) matched.clone();
+            withAmenity.and(byAmenity[amenity.ordinal()]);
+            amenities.put(amenity.key(), withAmenity.cardinality());
+        }
+
+        Map<String, Map<String, Integer>> facets = new LinkedHashMap<>();
+        facets.put("city", cities);
+        facets.put("rooms", rooms);
+        facets.put("amenities", amenities);
+        return facets;
+    }
+
+    // Объём битовых карт в байтах — для журнала и замеров
+    long postingBytes() {
+        lock.readLock().lock();
+        try {
+            long bits = 0;
+            for (BitSet bitmap : byCity.values()) {
+                bits += bitmap.size();
+            }
+            for (BitSet bitmap : byAmenity) {
+                bits += bitmap.size();
+            }
+            for (BitSet bitmap : byStatus.values()) {
+                bits += bitmap.size();
+            }
+            return bits / 8;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void put(Apartment apartment) {
+        Entry entry = new Entry(apartment);
+        int bit = ordinals.computeIfAbsent(entry.id, id -> ordinals.size());
+        if (bit == entries.length) {
+            entries = Arrays.copyOf(entries, entries.length * 2);
+        }
+        entries[bit] = entry;
+        if (entry.city != null) {
+            byCity.computeIfAbsent(cityKey(entry.city), k -> new BitSet()).set(bit);
+        }
+        for (Amenity amenity : AMENITIES) {
+            if (amenity.isIn(entry.amenities)) {
+                byAmenity[amenity.ordinal()].set(bit);
+            }
+        }
+        byStatus.computeIfAbsent(entry.status, k -> new BitSet()).set(bit);
+    }
+
+    // Номер квартиры сохраняется: remove всегда идёт перед put той же квартиры
+    private void remove(Long id) {
+        Integer bit = ordinals.get(id);
+        Entry entry = bit != null ? entries[bit] : null;
+        if (entry == null) {
+            return;
+        }
+        entries[bit] = null;
+        if (entry.city != null) {
+            BitSet ids = byCity.get(cityKey(entry.city));
+            if (ids != null) {
+                ids.clear(bit);
+                if (ids.isEmpty()) {
+                    byCity.remove(cityKey(entry.city));
+                }
+            }
+        }
+        for (BitSet bitmap : byAmenity) {
+            bitmap.clear(bit);
+        }
+        BitSet statusIds = byStatus.get(entry.status);
+        if (statusIds != null) {
+            statusIds.clear(bit);
+        }
+    }
+
+    private static String cityKey(String city) {
+        return city.trim().toLowerCase(Locale.ROOT);
+    }
+
+    public record SearchResult(List<Long> ids, Map<String, Map<String, Integer>> facets) {
+    }
+
+    // Компактный снимок полей, по которым идёт фильтрация
+    private static final class Entry {
+        final Long id;
+        final String city;
+        final BigDecimal price;
+        final Integer rooms;
+        final Integer maxGuests;
+        final Integer beds;
+        final Integer bathrooms;
+        final Apartment.ApartmentStatus status;
+        final int amenities;
+
+        Entry(Apartment apartment) {
+            id = apartment.getId();
+            city = apartment.getCity() != null ? apartment.getCity().trim() : null;
+            price = apartment.getPricePerNight();
+            rooms = apartment.getRooms();
+            maxGuests = apartment.getMaxGuests();
+            beds = apartment.getBeds();
+            bathrooms = apartment.getBathrooms();
+            status = apartment.getStatus();
+            amenities = apartment.getAmenities() != null ? apartment.getAmenities() : 0;
+        }
+
+        boolean matches(ApartmentSearchCriteria c) {
+            if (c.getMinPrice() != null && (price == null || price.compareTo(c.getMinPrice()) < 0)) return false;
+            if (c.getMaxPrice() != null && (price == null || price.compareTo(c.getMaxPrice()) > 0)) return false;
+            if (c.getRooms() != null && (rooms == null || rooms < c.getRooms())) return false;
+            if (c.getGuests() != null && (maxGuests == null || maxGuests < c.getGuests())) return false;
+            if (c.getBeds() != null && (beds == null || beds < c.getBeds())) return false;
+            if (c.getBathrooms() != null && (bathrooms == null || bathrooms < c.getBathrooms())) return false;
+            return true;
+        }
+    }
+}
@@ -1,15 +1,36 @@
 package com.booking.service;
 
+import com.booking.dto.ApartmentBatchDTO;
 import com.booking.dto.ApartmentDTO;
+import com.booking.dto.ApartmentSearchCriteria;
+import com.booking.dto.ApartmentSearchResultDTO;
+import com.booking.dto.CalendarDTO;
+import com.booking.dto.CursorPage;
+import com.booking.dto.PriceQuoteDTO;
+import com.booking.dto.PriceRuleDTO;
+import com.booking.dto.TextSearchResultDTO;
 import com.booking.model.Apartment;
+import com.booking.model.PriceRule;
 import com.booking.model.User;
 import com.booking.repository.ApartmentRepository;
+import com.booking.repository.PriceRuleRepository;
 import com.booking.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -17,7 +38,29 @@ import java.util.stream.Collectors;
 public class ApartmentService {
     private final ApartmentRepository apartmentRepository;
     private final UserRepository userRepository;
+    private final PriceRuleRepository priceRuleRepository;
     private final NotificationService notificationService;
+    private final ApartmentSearchIndex apartmentSearchIndex;
+    private final FullTextIndex fullTextIndex;
+    private final RoomInventory roomInventory;
+    private final AvailabilityCalendar availabilityCalendar;
+    private final ApartmentCache apartmentCache;
+    private final ApartmentVersions apartmentVersions;
+    private final SimilarApartments similarApartments;
+    private final PriceCalendar priceCalendar;
+    private final ReplicaRouting replicaRouting;
+    private final ApartmentOccupancy apartmentOccupancy;
+    private final ApplicationEventPublisher eventPublisher;
+
+    private static final int MAX_SEARCH_PAGE_SIZE = 100;
+    private static final int DEFAULT_TEXT_SEARCH_LIMIT = 20;
+    private static final int DEFAULT_CALENDAR_DAYS = 30;
+    private static final int MAX_CALENDAR_DAYS = 731;
+    private static final int MAX_BATCH_IDS = 500;
+    private static final int BATCH_CHUNK_SIZE = 100;
+    private static final int DEFAULT_SIMILAR_LIMIT = 6;
+    private static final int AVAILABLE_SCAN_BATCH = 200;
+    private static final int MAX_AVAILABLE_SCAN = 2000;
 
     @Transactional
     public ApartmentDTO createApartment(ApartmentDTO dto, Long ownerId) {
@@ -32,7 +75,7 @@ public class ApartmentService {
         apartment.setRooms(dto.getRooms());
         apartment.setMaxGuests(dto.getMaxGuests());
         apartment.setPricePerNight(dto.getPricePerNight());
-        apartment.setStatus(dto.getStatus() != null ? dto.getStatus() : Apartment.ApartmentStatus.AVAILABLE);
+        apartment.setStatus(listingStatus(dto.getStatus() != null ? dto.getStatus() : Apartment.ApartmentStatus.AVAILABLE));
         apartment.setOwner(owner);
         apartment.setTotalRooms(dto.getTotalRooms());
         apartment.setAvailableRooms(dto.getAvailableRooms());
@@ -40,65 +83,354 @@ public class ApartmentService {
         // Новые поля
         apartment.setBeds(dto.getBeds());
         apartment.setBathrooms(dto.getBathrooms());
-        apartment.setHasWifi(dto.isHasWifi());
-        apartment.setHasParking(dto.isHasParking());
-        apartment.setHasKitchen(dto.isHasKitchen());
-        apartment.setHasAirConditioning(dto.isHasAirConditioning());
-        apartment.setHasWasher(dto.isHasWasher());
-        apartment.setHasTv(dto.isHasTv());
-        apartment.setHasPool(dto.isHasPool());
-        apartment.setHasBalcony(dto.isHasBalcony());
+        apartment.setAmenities(dto.getAmenities());
         
         if (dto.getPhotos() != null && !dto.getPhotos().isEmpty()) {
             apartment.setPhotos(String.join(",", dto.getPhotos()));
         }
 
-        return ApartmentDTO.fromEntity(apartmentRepository.save(apartment));
+        Apartment saved = apartmentRepository.save(apartment);
+        eventPublisher.publishEvent(new ApartmentChangedEvent(saved));
+        return ApartmentDTO.fromEntity(saved);
+    }
+
+    @Transactional(readOnly = true)
+    public CursorPage<ApartmentDTO> getAllApartments(Long after, Integer limit) {
+        int size = CursorPage.limit(limit);
+        return CursorPage.of(
+                apartmentRepository.findCards(CursorPage.after(after), CursorPage.seek(size)),
+                size, ApartmentDTO::getId, this::withStatus);
     }
 
-    public List<ApartmentDTO> getAllApartments() {
-        return apartmentRepository.findAll().stream()
-                .map(ApartmentDTO::fromEntity)
+    // Опубликованные квартиры без текущих и будущих броней. Занятость — из памяти,
+    // поэтому страница добирается из БД, пока не наберётся limit свободных. За запрос
+    // просматривается не больше MAX_AVAILABLE_SCAN квартир: если свободных не набралось,
+    // страница отдаётся короче, а курсор указывает на последнюю просмотренную
+    @Transactional(readOnly = true)
+    public CursorPage<ApartmentDTO> getAvailableApartments(Long after, Integer limit) {
+        int size = CursorPage.limit(limit);
+        int batchSize = Math.max(size + 1, AVAILABLE_SCAN_BATCH);
+        List<ApartmentDTO> rows = new ArrayList<>();
+        long cursor = CursorPage.after(after);
+        int scanned = 0;
+        while (true) {
+            List<ApartmentDTO> batch = apartmentRepository.findCardsByStatus(
+                    Apartment.ApartmentStatus.AVAILABLE, cursor, PageRequest.of(0, batchSize));
+            for (ApartmentDTO card : batch) {
+                cursor = card.getId();
+                scanned++;
+                if (!apartmentOccupancy.isTaken(card.getId())) {
+                    rows.add(card);
+                    if (rows.size() > size) {
+                        return CursorPage.of(rows, size, ApartmentDTO::getId, Function.identity());
+                    }
+                }
+            }
+            if (batch.size() < batchSize) {
+                return CursorPage.of(rows, size, ApartmentDTO::getId, Function.identity());
+            }
+            if (scanned >= MAX_AVAILABLE_SCAN) {
+                CursorPage<ApartmentDTO> page = CursorPage.of(rows, size, ApartmentDTO::getId, Function.identity());
+                page.setNextCursor(cursor);
+                return page;
+            }
+        }
+    }
+
+    // Фасетный поиск по in-memory индексу; из БД подгружается только текущая страница.
+    // Если заданы checkIn/checkOut, остаются только квартиры без пересекающихся броней.
+    @Transactional(readOnly = true)
+    public ApartmentSearchResultDTO search(ApartmentSearchCriteria criteria) {
+        int size = Math.max(1, Math.min(criteria.getSize(), MAX_SEARCH_PAGE_SIZE));
+        int page = Math.max(0, criteria.getPage());
+
+        ApartmentSearchIndex.SearchResult result;
+        if (criteria.getCheckIn() != null || criteria.getCheckOut() != null) {
+            // С датами статус BOOKED/OCCUPIED не исключает квартиру — решает сетка свободных номеров
+            LocalDate checkIn = criteria.getCheckIn();
+            LocalDate checkOut = criteria.getCheckOut();
+            if (checkIn == null || checkOut == null || !checkOut.isAfter(checkIn)) {
+                throw new RuntimeException("checkOut must be after checkIn");
+            }
+            result = apartmentSearchIndex.search(criteria,
+                    EnumSet.complementOf(EnumSet.of(Apartment.ApartmentStatus.ARCHIVED)),
+                    id -> roomInventory.isAvailable(id, checkIn, checkOut));
+        } else {
+            // Без дат — только квартиры без текущих и будущих броней
+            result = apartmentSearchIndex.search(criteria,
+                    EnumSet.of(Apartment.ApartmentStatus.AVAILABLE, Apartment.ApartmentStatus.FREE),
+                    id -> !apartmentOccupancy.isTaken(id));
+        }
+
+        List<Long> pageIds = result.ids().stream()
+                .skip((long) page * size)
+                .limit(size)
                 .collect(Collectors.toList());
+        replicaRouting.readingAs(pageIds.stream().map(ReplicaRouting::apartment).toList());
+        Map<Long, ApartmentDTO> loaded = pageIds.isEmpty() ? Map.of() : apartmentRepository.findCardsByIdIn(pageIds).stream()
+                .collect(Collectors.toMap(ApartmentDTO::getId, Function.identity()));
+
+        ApartmentSearchResultDTO dto = new ApartmentSearchResultDTO();
+        dto.setItems(pageIds.stream()
+                .map(loaded::get)
+                .filter(Objects::nonNull)
+                .map(this::withStatus)
+                .collect(Collectors.toList()));
+        dto.setTotal(result.ids().size());
+        dto.setPage(page);
+        dto.setSize(size);
+        dto.setFacets(result.facets());
+        return dto;
+    }
+
+    // Полнотекстовый поиск по заголовку и описанию; отвечает целиком из памяти
+    public TextSearchResultDTO searchText(String query, Integer limit) {
+        long started = System.nanoTime();
+        int size = limit != null ? Math.max(1, Math.min(limit, MAX_SEARCH_PAGE_SIZE)) : DEFAULT_TEXT_SEARCH_LIMIT;
+
+        TextSearchResultDTO dto = new TextSearchResultDTO();
+        dto.setQuery(query);
+        dto.setHits(fullTextIndex.search(query != null ? query : "", size).stream()
+                .map(hit -> {
+                    TextSearchResultDTO.Hit item = new TextSearchResultDTO.Hit();
+                    item.setApartmentId(hit.apartmentId());
+                    item.setTitle(hit.title());
+                    item.setCity(hit.city());
+                    item.setPricePerNight(hit.pricePerNight());
+                    item.setScore(hit.score());
+                    item.setTitleHighlight(hit.titleHighlight());
+                    item.setSnippet(hit.snippet());
+                    return item;
+                })
+                .collect(Collectors.toList()));
+        dto.setTookMicros((System.nanoTime() - started) / 1000);
+        return dto;
+    }
+
+    public Map<String, Object> getTextIndexStats() {
+        return fullTextIndex.stats();
+    }
+
+    // Календарь занятости на ночи [from, to); по умолчанию — 30 дней начиная с сегодня
+    public CalendarDTO getCalendar(Long id, LocalDate from, LocalDate to) {
+        if (!apartmentSearchIndex.contains(id)) {
+            throw new RuntimeException("Apartment not found");
+        }
+        LocalDate start = from != null ? from : LocalDate.now();
+        LocalDate end = to != null ? to : start.plusDays(DEFAULT_CALENDAR_DAYS);
+        long days = ChronoUnit.DAYS.between(start, end);
+        if (days <= 0 || days > MAX_CALENDAR_DAYS) {
+            throw new RuntimeException("Calendar range must be between 1 and " + MAX_CALENDAR_DAYS + " days");
+        }
+
+        // У отеля с несколькими номерами ночь занята, только когда проданы все номера
+        boolean multiRoom = roomInventory.units(id) > 1;
+        List<LocalDate> occupied = new ArrayList<>();
+        for (LocalDate date = start; date.isBefore(end); date = date.plusDays(1)) {
+            if (multiRoom ? roomInventory.remaining(id, date) == 0 : availabilityCalendar.isOccupied(id, date)) {
+                occupied.add(date);
+            }
+        }
+
+        CalendarDTO dto = new CalendarDTO();
+        dto.setApartmentId(id);
+        dto.setFrom(start);
+        dto.setTo(end);
+        dto.setOccupiedDates(occupied);
+        dto.setFreeDays((int) days - occupied.size());
+        return dto;
+    }
+
+    // Предварительный расчёт цены: цены ночей [checkIn, checkOut) по правилам цены, без обращения к БД
+    public PriceQuoteDTO getQuote(Long id, LocalDate checkIn, LocalDate checkOut, Integer guests) {
+        if (!apartmentSearchIndex.contains(id)) {
+            throw new RuntimeException("Apartment not found");
+        }
+        if (checkIn == null || checkOut == null || !checkOut.isAfter(checkIn)) {
+            throw new RuntimeException("checkOut must be after checkIn");
+        }
+        long nights = ChronoUnit.DAYS.between(checkIn, checkOut);
+        if (nights > MAX_CALENDAR_DAYS) {
+            throw new RuntimeException("Stay must be at most " + MAX_CALENDAR_DAYS + " nights");
+        }
+        Integer maxGuests = priceCalendar.maxGuests(id);
+        if (guests != null && guests < 1) {
+            throw new RuntimeException("guests must be at least 1");
+        }
+        if (guests != null && maxGuests != null && guests > maxGuests) {
+            throw new RuntimeException("Apartment accepts at most " + maxGuests + " guests");
+        }
+
+        List<BigDecimal> nightly = priceCalendar.nightlyPrices(id, checkIn, checkOut);
+        PriceQuoteDTO dto = new PriceQuoteDTO();
+        dto.setApartmentId(id);
+        dto.setCheckIn(checkIn);
+        dto.setCheckOut(checkOut);
+        dto.setGuests(guests);
+        dto.setNights((int) nights);
+        dto.setNightlyPrices(nightly);
+        dto.setTotal(nightly.stream().reduce(BigDecimal.ZERO, BigDecimal::add));
+        return dto;
     }
 
-    public List<ApartmentDTO> getAvailableApartments() {
-        return apartmentRepository.findByStatus(Apartment.ApartmentStatus.AVAILABLE).stream()
-                .map(ApartmentDTO::fromEntity)
+    @Transactional(readOnly = true)
+    public List<PriceRuleDTO> getPriceRules(Long id) {
+        replicaRouting.readingAs(ReplicaRouting.apartment(id));
+        return priceRuleRepository.findByApartmentIdOrderByPriorityAscIdAsc(id).stream()
+                .map(PriceRuleDTO::fromEntity)
                 .collect(Collectors.toList());
     }
 
-    public ApartmentDTO getApartmentById(Long id) {
+    @Transactional
+    public PriceRuleDTO addPriceRule(Long id, PriceRuleDTO dto, Long ownerId) {
+        Apartment apartment = ownedApartment(id, ownerId);
+        if (dto.getDateFrom() != null && dto.getDateTo() != null && dto.getDateTo().isBefore(dto.getDateFrom())) {
+            throw new RuntimeException("dateTo must not be before dateFrom");
+        }
+
+        PriceRule rule = priceRuleRepository.save(PriceRule.builder()
+                .apartment(apartment)
+                .dateFrom(dto.getDateFrom())
+                .dateTo(dto.getDateTo())
+                .daysOfWeek(dto.daysOfWeekMask())
+                .pricePerNight(dto.getPricePerNight())
+                .priority(dto.getPriority() != null ? dto.getPriority() : 0)
+                .build());
+        publishPriceRules(id);
+        return PriceRuleDTO.fromEntity(rule);
+    }
+
+    @Transactional
+    public void deletePriceRule(Long id, Long ruleId, Long ownerId) {
+        ownedApartment(id, ownerId);
+        PriceRule rule = priceRuleRepository.findById(ruleId)
+                .filter(r -> r.getApartment().getId().equals(id))
+                .orElseThrow(() -> new RuntimeException("Price rule not found"));
+        priceRuleRepository.delete(rule);
+        publishPriceRules(id);
+    }
+
+    private Apartment ownedApartment(Long id, Long ownerId) {
         Apartment apartment = apartmentRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Apartment not found"));
-        return ApartmentDTO.fromEntity(apartment);
+        if (!apartment.getOwner().getId().equals(ownerId)) {
+            throw new RuntimeException("Only the owner can change price rules");
+        }
+        return apartment;
     }
 
-    public List<ApartmentDTO> getApartmentsByOwner(Long ownerId) {
-        User owner = userRepository.findById(ownerId)
-                .orElseThrow(() -> new RuntimeException("Owner not found"));
-        return apartmentRepository.findByOwner(owner).stream()
-                .map(ApartmentDTO::fromEntity)
+    // Календарь цен пересобирается после коммита по полному списку правил квартиры
+    private void publishPriceRules(Long id) {
+        eventPublisher.publishEvent(new PriceRulesChangedEvent(id,
+                priceRuleRepository.findByApartmentIdOrderByPriorityAscIdAsc(id)));
+    }
+
+    @Transactional(readOnly = true)
+    public ApartmentDTO getApartmentById(Long id) {
+        return withStatus(apartmentCache.get(id, () -> {
+            replicaRouting.readingAs(ReplicaRouting.apartment(id));
+            Apartment apartment = apartmentRepository.findById(id)
+                    .orElseThrow(() -> new RuntimeException("Apartment not found"));
+            return ApartmentDTO.fromEntity(apartment);
+        }));
+    }
+
+    // Квартиры по списку id в порядке запроса: сначала кеш, промахи — запросами IN по BATCH_CHUNK_SIZE id
+    @Transactional(readOnly = true)
+    public ApartmentBatchDTO getApartmentsByIds(List<Long> ids) {
+        List<Long> unique = ids == null ? List.of() : ids.stream()
+                .filter(Objects::nonNull)
+                .distinct()
                 .collect(Collectors.toList());
+        if (unique.size() > MAX_BATCH_IDS) {
+            throw new RuntimeException("Too many ids, max " + MAX_BATCH_IDS);
+        }
+
+        Map<Long, ApartmentDTO> found = apartmentCache.getAll(unique, missing -> {
+            List<Long> pending = new ArrayList<>(missing);
+            replicaRouting.readingAs(pending.stream().map(ReplicaRouting::apartment).toList());
+            Map<Long, ApartmentDTO> loaded = new HashMap<>();
+            for (int from = 0; from < pending.size(); from += BATCH_CHUNK_SIZE) {
+                List<Long> chunk = pending.subList(from, Math.min(from + BATCH_CHUNK_SIZE, pending.size()));
+                for (Apartment apartment : apartmentRepository.findWithOwnerByIdIn(chunk)) {
+                    loaded.put(apartment.getId(), ApartmentDTO.fromEntity(apartment));
+                }
+            }
+            return loaded;
+        });
+
+        ApartmentBatchDTO dto = new ApartmentBatchDTO();
+        dto.setItems(found.values().stream()
+                .map(this::withStatus)
+                .collect(Collectors.toList()));
+        dto.setMissingIds(unique.stream()
+                .filter(id -> !found.containsKey(id))
+                .collect(Collectors.toList()));
+        return dto;
+    }
+
+    // Похожие квартиры из заранее посчитанных списков соседей; карточки — через кеш
+    @Transactional(readOnly = true)
+    public List<ApartmentDTO> getSimilarApartments(Long id, Integer limit) {
+        if (!apartmentSearchIndex.contains(id)) {
+            throw new RuntimeException("Apartment not found");
+        }
+        int size = limit != null ? Math.max(1, limit) : DEFAULT_SIMILAR_LIMIT;
+        return getApartmentsByIds(similarApartments.similar(id, size)).getItems();
+    }
+
+    // Валидаторы для условных GET: берутся из памяти, без обращения к БД
+    public ApartmentVersions.Version getApartmentVersion(Long id) {
+        return apartmentVersions.of(id);
+    }
+
+    public ApartmentVersions.Version getCatalogVersion() {
+        return apartmentVersions.catalog();
+    }
+
+    public Map<String, Object> getCacheStats() {
+        return apartmentCache.stats();
+    }
+
+    @Transactional(readOnly = true)
+    public CursorPage<ApartmentDTO> getApartmentsByOwner(Long ownerId, Long after, Integer limit) {
+        replicaRouting.readingAs(ReplicaRouting.user(ownerId));
+        if (!userRepository.existsById(ownerId)) {
+            throw new RuntimeException("Owner not found");
+        }
+        int size = CursorPage.limit(limit);
+        return CursorPage.of(
+                apartmentRepository.findCardsByOwner(ownerId, CursorPage.after(after), CursorPage.seek(size)),
+                size, ApartmentDTO::getId, this::withStatus);
     }
 
     @Transactional
     public ApartmentDTO updateApartmentStatus(Long id, Apartment.ApartmentStatus status, Integer availableRooms) {
         Apartment apartment = apartmentRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Apartment not found"));
-        apartment.setStatus(status);
+        apartment.setStatus(listingStatus(status));
         if (availableRooms != null) {
             apartment.setAvailableRooms(availableRooms);
         }
+        // Остаток номеров отеля на сегодня RoomInventory отправит по этому событию после коммита
         Apartment saved = apartmentRepository.save(apartment);
+        eventPublisher.publishEvent(new ApartmentChangedEvent(saved));
         
-        // Отправляем обновление информации об отеле через WebSocket
-        if (saved.getTotalRooms() != null && saved.getAvailableRooms() != null) {
-            notificationService.sendHotelInfoUpdate(id, saved.getAvailableRooms(), saved.getTotalRooms());
-        }
         notificationService.sendApartmentUpdate(id, "Статус квартиры обновлен: " + status);
         
-        return ApartmentDTO.fromEntity(saved);
+        return withStatus(ApartmentDTO.fromEntity(saved));
+    }
+
+    // Карточка со статусом с учётом текущей занятости; в БД и кеше — статус публикации
+    private ApartmentDTO withStatus(ApartmentDTO dto) {
+        return dto.withStatus(apartmentOccupancy.status(dto.getId(), dto.getStatus()));
+    }
+
+    private static Apartment.ApartmentStatus listingStatus(Apartment.ApartmentStatus status) {
+        if (status.isDerived()) {
+            throw new RuntimeException("Status " + status + " is derived from bookings and cannot be set");
+        }
+        return status;
     }
 
     @Transactional
@@ -0,0 +1,116 @@
+package com.booking.service;
+
+import com.booking.model.Apartment;
+import com.booking.repository.ApartmentRepository;
+import com.booking.repository.ApartmentVersion;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Валидаторы HTTP-кеша для квартир: время последнего изменения каждой квартиры
+// и версия каталога целиком. Всё в памяти, чтобы ответ 304 не ходил в БД.
+// Версия каталога — сумма времён изменения всех квартир: меняется при любом изменении,
+// даже если транзакции коммитятся не в порядке своих временных меток, и после рестарта
+// вычисляется заново в то же значение.
+// Статусы BOOKED/OCCUPIED вычисляются из броней и в строку квартиры не пишутся, поэтому
+// в ETag кроме сохранённого времени входит состояние занятости: у квартиры — её текущий статус,
+// у каталога — отпечаток сводок ApartmentOccupancy. И то и другое определяется данными БД
+// и датой, так что после рестарта совпадает, а смена дня меняет ETag без всяких событий.
+// Last-Modified отдаётся, только пока занятость не влияет на ответ: время смены статуса
+// из броней не сохраняется, и проверка по одной дате могла бы вернуть 304 со старым статусом.
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ApartmentVersions {
+
+    private final ApartmentRepository apartmentRepository;
+    private final ApartmentOccupancy apartmentOccupancy;
+
+    private final Map<Long, Long> modified = new HashMap<>();
+    private long checksum;
+    private long watermark;
+    private volatile Snapshot catalog = new Snapshot(0, 0, 0);
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void rebuild() {
+        List<ApartmentVersion> versions = apartmentRepository.findVersions();
+        modified.clear();
+        checksum = 0;
+        watermark = 0;
+        for (ApartmentVersion version : versions) {
+            put(version.getId(), micros(version.getLastModified()));
+        }
+        publishCatalog();
+        log.info("Apartment versions loaded: {} apartments", versions.size());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onApartmentChanged(ApartmentChangedEvent event) {
+        Apartment apartment = event.getApartment();
+        LocalDateTime lastModified = apartment.getLastStatusUpdate() != null
+                ? apartment.getLastStatusUpdate() : apartment.getCreatedAt();
+        update(apartment.getId(), micros(lastModified));
+    }
+
+    public synchronized void update(Long id, long micros) {
+        put(id, micros);
+        publishCatalog();
+    }
+
+    // null — квартира неизвестна, ответ строится обычным путём (в том числе 404)
+    public Version of(Long id) {
+        Long micros;
+        synchronized (this) {
+            micros = modified.get(id);
+        }
+        if (micros == null) {
+            return null;
+        }
+        Apartment.ApartmentStatus derived = apartmentOccupancy.status(id, Apartment.ApartmentStatus.AVAILABLE);
+        return new Version("\"a" + id + "-" + Long.toHexString(micros) + "-" + derived.ordinal() + "\"",
+                derived == Apartment.ApartmentStatus.AVAILABLE ? micros / 1000 : -1);
+    }
+
+    public Version catalog() {
+        Snapshot snapshot = catalog;
+        long occupancy = apartmentOccupancy.fingerprint();
+        return new Version("\"c" + snapshot.size + "-" + Long.toHexString(snapshot.checksum)
+                + "-" + Long.toHexString(occupancy) + "\"",
+                occupancy == 0 ? snapshot.watermark / 1000 : -1);
+    }
+
+    private void put(Long id, long micros) {
+        Long previous = modified.put(id, micros);
+        checksum += micros - (previous != null ? previous : 0);
+        watermark = Math.max(watermark, micros);
+    }
+
+    private void publishCatalog() {
+        catalog = new Snapshot(modified.size(), checksum, watermark);
+    }
+
+    private static long micros(LocalDateTime time) {
+        if (time == null) {
+            return 0;
+        }
+        Instant instant = time.atZone(ZoneId.systemDefault()).toInstant();
+        return instant.getEpochSecond() * 1_000_000 + instant.getNano() / 1000;
+    }
+
+    // etag — строгий валидатор в кавычках, lastModified — epoch millis или -1, если не отдаётся
+    public record Version(String etag, long lastModified) {
+    }
+
+    private record Snapshot(int size, long checksum, long watermark) {
+    }
+}
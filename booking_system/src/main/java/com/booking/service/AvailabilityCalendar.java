@@ -0,0 +1,208 @@
+package com.booking.service;
+
+import com.booking.repository.BookingPeriod;
+import com.booking.repository.BookingRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Календарь занятости: по одному биту на ночь для каждой квартиры на horizon-days вперёд.
+// Биты лежат в long[] (730 дней = 12 long = 96 байт), 100k квартир — около 15 МБ.
+// День отображается в слот кольца по epochDay % ёмкость, поэтому сдвиг окна не копирует массивы.
+// Даты за пределами окна берутся из AvailabilityIndex.
+// Из БД календарь строится только при старте. Ежедневный сдвиг окна не перечитывает брони:
+// он двигает origin, гасит слоты прошедших ночей и отмечает новые ночи в конце окна по AvailabilityIndex.
+// Каждая квартира при этом меняется атомарно через compute, как и в обработчике событий,
+// так что событие брони, пришедшее во время сдвига, не теряется.
+@Slf4j
+@Component
+public class AvailabilityCalendar {
+
+    private final BookingRepository bookingRepository;
+    private final AvailabilityIndex availabilityIndex;
+    private final Clock clock;
+    private final int horizonDays;
+    private final int words;
+    private final int capacity;
+
+    private volatile Map<Long, long[]> byApartment = new ConcurrentHashMap<>();
+    private volatile long origin;
+    // Квартиры, по которым пришли события, пока rebuild читал БД; null вне rebuild
+    private volatile Set<Long> changedDuringRebuild;
+
+    public AvailabilityCalendar(BookingRepository bookingRepository,
+                                AvailabilityIndex availabilityIndex,
+                                Clock clock,
+                                @Value("${booking.calendar.horizon-days:730}") int horizonDays) {
+        this.bookingRepository = bookingRepository;
+        this.availabilityIndex = availabilityIndex;
+        this.clock = clock;
+        this.horizonDays = horizonDays;
+        this.words = (horizonDays + 63) / 64;
+        this.capacity = words * 64;
+        this.origin = LocalDate.now(clock).toEpochDay();
+    }
+
+    // Построение из БД при старте. События, пришедшие во время чтения, могли попасть в старую карту,
+    // поэтому после замены такие квартиры пересобираются по AvailabilityIndex
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void rebuild() {
+        Set<Long> changed = ConcurrentHashMap.newKeySet();
+        changedDuringRebuild = changed;
+        long today = LocalDate.now(clock).toEpochDay();
+        List<BookingPeriod> periods = bookingRepository.findPeriods(AvailabilityIndex.activeStatuses(), LocalDate.ofEpochDay(today));
+
+        Map<Long, long[]> rebuilt = new ConcurrentHashMap<>();
+        for (BookingPeriod period : periods) {
+            long[] bits = rebuilt.computeIfAbsent(period.getApartmentId(), k -> new long[words]);
+            fill(bits, today, period.getCheckIn().toEpochDay(), period.getCheckOut().toEpochDay(), true);
+        }
+        origin = today;
+        byApartment = rebuilt;
+        changedDuringRebuild = null;
+        for (Long apartmentId : changed) {
+            rebuilt.compute(apartmentId, (id, current) -> {
+                long[] bits = new long[words];
+                for (long[] period : availabilityIndex.periods(apartmentId, today, today + horizonDays)) {
+                    fill(bits, today, period[0], period[1], true);
+                }
+                return isEmpty(bits) ? null : bits;
+            });
+        }
+        log.info("Availability calendar built: {} apartments, {} days ahead", rebuilt.size(), horizonDays);
+    }
+
+    // Сдвиг окна. Слоты вне окна всегда пустые, поэтому новым ночям в конце окна достаются чистые слоты,
+    // и отметить в них нужно только брони из AvailabilityIndex (он хранит их без ограничения горизонтом).
+    // origin меняется до обхода квартир: событие, обработанное после обхода своей квартиры, уже пишет в новое окно
+    @Scheduled(cron = "${booking.calendar.rollover-cron:0 5 0 * * *}")
+    public synchronized void rollover() {
+        long today = LocalDate.now(clock).toEpochDay();
+        long previous = origin;
+        if (today <= previous) {
+            return;
+        }
+        long expiredTo = Math.min(today, previous + horizonDays);
+        long addedFrom = Math.max(today, previous + horizonDays);
+        long addedTo = today + horizonDays;
+        origin = today;
+
+        Set<Long> apartmentIds = new HashSet<>(byApartment.keySet());
+        apartmentIds.addAll(availabilityIndex.apartmentsOccupied(addedFrom, addedTo));
+        for (Long apartmentId : apartmentIds) {
+            byApartment.compute(apartmentId, (id, current) -> {
+                long[] bits = current != null ? current.clone() : new long[words];
+                fill(bits, previous, previous, expiredTo, false);
+                for (long[] period : availabilityIndex.periods(apartmentId, addedFrom, addedTo)) {
+                    fill(bits, today, Math.max(addedFrom, period[0]), Math.min(addedTo, period[1]), true);
+                }
+                return isEmpty(bits) ? null : bits;
+            });
+        }
+        log.info("Availability calendar rolled over to {}: {} apartments", LocalDate.ofEpochDay(today), byApartment.size());
+    }
+
+    @Order(1)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookingChanged(BookingChangedEvent event) {
+        Set<Long> changed = changedDuringRebuild;
+        if (changed != null) {
+            changed.add(event.getApartmentId());
+        }
+        long from = event.getCheckIn().toEpochDay();
+        long to = event.getCheckOut().toEpochDay();
+        if (event.getStatus().blocksDates()) {
+            occupy(event.getApartmentId(), from, to);
+        } else {
+            release(event.getApartmentId(), from, to);
+        }
+    }
+
+    // Пачка (завершение броней): те же изменения по одному, ночи в прошлом пропускаются сразу
+    @Order(1)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookingsChanged(BookingBatchChangedEvent event) {
+        event.getChanges().forEach(this::onBookingChanged);
+    }
+
+    // origin читается внутри compute: сдвиг окна меняет его до того, как обходит квартиры
+    public void occupy(Long apartmentId, long from, long to) {
+        if (to <= origin) {
+            return;
+        }
+        byApartment.compute(apartmentId, (id, current) -> {
+            long[] bits = current != null ? current.clone() : new long[words];
+            fill(bits, origin, from, to, true);
+            return bits;
+        });
+    }
+
+    // Освобождаем ночи брони и заново отмечаем те, что заняты другими бронями
+    public void release(Long apartmentId, long from, long to) {
+        if (to <= origin) {
+            return;
+        }
+        byApartment.computeIfPresent(apartmentId, (id, current) -> {
+            long start = origin;
+            long[] bits = current.clone();
+            fill(bits, start, from, to, false);
+            for (long[] period : availabilityIndex.periods(apartmentId, from, to)) {
+                fill(bits, start, Math.max(from, period[0]), Math.min(to, period[1]), true);
+            }
+            return isEmpty(bits) ? null : bits;
+        });
+    }
+
+    public boolean isOccupied(Long apartmentId, LocalDate date) {
+        long day = date.toEpochDay();
+        long start = origin;
+        if (day < start || day >= start + horizonDays) {
+            return !availabilityIndex.isFree(apartmentId, date, date.plusDays(1));
+        }
+        long[] bits = byApartment.get(apartmentId);
+        if (bits == null) {
+            return false;
+        }
+        int slot = slot(day);
+        return (bits[slot >>> 6] & (1L << slot)) != 0;
+    }
+
+    private void fill(long[] bits, long windowStart, long from, long to, boolean occupied) {
+        long first = Math.max(from, windowStart);
+        long last = Math.min(to, windowStart + horizonDays);
+        for (long day = first; day < last; day++) {
+            int slot = slot(day);
+            if (occupied) {
+                bits[slot >>> 6] |= 1L << slot;
+            } else {
+                bits[slot >>> 6] &= ~(1L << slot);
+            }
+        }
+    }
+
+    private static boolean isEmpty(long[] bits) {
+        for (long word : bits) {
+            if (word != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int slot(long epochDay) {
+        return (int) Math.floorMod(epochDay, (long) capacity);
+    }
+}
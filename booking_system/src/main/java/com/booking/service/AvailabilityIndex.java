@@ -0,0 +1,220 @@
+package com.booking.service;
+
+import com.booking.model.Booking;
+import com.booking.repository.BookingPeriod;
+import com.booking.repository.BookingRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Занятость квартир по датам: для каждой квартиры — отсортированный массив интервалов
+// активных броней [checkIn, checkOut). Проверка "свободна ли с X по Y" — бинарный поиск, O(log n).
+// Массивы неизменяемые и заменяются целиком, поэтому чтение идёт без блокировок.
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class AvailabilityIndex {
+
+    private static final Intervals EMPTY = new Intervals(new long[0], new long[0], new long[0]);
+
+    private final BookingRepository bookingRepository;
+    private final Clock clock;
+
+    private final Map<Long, Intervals> byApartment = new ConcurrentHashMap<>();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        List<BookingPeriod> periods = bookingRepository.findPeriods(activeStatuses(), LocalDate.now(clock));
+
+        Map<Long, List<BookingPeriod>> grouped = new HashMap<>();
+        for (BookingPeriod period : periods) {
+            grouped.computeIfAbsent(period.getApartmentId(), k -> new ArrayList<>()).add(period);
+        }
+
+        byApartment.clear();
+        grouped.forEach((apartmentId, list) -> {
+            Intervals intervals = EMPTY;
+            for (BookingPeriod period : list) {
+                intervals = intervals.with(period.getId(), period.getCheckIn(), period.getCheckOut());
+            }
+            byApartment.put(apartmentId, intervals);
+        });
+        log.info("Availability index built: {} active bookings in {} apartments", periods.size(), grouped.size());
+    }
+
+    // Выполняется раньше подписчиков, которые читают актуальные интервалы (AvailabilityCalendar)
+    @Order(0)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookingChanged(BookingChangedEvent event) {
+        if (event.getStatus().blocksDates()) {
+            occupy(event.getApartmentId(), event.getBookingId(), event.getCheckIn(), event.getCheckOut());
+        } else {
+            release(event.getApartmentId(), event.getBookingId());
+        }
+    }
+
+    public void occupy(Long apartmentId, Long bookingId, LocalDate checkIn, LocalDate checkOut) {
+        long today = LocalDate.now(clock).toEpochDay();
+        byApartment.compute(apartmentId, (id, current) ->
+                (current != null ? current.without(Set.of(bookingId), today) : EMPTY).with(bookingId, checkIn, checkOut));
+    }
+
+    // Пачка: интервалы каждой квартиры пересобираются один раз
+    @Order(0)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookingsChanged(BookingBatchChangedEvent event) {
+        Map<Long, Set<Long>> released = new HashMap<>();
+        for (BookingChangedEvent change : event.getChanges()) {
+            if (change.getStatus().blocksDates()) {
+                occupy(change.getApartmentId(), change.getBookingId(), change.getCheckIn(), change.getCheckOut());
+            } else {
+                released.computeIfAbsent(change.getApartmentId(), id -> new HashSet<>()).add(change.getBookingId());
+            }
+        }
+        released.forEach(this::release);
+    }
+
+    public void release(Long apartmentId, Long bookingId) {
+        release(apartmentId, Set.of(bookingId));
+    }
+
+    public void release(Long apartmentId, Set<Long> bookingIds) {
+        long today = LocalDate.now(clock).toEpochDay();
+        byApartment.computeIfPresent(apartmentId, (id, current) -> {
+            Intervals updated = current.without(bookingIds, today);
+            return updated.size() == 0 ? null : updated;
+        });
+    }
+
+    // Свободна ли квартира на ночи [checkIn, checkOut)
+    public boolean isFree(Long apartmentId, LocalDate checkIn, LocalDate checkOut) {
+        Intervals intervals = byApartment.get(apartmentId);
+        return intervals == null || !intervals.overlaps(checkIn.toEpochDay(), checkOut.toEpochDay());
+    }
+
+    // Периоды активных броней квартиры, пересекающие [from, to), в эпоха-днях: {начало, конец}
+    public List<long[]> periods(Long apartmentId, long from, long to) {
+        Intervals intervals = byApartment.get(apartmentId);
+        List<long[]> result = new ArrayList<>();
+        if (intervals == null) {
+            return result;
+        }
+        for (int i = 0; i < intervals.size() && intervals.starts[i] < to; i++) {
+            if (intervals.ends[i] > from) {
+                result.add(new long[]{intervals.starts[i], intervals.ends[i]});
+            }
+        }
+        return result;
+    }
+
+    // Квартиры, у которых есть активная бронь на какую-нибудь из ночей [from, to)
+    public List<Long> apartmentsOccupied(long from, long to) {
+        List<Long> result = new ArrayList<>();
+        byApartment.forEach((apartmentId, intervals) -> {
+            if (intervals.overlaps(from, to)) {
+                result.add(apartmentId);
+            }
+        });
+        return result;
+    }
+
+    public static Set<Booking.BookingStatus> activeStatuses() {
+        Set<Booking.BookingStatus> statuses = EnumSet.noneOf(Booking.BookingStatus.class);
+        for (Booking.BookingStatus status : Booking.BookingStatus.values()) {
+            if (status.blocksDates()) {
+                statuses.add(status);
+            }
+        }
+        return statuses;
+    }
+
+    // Интервалы в эпоха-днях, отсортированы по началу; maxEnds[i] — максимум ends[0..i]
+    private static final class Intervals {
+        final long[] starts;
+        final long[] ends;
+        final long[] bookingIds;
+        final long[] maxEnds;
+
+        Intervals(long[] starts, long[] ends, long[] bookingIds) {
+            this.starts = starts;
+            this.ends = ends;
+            this.bookingIds = bookingIds;
+            this.maxEnds = new long[starts.length];
+            long max = Long.MIN_VALUE;
+            for (int i = 0; i < starts.length; i++) {
+                max = Math.max(max, ends[i]);
+                maxEnds[i] = max;
+            }
+        }
+
+        int size() {
+            return starts.length;
+        }
+
+        boolean overlaps(long from, long to) {
+            // Интервалы с началом < to — это префикс [0, k); пересечение есть, если среди них конец > from
+            int k = Arrays.binarySearch(starts, to);
+            if (k < 0) {
+                k = -k - 1;
+            } else {
+                while (k > 0 && starts[k - 1] == to) {
+                    k--;
+                }
+            }
+            return k > 0 && maxEnds[k - 1] > from;
+        }
+
+        Intervals with(Long bookingId, LocalDate checkIn, LocalDate checkOut) {
+            long start = checkIn.toEpochDay();
+            int n = starts.length;
+            int pos = 0;
+            while (pos < n && starts[pos] <= start) {
+                pos++;
+            }
+            long[] s = new long[n + 1];
+            long[] e = new long[n + 1];
+            long[] ids = new long[n + 1];
+            System.arraycopy(starts, 0, s, 0, pos);
+            System.arraycopy(ends, 0, e, 0, pos);
+            System.arraycopy(bookingIds, 0, ids, 0, pos);
+            s[pos] = start;
+            e[pos] = checkOut.toEpochDay();
+            ids[pos] = bookingId;
+            System.arraycopy(starts, pos, s, pos + 1, n - pos);
+            System.arraycopy(ends, pos, e, pos + 1, n - pos);
+            System.arraycopy(bookingIds, pos, ids, pos + 1, n - pos);
+            return new Intervals(s, e, ids);
+        }
+
+        // Без указанных броней и без интервалов, закончившихся до today
+        Intervals without(Set<Long> removed, long today) {
+            int n = starts.length;
+            long[] s = new long[n];
+            long[] e = new long[n];
+            long[] ids = new long[n];
+            int m = 0;
+            for (int i = 0; i < n; i++) {
+                if (ends[i] <= today || removed.contains(bookingIds[i])) {
+                    continue;
+                }
+                s[m] = starts[i];
+                e[m] = ends[i];
+                ids[m] = bookingIds[i];
+                m++;
+            }
+            if (m == n) {
+                return this;
+            }
+            return new Intervals(Arrays.copyOf(s, m), Arrays.copyOf(e, m), Arrays.copyOf(ids, m));
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.booking.service;
+
+import lombok.Value;
+
+import java.util.List;
+
+// Пачка изменений броней из одной транзакции (партиция BookingCompletion).
+// Подписчики обрабатывают её целиком: индекс каждой затронутой квартиры пересобирается один раз,
+// а не по событию на строку
+@Value
+public class BookingBatchChangedEvent {
+    List<BookingChangedEvent> changes;
+}
@@ -0,0 +1,17 @@
+package com.booking.service;
+
+import com.booking.model.Booking;
+import lombok.Value;
+
+import java.time.LocalDate;
+
+// Событие об изменении брони — на него подписываются in-memory индексы занятости
+@Value
+public class BookingChangedEvent {
+    Long bookingId;
+    Long clientId;
+    Long apartmentId;
+    LocalDate checkIn;
+    LocalDate checkOut;
+    Booking.BookingStatus status;
+}
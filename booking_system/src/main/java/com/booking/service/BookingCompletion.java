@@ -0,0 +1,169 @@
+package com.booking.service;
+
+import com.booking.model.Booking;
+import com.booking.model.Ticket;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.annotation.PreDestroy;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Завершение броней после выезда: CONFIRMED и CHECKED_IN с checkOut раньше сегодняшнего дня
+// переводятся в COMPLETED, статус квартир следует за ними через ApartmentOccupancy.
+// Диапазон id просроченных броней (индекс status, check_out) режется на партиции
+// по partition-size id; каждая партиция —
+// своя транзакция на пуле воркеров: строки блокируются одним SELECT FOR UPDATE, брони
+// обновляются одним UPDATE, тикеты уходят в outbox пачкой, индексы получают одно событие на партицию.
+// Номера в сетке не возвращаются: все ночи таких броней уже в прошлом.
+@Slf4j
+@Component
+public class BookingCompletion {
+
+    private static final String OVERDUE = "status IN ('CONFIRMED', 'CHECKED_IN') AND check_out < ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final BookingOutbox bookingOutbox;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Clock clock;
+    private final int partitionSize;
+    private final ExecutorService workers;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private volatile Map<String, Object> lastRun = Map.of();
+
+    public BookingCompletion(JdbcTemplate jdbcTemplate,
+                             TransactionTemplate transactionTemplate,
+                             BookingOutbox bookingOutbox,
+                             ApplicationEventPublisher eventPublisher,
+                             Clock clock,
+                             @Value("${booking.completion.partition-size:1000}") int partitionSize,
+                             @Value("${booking.completion.workers:4}") int workers) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.bookingOutbox = bookingOutbox;
+        this.eventPublisher = eventPublisher;
+        this.clock = clock;
+        this.partitionSize = partitionSize;
+        this.workers = Executors.newFixedThreadPool(workers);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+
+    @Scheduled(cron = "${booking.completion.cron:0 15 * * * *}")
+    public void sweep() {
+        if (!running.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            long started = System.currentTimeMillis();
+            LocalDate today = LocalDate.now(clock);
+            long[] range = jdbcTemplate.queryForObject(
+                    "SELECT MIN(id), MAX(id) FROM bookings WHERE " + OVERDUE,
+                    (rs, i) -> {
+                        long min = rs.getLong(1);
+                        return rs.wasNull() ? null : new long[]{min, rs.getLong(2)};
+                    },
+                    Date.valueOf(today));
+            if (range == null) {
+                return;
+            }
+
+            List<Future<Integer>> partitions = new ArrayList<>();
+            for (long from = range[0]; from <= range[1]; from += partitionSize) {
+                long to = Math.min(from + partitionSize - 1, range[1]);
+                long partitionFrom = from;
+                partitions.add(workers.submit(() -> completePartition(partitionFrom, to, today)));
+            }
+
+            long completed = 0;
+            int failed = 0;
+            for (Future<Integer> partition : partitions) {
+                try {
+                    completed += partition.get();
+                } catch (ExecutionException e) {
+                    failed++;
+                    log.warn("Booking completion partition failed, will retry on next run", e.getCause());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+
+            long millis = Math.max(1, System.currentTimeMillis() - started);
+            Map<String, Object> run = new LinkedHashMap<>();
+            run.put("startedAt", LocalDateTime.ofInstant(Instant.ofEpochMilli(started), clock.getZone()));
+            run.put("completed", completed);
+            run.put("partitions", partitions.size());
+            run.put("failedPartitions", failed);
+            run.put("millis", millis);
+            run.put("rowsPerSecond", completed * 1000 / millis);
+            lastRun = run;
+            log.info("Completed {} bookings in {} partitions ({} failed) in {} ms, {} rows/s",
+                    completed, partitions.size(), failed, millis, completed * 1000 / millis);
+        } finally {
+            running.set(false);
+        }
+    }
+
+    // Одна партиция [from, to] по id — одна транзакция; возвращает число завершённых броней
+    private int completePartition(long from, long to, LocalDate today) {
+        Integer completed = transactionTemplate.execute(tx -> {
+            Date cutoff = Date.valueOf(today);
+            List<Object[]> rows = jdbcTemplate.query(
+                    "SELECT id, apartment_id, client_id, check_in, check_out FROM bookings " +
+                    "WHERE id BETWEEN ? AND ? AND " + OVERDUE + " FOR UPDATE",
+                    (rs, i) -> new Object[]{rs.getLong(1), rs.getLong(2), rs.getLong(3),
+                            rs.getDate(4).toLocalDate(), rs.getDate(5).toLocalDate()},
+                    from, to, cutoff);
+            if (rows.isEmpty()) {
+                return 0;
+            }
+
+            Timestamp now = Timestamp.valueOf(LocalDateTime.now(clock));
+            jdbcTemplate.update("UPDATE bookings SET status = 'COMPLETED', updated_at = ? " +
+                    "WHERE id BETWEEN ? AND ? AND " + OVERDUE, now, from, to, cutoff);
+
+            List<BookingChangedEvent> changes = new ArrayList<>(rows.size());
+            for (Object[] row : rows) {
+                bookingOutbox.ticket((Long) row[2], (Long) row[0], Ticket.TicketType.STATUS_CHANGED,
+                        Map.of("status", "COMPLETED"));
+                changes.add(new BookingChangedEvent((Long) row[0], (Long) row[2], (Long) row[1],
+                        (LocalDate) row[3], (LocalDate) row[4], Booking.BookingStatus.COMPLETED));
+            }
+            eventPublisher.publishEvent(new BookingBatchChangedEvent(changes));
+            return rows.size();
+        });
+        return completed != null ? completed : 0;
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("running", running.get());
+        stats.put("partitionSize", partitionSize);
+        stats.put("lastRun", lastRun);
+        return stats;
+    }
+}
@@ -0,0 +1,171 @@
+package com.booking.service;
+
+import com.booking.repository.BookingExportRow;
+import com.booking.repository.BookingRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+// Потоковая выгрузка броней в CSV или NDJSON. Строки идут из курсора БД сразу
+// в выходной поток: в памяти одна порция fetchSize, сколько бы броней ни было.
+@Component
+@RequiredArgsConstructor
+public class BookingExport {
+
+    // Через столько строк отправляем накопленное клиенту
+    private static final int FLUSH_EVERY = 1000;
+    private static final String[] CSV_HEADER = {
+            "id", "apartmentId", "apartmentTitle", "apartmentCity", "clientId", "clientName", "clientEmail",
+            "checkIn", "checkOut", "guests", "totalAmount", "status", "paymentCompleted", "createdAt"
+    };
+
+    private final BookingRepository bookingRepository;
+    private final ObjectMapper objectMapper;
+
+    public enum Format {
+        CSV("text/csv", "csv"),
+        NDJSON("application/x-ndjson", "ndjson");
+
+        public final String contentType;
+        public final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public static Format of(String value) {
+            if (value == null) {
+                return CSV;
+            }
+            for (Format format : values()) {
+                if (format.extension.equalsIgnoreCase(value)) {
+                    return format;
+                }
+            }
+            throw new RuntimeException("Unsupported export format: " + value);
+        }
+    }
+
+    // from/to — даты заезда, [from, to); ownerId — только брони квартир владельца
+    @Transactional(readOnly = true)
+    public void write(Format format, LocalDate from, LocalDate to, Long ownerId, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+        try (Stream<BookingExportRow> rows = bookingRepository.streamForExport(from, to, ownerId)) {
+            if (format == Format.CSV) {
+                writeCsv(rows.iterator(), writer);
+            } else {
+                writeNdjson(rows.iterator(), writer);
+            }
+        }
+        writer.flush();
+    }
+
+    private void writeCsv(Iterator<BookingExportRow> rows, Writer writer) throws IOException {
+        writer.write(String.join(",", CSV_HEADER));
+        writer.write('\n');
+        long count = 0;
+        while (rows.hasNext()) {
+            BookingExportRow row = rows.next();
+            writer.write(String.valueOf(row.getId()));
+            writer.write(',');
+            writer.write(String.valueOf(row.getApartmentId()));
+            writer.write(',');
+            writer.write(csv(row.getApartmentTitle()));
+            writer.write(',');
+            writer.write(csv(row.getApartmentCity()));
+            writer.write(',');
+            writer.write(String.valueOf(row.getClientId()));
+            writer.write(',');
+            writer.write(csv(clientName(row)));
+            writer.write(',');
+            writer.write(csv(row.getClientEmail()));
+            writer.write(',');
+            writer.write(csv(row.getCheckIn()));
+            writer.write(',');
+            writer.write(csv(row.getCheckOut()));
+            writer.write(',');
+            writer.write(csv(row.getGuests()));
+            writer.write(',');
+            writer.write(csv(row.getTotalAmount() != null ? row.getTotalAmount().toPlainString() : null));
+            writer.write(',');
+            writer.write(csv(row.getStatus()));
+            writer.write(',');
+            writer.write(csv(row.getPaymentCompleted()));
+            writer.write(',');
+            writer.write(csv(row.getCreatedAt()));
+            writer.write('\n');
+            if (++count % FLUSH_EVERY == 0) {
+                writer.flush();
+            }
+        }
+    }
+
+    private void writeNdjson(Iterator<BookingExportRow> rows, Writer writer) throws IOException {
+        JsonGenerator json = objectMapper.getFactory().createGenerator(writer);
+        // Генератор не должен закрывать поток ответа и вставлять пробелы между объектами
+        json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        json.setRootValueSeparator(null);
+        long count = 0;
+        while (rows.hasNext()) {
+            BookingExportRow row = rows.next();
+            json.writeStartObject();
+            json.writeNumberField("id", row.getId());
+            json.writeNumberField("apartmentId", row.getApartmentId());
+            json.writeStringField("apartmentTitle", row.getApartmentTitle());
+            json.writeStringField("apartmentCity", row.getApartmentCity());
+            json.writeNumberField("clientId", row.getClientId());
+            json.writeStringField("clientName", clientName(row));
+            json.writeStringField("clientEmail", row.getClientEmail());
+            json.writeStringField("checkIn", text(row.getCheckIn()));
+            json.writeStringField("checkOut", text(row.getCheckOut()));
+            if (row.getGuests() != null) {
+                json.writeNumberField("guests", row.getGuests());
+            } else {
+                json.writeNullField("guests");
+            }
+            json.writeNumberField("totalAmount", row.getTotalAmount());
+            json.writeStringField("status", text(row.getStatus()));
+            json.writeBooleanField("paymentCompleted", Boolean.TRUE.equals(row.getPaymentCompleted()));
+            json.writeStringField("createdAt", text(row.getCreatedAt()));
+            json.writeEndObject();
+            json.writeRaw('\n');
+            if (++count % FLUSH_EVERY == 0) {
+                json.flush();
+            }
+        }
+        json.flush();
+    }
+
+    private static String clientName(BookingExportRow row) {
+        return row.getClientFirstName() + " " + row.getClientLastName();
+    }
+
+    private static String text(Object value) {
+        return value != null ? value.toString() : null;
+    }
+
+    // Поле CSV по RFC 4180: в кавычки, если есть запятая, кавычка или перевод строки
+    private static String csv(Object value) {
+        if (value == null) {
+            return "";
+        }
+        String text = value.toString();
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+            return text;
+        }
+        return '"' + text.replace("\"", "\"\"") + '"';
+    }
+}
@@ -0,0 +1,86 @@
+package com.booking.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+// Полосатые блокировки по квартирам: брони одной квартиры выполняются по очереди,
+// брони разных квартир (почти всегда разные полосы) — параллельно.
+// Блокировка берётся до начала транзакции и отпускается после коммита,
+// поэтому следующая бронь той же квартиры уже видит предыдущую в БД.
+@Component
+public class BookingLocks {
+
+    private final ReentrantLock[] stripes;
+    private final long timeoutMillis;
+
+    public BookingLocks(@Value("${booking.admission.stripes:256}") int stripes,
+                        @Value("${booking.admission.lock-timeout-ms:5000}") long timeoutMillis) {
+        // Степень двойки — номер полосы считается маской
+        int size = Integer.highestOneBit(Math.max(1, stripes - 1)) << 1;
+        this.stripes = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            this.stripes[i] = new ReentrantLock();
+        }
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    public <T> T withApartment(Long apartmentId, Supplier<T> action) {
+        ReentrantLock lock = stripe(apartmentId);
+        acquire(lock);
+        try {
+            return action.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Несколько квартир сразу: полосы берутся по возрастанию номера, чтобы не было взаимных блокировок
+    public <T> T withApartments(Collection<Long> apartmentIds, Supplier<T> action) {
+        int[] indexes = apartmentIds.stream()
+                .mapToInt(this::stripeIndex)
+                .distinct()
+                .sorted()
+                .toArray();
+        int locked = 0;
+        try {
+            for (int index : indexes) {
+                acquire(stripes[index]);
+                locked++;
+            }
+            return action.get();
+        } finally {
+            for (int i = locked - 1; i >= 0; i--) {
+                stripes[indexes[i]].unlock();
+            }
+        }
+    }
+
+    private ReentrantLock stripe(Long apartmentId) {
+        return stripes[stripeIndex(apartmentId)];
+    }
+
+    private int stripeIndex(Long apartmentId) {
+        // Без id квартиры бронь дальше всё равно не пройдёт — не падаем на распаковке null
+        if (apartmentId == null) {
+            throw new RuntimeException("Apartment not found");
+        }
+        int hash = Long.hashCode(apartmentId);
+        return (hash ^ (hash >>> 16)) & (stripes.length - 1);
+    }
+
+    private void acquire(ReentrantLock lock) {
+        try {
+            if (!lock.tryLock(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new RuntimeException("Apartment is busy, please try again");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for apartment lock");
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package com.booking.service;
+
+import com.booking.model.Alert;
+import com.booking.model.Booking;
+import com.booking.model.OutboxEvent;
+import com.booking.model.Ticket;
+import com.booking.repository.AlertRepository;
+import com.booking.repository.BookingRepository;
+import com.booking.repository.OutboxEventRepository;
+import com.booking.repository.TicketRepository;
+import com.booking.repository.UserRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Outbox тикетов и алертов брони. Переходы статусов только добавляют короткую запись
+// в booking_outbox в своей транзакции; фоновый писатель переносит записи пачками
+// в tickets/alerts и удаляет их. Доставка «хотя бы один раз»: если перенос упал,
+// пачка повторится, а уникальный outbox_id в tickets/alerts не даст записать её дважды.
+@Slf4j
+@Component
+public class BookingOutbox {
+
+    private final OutboxEventRepository outboxRepository;
+    private final TicketRepository ticketRepository;
+    private final AlertRepository alertRepository;
+    private final UserRepository userRepository;
+    private final BookingRepository bookingRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final TimelineLog timelineLog;
+    private final int batchSize;
+
+    private final AtomicLong drained = new AtomicLong();
+    private final AtomicLong duplicates = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private volatile int lastBatchSize;
+    private volatile long lastBatchLagMillis;
+
+    public BookingOutbox(OutboxEventRepository outboxRepository,
+                         TicketRepository ticketRepository,
+                         AlertRepository alertRepository,
+                         UserRepository userRepository,
+                         BookingRepository bookingRepository,
+                         TransactionTemplate transactionTemplate,
+                         ObjectMapper objectMapper,
+                         TimelineLog timelineLog,
+                         @Value("${booking.outbox.batch-size:500}") int batchSize) {
+        this.outboxRepository = outboxRepository;
+        this.ticketRepository = ticketRepository;
+        this.alertRepository = alertRepository;
+        this.userRepository = userRepository;
+        this.bookingRepository = bookingRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.objectMapper = objectMapper;
+        this.timelineLog = timelineLog;
+        this.batchSize = batchSize;
+    }
+
+    // Тикет истории брони; data — поля dataJson
+    public void ticket(Booking booking, Ticket.TicketType type, Map<String, ?> data) {
+        ticket(booking.getClient().getId(), booking.getId(), type, data);
+    }
+
+    // Для массовых операций, которые не загружают брони
+    public void ticket(Long userId, Long bookingId, Ticket.TicketType type, Map<String, ?> data) {
+        append(OutboxEvent.Kind.TICKET, userId, bookingId, type.name(), data);
+    }
+
+    public void alert(Booking booking, Alert.AlertType type, String message, boolean accepted) {
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("message", message);
+        data.put("accepted", accepted);
+        append(OutboxEvent.Kind.ALERT, booking.getClient().getId(), booking.getId(), type.name(), data);
+    }
+
+    private void append(OutboxEvent.Kind kind, Long userId, Long bookingId, String type, Map<String, ?> data) {
+        outboxRepository.save(OutboxEvent.builder()
+                .kind(kind)
+                .userId(userId)
+                .bookingId(bookingId)
+                .type(type)
+                .payload(toJson(data))
+                .build());
+    }
+
+    // Переносит outbox пачками, пока очередь не опустеет.
+    // Пока лента не догнала tickets, новые тикеты не пишем, чтобы не нарушить порядок id в ней.
+    @Scheduled(fixedDelayString = "${booking.outbox.poll-ms:500}")
+    public void drain() {
+        if (!timelineLog.ensureCaughtUp()) {
+            return;
+        }
+        int count;
+        do {
+            try {
+                count = transactionTemplate.execute(tx -> drainBatch());
+            } catch (RuntimeException e) {
+                failures.incrementAndGet();
+                log.warn("Outbox batch failed, retrying on next poll", e);
+                return;
+            }
+        } while (count == batchSize);
+    }
+
+    private int drainBatch() {
+        List<OutboxEvent> events = outboxRepository.findAllByOrderByIdAsc(PageRequest.of(0, batchSize));
+        if (events.isEmpty()) {
+            return 0;
+        }
+        List<Long> ids = events.stream().map(OutboxEvent::getId).toList();
+        Set<Long> written = new HashSet<>(ticketRepository.findOutboxIdsIn(ids));
+        written.addAll(alertRepository.findOutboxIdsIn(ids));
+
+        List<Ticket> tickets = new ArrayList<>();
+        List<Alert> alerts = new ArrayList<>();
+        for (OutboxEvent event : events) {
+            if (written.contains(event.getId())) {
+                duplicates.incrementAndGet();
+                continue;
+            }
+            if (event.getKind() == OutboxEvent.Kind.TICKET) {
+                tickets.add(toTicket(event));
+            } else {
+                alerts.add(toAlert(event));
+            }
+        }
+        ticketRepository.saveAll(tickets);
+        alertRepository.saveAll(alerts);
+        if (!tickets.isEmpty()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    timelineLog.append(tickets);
+                }
+            });
+        }
+        outboxRepository.deleteAllInBatch(events);
+
+        drained.addAndGet(tickets.size() + alerts.size());
+        batches.incrementAndGet();
+        lastBatchSize = events.size();
+        lastBatchLagMillis = lagMillis(events.get(0).getCreatedAt());
+        return events.size();
+    }
+
+    private Ticket toTicket(OutboxEvent event) {
+        return Ticket.builder()
+                .user(userRepository.getReferenceById(event.getUserId()))
+                .booking(bookingRepository.getReferenceById(event.getBookingId()))
+                .type(Ticket.TicketType.valueOf(event.getType()))
+                .dataJson(event.getPayload())
+                .createdAt(event.getCreatedAt())
+                .outboxId(event.getId())
+                .build();
+    }
+
+    private Alert toAlert(OutboxEvent event) {
+        JsonNode data = fromJson(event.getPayload());
+        boolean accepted = data.path("accepted").asBoolean(false);
+        return Alert.builder()
+                .user(userRepository.getReferenceById(event.getUserId()))
+                .booking(bookingRepository.getReferenceById(event.getBookingId()))
+                .type(Alert.AlertType.valueOf(event.getType()))
+                .message(data.path("message").asText(null))
+                .accepted(accepted)
+                .acceptedAt(accepted ? event.getCreatedAt() : null)
+                .createdAt(event.getCreatedAt())
+                .outboxId(event.getId())
+                .build();
+    }
+
+    // Отставание — возраст самой старой непереписанной записи
+    public Map<String, Object> stats() {
+        Optional<OutboxEvent> oldest = outboxRepository.findFirstByOrderByIdAsc();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("pending", outboxRepository.count());
+        stats.put("lagMillis", oldest.map(event -> lagMillis(event.getCreatedAt())).orElse(0L));
+        stats.put("batchSize", batchSize);
+        stats.put("lastBatchSize", lastBatchSize);
+        stats.put("lastBatchLagMillis", lastBatchLagMillis);
+        stats.put("batches", batches.get());
+        stats.put("drained", drained.get());
+        stats.put("duplicates", duplicates.get());
+        stats.put("failures", failures.get());
+        return stats;
+    }
+
+    private static long lagMillis(LocalDateTime createdAt) {
+        return Math.max(0, Duration.between(createdAt, LocalDateTime.now()).toMillis());
+    }
+
+    private String toJson(Map<String, ?> data) {
+        try {
+            return objectMapper.writeValueAsString(data);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Failed to serialize outbox event", e);
+        }
+    }
+
+    private JsonNode fromJson(String payload) {
+        try {
+            return objectMapper.readTree(payload);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Malformed outbox event", e);
+        }
+    }
+}
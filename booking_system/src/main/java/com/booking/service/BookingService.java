@@ -2,17 +2,32 @@ package com.booking.service;
 
 import com.booking.dto.BookingDTO;
 import com.booking.dto.BookingRequestDTO;
+import com.booking.dto.CursorPage;
+import com.booking.dto.GroupBookingRequestDTO;
+import com.booking.dto.GroupBookingResultDTO;
+import com.booking.dto.TimelineEventDTO;
 import com.booking.model.*;
 import com.booking.model.Booking.BookingStatus;
 import com.booking.repository.*;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionStatus;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Instant;
 import java.time.LocalDate;
-import java.time.temporal.ChronoUnit;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
@@ -23,12 +38,42 @@ public class BookingService {
     private final ApartmentRepository apartmentRepository;
     private final UserRepository userRepository;
     private final PaymentRepository paymentRepository;
-    private final AlertRepository alertRepository;
-    private final TicketRepository ticketRepository;
+    private final BookingOutbox bookingOutbox;
+    private final TimelineLog timelineLog;
+    private final IdempotencyStore idempotencyStore;
+    private final BookingCompletion bookingCompletion;
+    private final ApplicationEventPublisher eventPublisher;
+    private final RoomInventory roomInventory;
+    private final PriceCalendar priceCalendar;
+    private final PaymentLedger paymentLedger;
+    private final ReplicaRouting replicaRouting;
+    private final BookingLocks bookingLocks;
+    private final TransactionTemplate transactionTemplate;
+    private final HoldTimer holdTimer;
+    private final Clock clock;
+
+    // Больше позиций в одной группе не принимаем: все их квартиры блокируются на время транзакции
+    private static final int MAX_GROUP_ITEMS = 100;
+
+    // Создание брони с ключом идемпотентности: повтор с тем же ключом вернёт ту же бронь
+    public BookingDTO createBooking(BookingRequestDTO request, Long clientId, String idempotencyKey) {
+        return idempotencyStore.execute("booking:" + clientId, idempotencyKey, request,
+                () -> createBooking(request, clientId));
+    }
 
-    // Создание брони (новый метод с DTO)
-    @Transactional
+    // Создание брони (новый метод с DTO).
+    // Транзакция открывается под блокировкой квартиры и коммитится до её снятия.
     public BookingDTO createBooking(BookingRequestDTO request, Long clientId) {
+        LocalDate checkIn = request.getCheckInDate();
+        LocalDate checkOut = request.getCheckOutDate();
+        if (checkIn == null || checkOut == null || !checkOut.isAfter(checkIn)) {
+            throw new RuntimeException("checkOut must be after checkIn");
+        }
+        return bookingLocks.withApartment(request.getApartmentId(),
+                () -> transactionTemplate.execute(tx -> createConfirmedBooking(request, clientId)));
+    }
+
+    private BookingDTO createConfirmedBooking(BookingRequestDTO request, Long clientId) {
         Booking booking = createBookingInternal(
             request.getApartmentId(),
             clientId,
@@ -39,39 +84,200 @@ public class BookingService {
         booking.setGuests(request.getGuests());
         booking.setStatus(BookingStatus.CONFIRMED);
         bookingRepository.save(booking);
+        publishBookingChanged(booking);
 
-        // Автоматически создаём оплаченный платёж с комиссией 10%
-        BigDecimal totalAmount = booking.getTotalAmount();
-        BigDecimal platformFee = totalAmount.multiply(BigDecimal.valueOf(0.10)); // 10% сайту
-        BigDecimal ownerAmount = totalAmount.subtract(platformFee); // 90% владельцу
+        createPaidPayment(booking);
 
-        Payment payment = Payment.builder()
-                .booking(booking)
-                .amount(totalAmount)
-                .platformFee(platformFee)
-                .ownerAmount(ownerAmount)
-                .status(Payment.PaymentStatus.PAID)
-                .paidAt(java.time.LocalDateTime.now())
-                .paymentMethod(com.booking.model.PaymentMethod.CREDIT_CARD)
-                .build();
-        paymentRepository.save(payment);
+        return BookingDTO.fromEntity(booking);
+    }
+
+    // Удержание дат на время оплаты: бронь в статусе HOLD до holdExpiresAt.
+    // Оплата — confirmBooking; без неё удержание истекает и номера возвращаются в сетку.
+    public BookingDTO holdBooking(BookingRequestDTO request, Long clientId) {
+        LocalDate checkIn = request.getCheckInDate();
+        LocalDate checkOut = request.getCheckOutDate();
+        if (checkIn == null || checkOut == null || !checkOut.isAfter(checkIn)) {
+            throw new RuntimeException("checkOut must be after checkIn");
+        }
+        return bookingLocks.withApartment(request.getApartmentId(),
+                () -> transactionTemplate.execute(tx -> createHold(request, clientId)));
+    }
 
+    private BookingDTO createHold(BookingRequestDTO request, Long clientId) {
+        Booking booking = createBookingInternal(
+            request.getApartmentId(),
+            clientId,
+            request.getCheckInDate(),
+            request.getCheckOutDate(),
+            false
+        );
+        Instant expiresAt = holdTimer.nextExpiry();
+        booking.setGuests(request.getGuests());
+        booking.setStatus(BookingStatus.HOLD);
+        booking.setHoldExpiresAt(LocalDateTime.ofInstant(expiresAt, clock.getZone()));
+        bookingRepository.save(booking);
+        publishBookingChanged(booking);
+
+        // При откате транзакции таймер сработает вхолостую: брони в статусе HOLD не будет
+        holdTimer.schedule(booking.getId(), expiresAt);
         return BookingDTO.fromEntity(booking);
     }
 
-    // Создание брони (внутренний метод)
+    // Групповая бронь: все позиции бронируются одной транзакцией или не бронируется ни одна.
+    // Блокировки всех квартир группы берутся разом, затем номера списываются по каждой позиции;
+    // если хоть одна позиция не прошла, транзакция откатывается и номера возвращаются в сетку.
+    public GroupBookingResultDTO createGroupBooking(GroupBookingRequestDTO request, Long clientId) {
+        List<BookingRequestDTO> items = request.getItems();
+        if (items == null || items.isEmpty()) {
+            throw new RuntimeException("Group booking has no items");
+        }
+        if (items.size() > MAX_GROUP_ITEMS) {
+            throw new RuntimeException("Group booking is limited to " + MAX_GROUP_ITEMS + " items");
+        }
+        Set<Long> apartmentIds = items.stream()
+                .map(BookingRequestDTO::getApartmentId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        return bookingLocks.withApartments(apartmentIds,
+                () -> transactionTemplate.execute(tx -> createGroup(items, apartmentIds, clientId, tx)));
+    }
+
+    private GroupBookingResultDTO createGroup(List<BookingRequestDTO> items, Set<Long> apartmentIds,
+                                              Long clientId, TransactionStatus tx) {
+        User client = userRepository.findById(clientId)
+                .orElseThrow(() -> new RuntimeException("Client not found"));
+        Map<Long, Apartment> apartments = new HashMap<>();
+        for (Apartment apartment : apartmentRepository.findAllById(apartmentIds)) {
+            apartments.put(apartment.getId(), apartment);
+        }
+
+        List<GroupBookingResultDTO.Item> results = new ArrayList<>();
+        List<Booking> bookings = new ArrayList<>();
+        boolean rejected = false;
+        for (int i = 0; i < items.size(); i++) {
+            BookingRequestDTO item = items.get(i);
+            GroupBookingResultDTO.Item result = new GroupBookingResultDTO.Item();
+            result.setIndex(i);
+            result.setApartmentId(item.getApartmentId());
+            results.add(result);
+
+            String error = reserveGroupItem(item, apartments.get(item.getApartmentId()));
+            if (error != null) {
+                result.setStatus(GroupBookingResultDTO.ItemStatus.REJECTED);
+                result.setError(error);
+                rejected = true;
+                continue;
+            }
+            Apartment apartment = apartments.get(item.getApartmentId());
+            bookings.add(Booking.builder()
+                    .apartment(apartment)
+                    .client(client)
+                    .checkIn(item.getCheckInDate())
+                    .checkOut(item.getCheckOutDate())
+                    .guests(item.getGuests())
+                    .totalAmount(priceCalendar.total(apartment, item.getCheckInDate(), item.getCheckOutDate()))
+                    .status(BookingStatus.CONFIRMED)
+                    .build());
+        }
+
+        GroupBookingResultDTO response = new GroupBookingResultDTO();
+        response.setItems(results);
+        if (rejected) {
+            tx.setRollbackOnly();
+            for (GroupBookingResultDTO.Item result : results) {
+                if (result.getStatus() == null) {
+                    result.setStatus(GroupBookingResultDTO.ItemStatus.SKIPPED);
+                }
+            }
+            response.setSuccess(false);
+            return response;
+        }
+
+        // Записи группы сохраняются пачками
+        bookingRepository.saveAll(bookings);
+        List<Payment> payments = new ArrayList<>();
+        for (Booking booking : bookings) {
+            payments.add(paidPayment(booking));
+            bookingOutbox.ticket(booking, Ticket.TicketType.BOOKING_CREATED,
+                    Map.of("total", String.valueOf(booking.getTotalAmount())));
+        }
+        paymentRepository.saveAll(payments);
+        paymentLedger.record(payments);
+
+        for (int i = 0; i < bookings.size(); i++) {
+            publishBookingChanged(bookings.get(i));
+            results.get(i).setStatus(GroupBookingResultDTO.ItemStatus.BOOKED);
+            results.get(i).setBooking(BookingDTO.fromEntity(bookings.get(i)));
+        }
+        response.setSuccess(true);
+        return response;
+    }
+
+    // Проверка и списание номеров для одной позиции группы; null — позиция принята
+    private String reserveGroupItem(BookingRequestDTO item, Apartment apartment) {
+        if (apartment == null) {
+            return "Apartment not found";
+        }
+        LocalDate checkIn = item.getCheckInDate();
+        LocalDate checkOut = item.getCheckOutDate();
+        if (checkIn == null || checkOut == null || !checkOut.isAfter(checkIn)) {
+            return "checkOut must be after checkIn";
+        }
+        try {
+            return roomInventory.reserve(apartment, checkIn, checkOut) ? null : "No rooms left for these dates";
+        } catch (RuntimeException e) {
+            return e.getMessage();
+        }
+    }
+
+    // Истечение удержаний пачкой в одной транзакции; уже оплаченные и отменённые пропускаются.
+    // Номера возвращаются в сетку под блокировками квартир пачки, как и списываются.
+    public int expireHolds(Collection<Long> bookingIds) {
+        List<Long> apartmentIds = bookingRepository.findApartmentIdsByIdIn(bookingIds);
+        Integer expired = bookingLocks.withApartments(apartmentIds,
+                () -> transactionTemplate.execute(tx -> expire(bookingIds)));
+        return expired != null ? expired : 0;
+    }
+
+    private int expire(Collection<Long> bookingIds) {
+        LocalDateTime now = LocalDateTime.now(clock);
+        int expired = 0;
+        for (Booking booking : bookingRepository.findAllById(bookingIds)) {
+            if (booking.getStatus() != BookingStatus.HOLD
+                    || (booking.getHoldExpiresAt() != null && booking.getHoldExpiresAt().isAfter(now))) {
+                continue;
+            }
+            booking.setStatus(BookingStatus.EXPIRED);
+            updateInventory(booking, BookingStatus.HOLD);
+            publishBookingChanged(booking);
+
+            bookingOutbox.ticket(booking, Ticket.TicketType.STATUS_CHANGED, Map.of("status", "EXPIRED"));
+            expired++;
+        }
+        return expired;
+    }
+
+    // Создание брони (внутренний метод).
+    // Вызывать под bookingLocks.withApartment(apartmentId, ...): запись ночей в room_nights
+    // для одной квартиры должна идти по очереди.
     @Transactional
     public Booking createBookingInternal(Long apartmentId, Long clientId, LocalDate checkIn, LocalDate checkOut, boolean nonRefundable) {
 
         Apartment apartment = apartmentRepository.findById(apartmentId)
                 .orElseThrow(() -> new RuntimeException("Apartment not found"));
 
+        if (checkIn == null || checkOut == null || !checkOut.isAfter(checkIn)) {
+            throw new RuntimeException("checkOut must be after checkIn");
+        }
+        if (!roomInventory.reserve(apartment, checkIn, checkOut)) {
+            throw new RuntimeException("No rooms left for these dates");
+        }
+
         User client = userRepository.findById(clientId)
                 .orElseThrow(() -> new RuntimeException("Client not found"));
 
-        // Расчет суммы
-        long nights = ChronoUnit.DAYS.between(checkIn, checkOut);
-        BigDecimal totalAmount = apartment.getPricePerNight().multiply(BigDecimal.valueOf(nights));
+        // Расчет суммы по ценам ночей с учётом правил цены
+        BigDecimal totalAmount = priceCalendar.total(apartment, checkIn, checkOut);
 
         Booking booking = Booking.builder()
                 .apartment(apartment)
@@ -84,206 +290,274 @@ public class BookingService {
                 .build();
 
         bookingRepository.save(booking);
-
-        // Статус квартиры
-        apartment.setStatus(Apartment.ApartmentStatus.BOOKED);
-        apartment.setLastStatusUpdate(java.time.LocalDateTime.now());
-        apartmentRepository.save(apartment);
+        publishBookingChanged(booking);
 
         // Создать алерт, если тариф невозвратный
         if (nonRefundable) {
-            Alert alert = Alert.builder()
-                    .user(client)
-                    .booking(booking)
-                    .type(Alert.AlertType.NON_REFUNDABLE_WARNING)
-                    .message("Обращаем внимание: сумма по этому тарифу не возвращается.")
-                    .accepted(true) // клиент подтверждает сразу
-                    .acceptedAt(java.time.LocalDateTime.now())
-                    .build();
-
-            alertRepository.save(alert);
+            bookingOutbox.alert(booking, Alert.AlertType.NON_REFUNDABLE_WARNING,
+                    "Обращаем внимание: сумма по этому тарифу не возвращается.",
+                    true); // клиент подтверждает сразу
         }
 
         // Тикет — бронирование создано
-        Ticket ticket = Ticket.builder()
-                .user(client)
-                .booking(booking)
-                .type(Ticket.TicketType.BOOKING_CREATED)
-                .dataJson("{\"total\": \"" + totalAmount + "\"}")
-                .build();
-
-        ticketRepository.save(ticket);
+        bookingOutbox.ticket(booking, Ticket.TicketType.BOOKING_CREATED, Map.of("total", String.valueOf(totalAmount)));
 
         return booking;
     }
 
-    // Check-out
-    @Transactional
+    // Check-out. Возврат номеров, как и их списание, — под блокировкой квартиры
     public BookingDTO checkOut(Long bookingId) {
+        return bookingLocks.withApartment(apartmentIdOf(bookingId),
+                () -> transactionTemplate.execute(tx -> checkOutNow(bookingId)));
+    }
+
+    private BookingDTO checkOutNow(Long bookingId) {
         Booking booking = bookingRepository.findById(bookingId)
                 .orElseThrow(() -> new RuntimeException("Booking not found"));
 
+        BookingStatus previous = booking.getStatus();
         booking.setStatus(BookingStatus.COMPLETED);
-        booking.setCheckOutTime(java.time.LocalDateTime.now());
+        updateInventory(booking, previous);
+        booking.setCheckOutTime(LocalDateTime.now(clock));
         bookingRepository.save(booking);
+        publishBookingChanged(booking);
 
-        Apartment apartment = booking.getApartment();
-        apartment.setStatus(Apartment.ApartmentStatus.AVAILABLE);
-        apartment.setLastStatusUpdate(java.time.LocalDateTime.now());
-        apartmentRepository.save(apartment);
-
-        Ticket ticket = Ticket.builder()
-                .user(booking.getClient())
-                .booking(booking)
-                .type(Ticket.TicketType.STATUS_CHANGED)
-                .dataJson("{\"status\": \"COMPLETED\"}")
-                .build();
-        ticketRepository.save(ticket);
+        bookingOutbox.ticket(booking, Ticket.TicketType.STATUS_CHANGED, Map.of("status", "COMPLETED"));
 
         return BookingDTO.fromEntity(booking);
     }
 
-    // Отмена брони
-    @Transactional
+    // Отмена брони, под блокировкой квартиры
     public BookingDTO cancelBooking(Long bookingId, String reason) {
+        return bookingLocks.withApartment(apartmentIdOf(bookingId),
+                () -> transactionTemplate.execute(tx -> cancel(bookingId, reason)));
+    }
+
+    private BookingDTO cancel(Long bookingId, String reason) {
         Booking booking = bookingRepository.findById(bookingId)
                 .orElseThrow(() -> new RuntimeException("Booking not found"));
 
+        // Отменяется только бронь до заселения: без этого отмена завершённой брони
+        // снова вернула бы номера и деньги
+        BookingStatus previous = booking.getStatus();
+        if (!previous.isCancellable()) {
+            throw new RuntimeException("Booking in status " + previous + " cannot be cancelled");
+        }
         booking.setStatus(BookingStatus.CANCELLED);
+        updateInventory(booking, previous);
         bookingRepository.save(booking);
+        publishBookingChanged(booking);
 
-        Apartment apartment = booking.getApartment();
-        apartment.setStatus(Apartment.ApartmentStatus.AVAILABLE);
-        apartment.setLastStatusUpdate(java.time.LocalDateTime.now());
-        apartmentRepository.save(apartment);
+        // Возвратный тариф: оплата возвращается, в книге платежей — сторно её проводок
+        if (!booking.isNonRefundable()) {
+            paymentRepository.findByBookingId(bookingId)
+                    .filter(payment -> payment.getStatus() == Payment.PaymentStatus.PAID)
+                    .ifPresent(this::refund);
+        }
 
-        Ticket ticket = Ticket.builder()
-                .user(booking.getClient())
-                .booking(booking)
-                .type(Ticket.TicketType.STATUS_CHANGED)
-                .dataJson("{\"status\": \"CANCELLED\", \"reason\": \"" + (reason != null ? reason : "No reason") + "\"}")
-                .build();
-        ticketRepository.save(ticket);
+        bookingOutbox.ticket(booking, Ticket.TicketType.STATUS_CHANGED,
+                Map.of("status", "CANCELLED", "reason", reason != null ? reason : "No reason"));
 
         return BookingDTO.fromEntity(booking);
     }
 
-    // Завершение проживания
-    @Transactional
+    // Завершение проживания, под блокировкой квартиры
     public void completeBooking(Long bookingId) {
+        bookingLocks.withApartment(apartmentIdOf(bookingId), () -> transactionTemplate.execute(tx -> {
+            complete(bookingId);
+            return null;
+        }));
+    }
 
+    private void complete(Long bookingId) {
         Booking booking = bookingRepository.findById(bookingId)
                 .orElseThrow(() -> new RuntimeException("Booking not found"));
 
+        BookingStatus previous = booking.getStatus();
         booking.setStatus(BookingStatus.COMPLETED);
+        updateInventory(booking, previous);
         bookingRepository.save(booking);
+        publishBookingChanged(booking);
 
-        Apartment apartment = booking.getApartment();
-        apartment.setStatus(Apartment.ApartmentStatus.AVAILABLE);
-        apartment.setLastStatusUpdate(java.time.LocalDateTime.now());
-        apartmentRepository.save(apartment);
-
-        Ticket ticket = Ticket.builder()
-                .user(booking.getClient())
-                .booking(booking)
-                .type(Ticket.TicketType.STATUS_CHANGED)
-                .dataJson("{\"status\": \"COMPLETED\"}")
-                .build();
-
-        ticketRepository.save(ticket);
+        bookingOutbox.ticket(booking, Ticket.TicketType.STATUS_CHANGED, Map.of("status", "COMPLETED"));
     }
 
     // Получить бронь по ID
+    @Transactional(readOnly = true)
     public BookingDTO getBookingById(Long id) {
+        replicaRouting.readingAs(ReplicaRouting.booking(id));
         Booking booking = bookingRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Booking not found"));
         return BookingDTO.fromEntity(booking);
     }
 
-    // Получить все брони клиента
-    public List<BookingDTO> getBookingsByClient(Long clientId) {
-        User client = userRepository.findById(clientId)
-                .orElseThrow(() -> new RuntimeException("Client not found"));
-        return bookingRepository.findByClient(client).stream()
-                .map(BookingDTO::fromEntity)
-                .collect(Collectors.toList());
+    // Брони клиента, постранично по id
+    @Transactional(readOnly = true)
+    public CursorPage<BookingDTO> getBookingsByClient(Long clientId, Long after, Integer limit) {
+        replicaRouting.readingAs(ReplicaRouting.user(clientId));
+        if (!userRepository.existsById(clientId)) {
+            throw new RuntimeException("Client not found");
+        }
+        int size = CursorPage.limit(limit);
+        return CursorPage.of(
+                bookingRepository.findByClientIdAndIdGreaterThanOrderByIdAsc(clientId, CursorPage.after(after), CursorPage.seek(size)),
+                size, Booking::getId, BookingDTO::fromEntity);
     }
 
-    // Получить все брони владельца
-    public List<BookingDTO> getBookingsByOwner(Long ownerId) {
-        User owner = userRepository.findById(ownerId)
-                .orElseThrow(() -> new RuntimeException("Owner not found"));
-        return owner.getApartments().stream()
-                .flatMap(apartment -> bookingRepository.findByApartment(apartment).stream())
-                .map(BookingDTO::fromEntity)
-                .collect(Collectors.toList());
+    // Брони по квартирам владельца, постранично по id
+    @Transactional(readOnly = true)
+    public CursorPage<BookingDTO> getBookingsByOwner(Long ownerId, Long after, Integer limit) {
+        replicaRouting.readingAs(ReplicaRouting.user(ownerId));
+        if (!userRepository.existsById(ownerId)) {
+            throw new RuntimeException("Owner not found");
+        }
+        int size = CursorPage.limit(limit);
+        return CursorPage.of(
+                bookingRepository.findByApartmentOwnerIdAndIdGreaterThanOrderByIdAsc(ownerId, CursorPage.after(after), CursorPage.seek(size)),
+                size, Booking::getId, BookingDTO::fromEntity);
     }
 
-    // Подтвердить бронь
-    @Transactional
+    // Подтвердить бронь. Подтверждение отменённой брони снова занимает даты,
+    // поэтому, как и создание, идёт под блокировкой квартиры.
     public BookingDTO confirmBooking(Long bookingId) {
+        return bookingLocks.withApartment(apartmentIdOf(bookingId),
+                () -> transactionTemplate.execute(tx -> confirm(bookingId)));
+    }
+
+    private BookingDTO confirm(Long bookingId) {
         Booking booking = bookingRepository.findById(bookingId)
                 .orElseThrow(() -> new RuntimeException("Booking not found"));
         
+        BookingStatus previous = booking.getStatus();
+        if (previous == BookingStatus.HOLD && booking.getHoldExpiresAt() != null
+                && !booking.getHoldExpiresAt().isAfter(LocalDateTime.now(clock))) {
+            throw new RuntimeException("Hold has expired");
+        }
         booking.setStatus(BookingStatus.CONFIRMED);
+        updateInventory(booking, previous);
         bookingRepository.save(booking);
+        publishBookingChanged(booking);
 
-        Ticket ticket = Ticket.builder()
-                .user(booking.getClient())
-                .booking(booking)
-                .type(Ticket.TicketType.STATUS_CHANGED)
-                .dataJson("{\"status\": \"CONFIRMED\"}")
-                .build();
-        ticketRepository.save(ticket);
+        // Подтверждение удержания — это оплата
+        if (previous == BookingStatus.HOLD) {
+            createPaidPayment(booking);
+        }
+
+        bookingOutbox.ticket(booking, Ticket.TicketType.STATUS_CHANGED, Map.of("status", "CONFIRMED"));
 
         return BookingDTO.fromEntity(booking);
     }
 
-    // Check-in (перегрузка для DTO)
-    @Transactional
+    // Check-in (перегрузка для DTO), под блокировкой квартиры — заселение может снова занять даты
     public BookingDTO checkIn(Long bookingId) {
-        Payment payment = checkInInternal(bookingId);
-        Booking booking = payment.getBooking();
-        booking.setCheckInTime(java.time.LocalDateTime.now());
-        bookingRepository.save(booking);
-        return BookingDTO.fromEntity(booking);
+        return bookingLocks.withApartment(apartmentIdOf(bookingId), () -> transactionTemplate.execute(tx -> {
+            Payment payment = checkInInternal(bookingId);
+            Booking booking = payment.getBooking();
+            booking.setCheckInTime(java.time.LocalDateTime.now());
+            bookingRepository.save(booking);
+            return BookingDTO.fromEntity(booking);
+        }));
     }
 
-    // Check-in (внутренний метод)
+    // Check-in (внутренний метод). Вызывать под bookingLocks.withApartment, как createBookingInternal.
     @Transactional
     public Payment checkInInternal(Long bookingId) {
         Booking booking = bookingRepository.findById(bookingId)
                 .orElseThrow(() -> new RuntimeException("Booking not found"));
 
+        BookingStatus previous = booking.getStatus();
         booking.setStatus(BookingStatus.CHECKED_IN);
+        updateInventory(booking, previous);
         bookingRepository.save(booking);
+        publishBookingChanged(booking);
 
-        // Платёж
-        Payment payment = Payment.builder()
-                .booking(booking)
-                .amount(booking.getTotalAmount())
-                .status(Payment.PaymentStatus.PENDING)
-                .paymentMethod(com.booking.model.PaymentMethod.CREDIT_CARD)
-                .build();
+        // Платёж: подтверждённая бронь уже оплачена, второй платёж на неё не создаётся
+        Payment payment = paymentRepository.findByBookingId(bookingId)
+                .orElseGet(() -> paymentRepository.save(Payment.builder()
+                        .booking(booking)
+                        .amount(booking.getTotalAmount())
+                        .status(Payment.PaymentStatus.PENDING)
+                        .paymentMethod(com.booking.model.PaymentMethod.CREDIT_CARD)
+                        .build()));
+
+        // Тикет
+        bookingOutbox.ticket(booking, Ticket.TicketType.STATUS_CHANGED, Map.of("status", "CHECKED_IN"));
+
+        return payment;
+    }
 
+    // Лента событий брони, постранично по смещению в журнале
+    public CursorPage<TimelineEventDTO> getBookingTimeline(Long bookingId, Long after, Integer limit) {
+        if (!bookingRepository.existsById(bookingId)) {
+            throw new RuntimeException("Booking not found");
+        }
+        int size = CursorPage.limit(limit);
+        return CursorPage.of(timelineLog.forBooking(bookingId, CursorPage.after(after), size + 1),
+                size, TimelineEventDTO::getOffset, event -> event);
+    }
+
+    // Метрики outbox тикетов и алертов
+    public Map<String, Object> getOutboxStats() {
+        return bookingOutbox.stats();
+    }
+
+    // Последний прогон фонового завершения броней
+    public Map<String, Object> getCompletionStats() {
+        return bookingCompletion.stats();
+    }
+
+    private Long apartmentIdOf(Long bookingId) {
+        return bookingRepository.findApartmentIdById(bookingId)
+                .orElseThrow(() -> new RuntimeException("Booking not found"));
+    }
+
+    private void refund(Payment payment) {
+        payment.setStatus(Payment.PaymentStatus.REFUNDED);
         paymentRepository.save(payment);
+        paymentLedger.reverse(payment);
+    }
+
+    private void createPaidPayment(Booking booking) {
+        Payment payment = paymentRepository.save(paidPayment(booking));
+        paymentLedger.record(payment);
+    }
 
-        // Обновление статуса квартиры
-        Apartment apartment = booking.getApartment();
-        apartment.setStatus(Apartment.ApartmentStatus.OCCUPIED);
-        apartment.setLastStatusUpdate(java.time.LocalDateTime.now());
-        apartmentRepository.save(apartment);
+    // Оплаченный платёж с комиссией 10%
+    private Payment paidPayment(Booking booking) {
+        LocalDateTime paidAt = LocalDateTime.now(clock);
+        booking.setPaymentCompleted(true);
+        booking.setPaymentDate(paidAt);
 
-        // Тикет
-        Ticket ticket = Ticket.builder()
-                .user(booking.getClient())
+        Payment payment = Payment.builder()
                 .booking(booking)
-                .type(Ticket.TicketType.STATUS_CHANGED)
-                .dataJson("{\"status\": \"CHECKED_IN\"}")
+                .amount(booking.getTotalAmount())
+                .status(Payment.PaymentStatus.PAID)
+                .paidAt(paidAt)
+                .paymentMethod(com.booking.model.PaymentMethod.CREDIT_CARD)
                 .build();
+        PaymentLedger.split(payment);
+        return payment;
+    }
 
-        ticketRepository.save(ticket);
+    // Номера списываются, когда бронь начинает занимать даты, и возвращаются, когда перестаёт.
+    // Вызывать под bookingLocks квартиры брони.
+    private void updateInventory(Booking booking, BookingStatus previous) {
+        boolean was = previous != null && previous.blocksDates();
+        boolean is = booking.getStatus().blocksDates();
+        if (was && !is) {
+            roomInventory.release(booking.getApartment().getId(), booking.getCheckIn(), booking.getCheckOut());
+        } else if (!was && is && !roomInventory.reserve(booking.getApartment(), booking.getCheckIn(), booking.getCheckOut())) {
+            throw new RuntimeException("No rooms left for these dates");
+        }
+    }
 
-        return payment;
+    private void publishBookingChanged(Booking booking) {
+        eventPublisher.publishEvent(new BookingChangedEvent(
+                booking.getId(),
+                booking.getClient().getId(),
+                booking.getApartment().getId(),
+                booking.getCheckIn(),
+                booking.getCheckOut(),
+                booking.getStatus()));
     }
 }
@@ -0,0 +1,330 @@
+package com.booking.service;
+
+import com.booking.model.Apartment;
+import com.booking.repository.ApartmentRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.util.HtmlUtils;
+
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Встроенный полнотекстовый индекс по title/description квартир.
+// Инвертированный индекс стемов + edge n-gram словарь для поиска по префиксу,
+// ранжирование BM25 (заголовок весит вдвое больше описания), сниппеты с подсветкой.
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class FullTextIndex {
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final int TITLE_WEIGHT = 2;
+    private static final double PREFIX_WEIGHT = 0.7;
+    private static final int MIN_PREFIX = 2;
+    private static final int MAX_PREFIX = 12;
+    private static final int SNIPPET_LENGTH = 200;
+
+    private final ApartmentRepository apartmentRepository;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, Doc> docs = new HashMap<>();
+    // стем -> (id квартиры -> {tf в заголовке, tf в описании})
+    private final Map<String, Map<Long, int[]>> postings = new HashMap<>();
+    // префикс стема -> стемы с этим префиксом
+    private final Map<String, Set<String>> prefixes = new HashMap<>();
+    private long totalLength;
+
+    private final LongAdder queries = new LongAdder();
+    private final LongAdder queryNanos = new LongAdder();
+    private final AtomicLong maxQueryNanos = new AtomicLong();
+    private volatile long buildMillis;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long started = System.currentTimeMillis();
+        List<Apartment> apartments = apartmentRepository.findAll();
+        lock.writeLock().lock();
+        try {
+            docs.clear();
+            postings.clear();
+            prefixes.clear();
+            totalLength = 0;
+            apartments.forEach(this::add);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        buildMillis = System.currentTimeMillis() - started;
+        log.info("Full-text index built: {} documents, {} terms in {} ms", apartments.size(), postings.size(), buildMillis);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onApartmentChanged(ApartmentChangedEvent event) {
+        index(event.getApartment());
+    }
+
+    public void index(Apartment apartment) {
+        lock.writeLock().lock();
+        try {
+            remove(apartment.getId());
+            add(apartment);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public List<Hit> search(String query, int limit) {
+        long started = System.nanoTime();
+        List<TextAnalyzer.Token> queryTokens = TextAnalyzer.tokens(query);
+        if (queryTokens.isEmpty()) {
+            return List.of();
+        }
+
+        lock.readLock().lock();
+        try {
+            // стем -> вес; последний токен дополнительно раскрывается как префикс
+            Map<String, Double> weights = new LinkedHashMap<>();
+            for (TextAnalyzer.Token token : queryTokens) {
+                weights.put(token.term(), 1.0);
+            }
+            String last = lastWord(query);
+            if (last != null && last.length() >= MIN_PREFIX) {
+                String prefix = last.length() > MAX_PREFIX ? last.substring(0, MAX_PREFIX) : last;
+                for (String term : prefixes.getOrDefault(prefix, Set.of())) {
+                    if (term.startsWith(last)) {
+                        weights.putIfAbsent(term, PREFIX_WEIGHT);
+                    }
+                }
+            }
+
+            double avgLength = docs.isEmpty() ? 1.0 : Math.max(1.0, (double) totalLength / docs.size());
+            Map<Long, Double> scores = new HashMap<>();
+            for (Map.Entry<String, Double> weighted : weights.entrySet()) {
+                Map<Long, int[]> termPostings = postings.get(weighted.getKey());
+                if (termPostings == null) {
+                    continue;
+                }
+                double idf = Math.log(1 + (docs.size() - termPostings.size() + 0.5) / (termPostings.size() + 0.5));
+                for (Map.Entry<Long, int[]> posting : termPostings.entrySet()) {
+                    Doc doc = docs.get(posting.getKey());
+                    if (doc.status == Apartment.ApartmentStatus.ARCHIVED) {
+                        continue;
+                    }
+                    double tf = TITLE_WEIGHT * posting.getValue()[0] + posting.getValue()[1];
+                    double norm = K1 * (1 - B + B * doc.length / avgLength);
+                    double score = weighted.getValue() * idf * tf * (K1 + 1) / (tf + norm);
+                    scores.merge(doc.id, score, Double::sum);
+                }
+            }
+
+            Set<String> matchedTerms = weights.keySet();
+            return scores.entrySet().stream()
+                    .sorted(Map.Entry.<Long, Double>comparingByValue().reversed()
+                            .thenComparing(Map.Entry.<Long, Double>comparingByKey()))
+                    .limit(limit)
+                    .map(e -> {
+                        Doc doc = docs.get(e.getKey());
+                        return new Hit(doc.id, doc.title, doc.city, doc.price, e.getValue(),
+                                highlight(doc.title, matchedTerms, 0, doc.title.length()),
+                                snippet(doc.description, matchedTerms));
+                    })
+                    .toList();
+        } finally {
+            lock.readLock().unlock();
+            long took = System.nanoTime() - started;
+            queries.increment();
+            queryNanos.add(took);
+            maxQueryNanos.accumulateAndGet(took, Math::max);
+        }
+    }
+
+    public Map<String, Object> stats() {
+        lock.readLock().lock();
+        try {
+            long postingCount = 0;
+            long termChars = 0;
+            for (Map.Entry<String, Map<Long, int[]>> entry : postings.entrySet()) {
+                postingCount += entry.getValue().size();
+                termChars += entry.getKey().length();
+            }
+            long prefixEntries = 0;
+            for (Set<String> terms : prefixes.values()) {
+                prefixEntries += terms.size();
+            }
+            long textChars = 0;
+            for (Doc doc : docs.values()) {
+                textChars += doc.title.length() + doc.description.length();
+            }
+            // Грубая оценка: строки ~ 40 байт + 2 байта на символ, запись HashMap ~ 48 байт,
+            // постинг = запись HashMap + int[2] (~24 байта)
+            long estimatedBytes = postings.size() * (40L + 48) + termChars * 2
+                    + postingCount * (48L + 24)
+                    + prefixes.size() * (40L + 48 + MAX_PREFIX * 2) + prefixEntries * 48
+                    + docs.size() * 120L + textChars * 2;
+
+            long count = queries.sum();
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("documents", docs.size());
+            stats.put("terms", postings.size());
+            stats.put("postings", postingCount);
+            stats.put("prefixes", prefixes.size());
+            stats.put("estimatedMemoryBytes", estimatedBytes);
+            stats.put("buildMillis", buildMillis);
+            stats.put("queries", count);
+            stats.put("avgQueryMicros", count == 0 ? 0 : queryNanos.sum() / count / 1000);
+            stats.put("maxQueryMicros", maxQueryNanos.get() / 1000);
+            return stats;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void add(Apartment apartment) {
+        Doc doc = new Doc(apartment);
+        List<String> titleTerms = TextAnalyzer.terms(doc.title);
+        List<String> bodyTerms = TextAnalyzer.terms(doc.description);
+        doc.length = TITLE_WEIGHT * titleTerms.size() + bodyTerms.size();
+
+        for (String term : titleTerms) {
+            posting(term, doc.id)[0]++;
+            doc.terms.add(term);
+        }
+        for (String term : bodyTerms) {
+            posting(term, doc.id)[1]++;
+            doc.terms.add(term);
+        }
+        docs.put(doc.id, doc);
+        totalLength += doc.length;
+    }
+
+    private int[] posting(String term, Long docId) {
+        Map<Long, int[]> termPostings = postings.get(term);
+        if (termPostings == null) {
+            termPostings = new HashMap<>();
+            postings.put(term, termPostings);
+            for (int n = MIN_PREFIX; n <= Math.min(term.length(), MAX_PREFIX); n++) {
+                prefixes.computeIfAbsent(term.substring(0, n), k -> new HashSet<>()).add(term);
+            }
+        }
+        return termPostings.computeIfAbsent(docId, k -> new int[2]);
+    }
+
+    private void remove(Long id) {
+        Doc doc = docs.remove(id);
+        if (doc == null) {
+            return;
+        }
+        totalLength -= doc.length;
+        for (String term : doc.terms) {
+            Map<Long, int[]> termPostings = postings.get(term);
+            if (termPostings == null) {
+                continue;
+            }
+            termPostings.remove(id);
+            if (termPostings.isEmpty()) {
+                postings.remove(term);
+                for (int n = MIN_PREFIX; n <= Math.min(term.length(), MAX_PREFIX); n++) {
+                    String prefix = term.substring(0, n);
+                    Set<String> terms = prefixes.get(prefix);
+                    if (terms != null) {
+                        terms.remove(term);
+                        if (terms.isEmpty()) {
+                            prefixes.remove(prefix);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private static String lastWord(String query) {
+        String trimmed = query.trim();
+        if (trimmed.isEmpty() || !Character.isLetterOrDigit(trimmed.charAt(trimmed.length() - 1))) {
+            return null;
+        }
+        int start = trimmed.length();
+        while (start > 0 && Character.isLetterOrDigit(trimmed.charAt(start - 1))) {
+            start--;
+        }
+        return TextAnalyzer.normalize(trimmed.substring(start));
+    }
+
+    // Окно описания вокруг участка с наибольшим числом совпадений
+    private static String snippet(String text, Set<String> terms) {
+        if (text.isEmpty()) {
+            return "";
+        }
+        List<TextAnalyzer.Token> matches = TextAnalyzer.tokens(text).stream()
+                .filter(token -> terms.contains(token.term()))
+                .toList();
+        int start = 0;
+        if (!matches.isEmpty()) {
+            int best = 0;
+            for (int i = 0, j = 0; i < matches.size(); i++) {
+                while (j < i && matches.get(i).end() - matches.get(j).start() > SNIPPET_LENGTH) {
+                    j++;
+                }
+                if (i - j + 1 > best) {
+                    best = i - j + 1;
+                    start = matches.get(j).start();
+                }
+            }
+            start = Math.max(0, start - 40);
+            while (start > 0 && Character.isLetterOrDigit(text.charAt(start - 1))) {
+                start--;
+            }
+        }
+        int end = Math.min(text.length(), start + SNIPPET_LENGTH);
+        while (end < text.length() && Character.isLetterOrDigit(text.charAt(end))) {
+            end++;
+        }
+        return (start > 0 ? "…" : "") + highlight(text, terms, start, end) + (end < text.length() ? "…" : "");
+    }
+
+    // HTML-экранированный фрагмент, совпавшие слова обёрнуты в <mark>
+    private static String highlight(String text, Set<String> terms, int from, int to) {
+        StringBuilder out = new StringBuilder();
+        int position = from;
+        for (TextAnalyzer.Token token : TextAnalyzer.tokens(text.substring(from, to))) {
+            if (!terms.contains(token.term())) {
+                continue;
+            }
+            out.append(HtmlUtils.htmlEscape(text.substring(position, from + token.start())));
+            out.append("<mark>").append(HtmlUtils.htmlEscape(text.substring(from + token.start(), from + token.end()))).append("</mark>");
+            position = from + token.end();
+        }
+        out.append(HtmlUtils.htmlEscape(text.substring(position, to)));
+        return out.toString();
+    }
+
+    public record Hit(Long apartmentId, String title, String city, BigDecimal pricePerNight, double score,
+                      String titleHighlight, String snippet) {
+    }
+
+    private static final class Doc {
+        final Long id;
+        final String title;
+        final String description;
+        final String city;
+        final BigDecimal price;
+        final Apartment.ApartmentStatus status;
+        final Set<String> terms = new HashSet<>();
+        int length;
+
+        Doc(Apartment apartment) {
+            id = apartment.getId();
+            title = apartment.getTitle() != null ? apartment.getTitle() : "";
+            description = apartment.getDescription() != null ? apartment.getDescription() : "";
+            city = apartment.getCity();
+            price = apartment.getPricePerNight();
+            status = apartment.getStatus();
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.booking.service;
+
+import com.booking.model.Booking;
+import com.booking.repository.BookingHold;
+import com.booking.repository.BookingRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.List;
+
+// Крутит колесо удержаний и переводит истёкшие HOLD в EXPIRED пачками по EXPIRY_BATCH
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class HoldExpiry {
+
+    private static final int EXPIRY_BATCH = 200;
+    private static final long RETRY_MILLIS = 30_000;
+
+    private final HoldTimer holdTimer;
+    private final BookingService bookingService;
+    private final BookingRepository bookingRepository;
+    private final Clock clock;
+
+    // Таймеры живут в памяти — после рестарта восстанавливаются из БД
+    @EventListener(ApplicationReadyEvent.class)
+    public void restore() {
+        List<BookingHold> holds = bookingRepository.findHolds(Booking.BookingStatus.HOLD);
+        Instant now = clock.instant();
+        for (BookingHold hold : holds) {
+            Instant expiresAt = hold.getHoldExpiresAt() != null
+                    ? hold.getHoldExpiresAt().atZone(clock.getZone()).toInstant() : now;
+            holdTimer.schedule(hold.getId(), expiresAt);
+        }
+        log.info("Booking holds restored: {}", holds.size());
+    }
+
+    @Scheduled(fixedDelayString = "${booking.hold.tick-ms:1000}")
+    public void tick() {
+        List<Long> expired = holdTimer.advance();
+        for (int from = 0; from < expired.size(); from += EXPIRY_BATCH) {
+            List<Long> batch = expired.subList(from, Math.min(from + EXPIRY_BATCH, expired.size()));
+            try {
+                int count = bookingService.expireHolds(batch);
+                log.debug("Expired {} holds of {}", count, batch.size());
+            } catch (RuntimeException e) {
+                log.warn("Failed to expire {} holds, retrying later", batch.size(), e);
+                Instant retryAt = clock.instant().plusMillis(RETRY_MILLIS);
+                batch.forEach(id -> holdTimer.schedule(id, retryAt));
+            }
+        }
+    }
+
+    // Оплаченное или отменённое удержание снимается с колеса.
+    // CREATED пропускаем: это промежуточный статус при создании самого удержания.
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookingChanged(BookingChangedEvent event) {
+        Booking.BookingStatus status = event.getStatus();
+        if (status != Booking.BookingStatus.HOLD && status != Booking.BookingStatus.CREATED) {
+            holdTimer.cancel(event.getBookingId());
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookingsChanged(BookingBatchChangedEvent event) {
+        event.getChanges().forEach(this::onBookingChanged);
+    }
+}
@@ -0,0 +1,124 @@
+package com.booking.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Хешированное колесо таймеров для истечения удержаний (HOLD).
+// Колесо — массив корзин по тикам; удержание кладётся в корзину своего тика дедлайна
+// (двусвязный список), поэтому добавление и отмена — O(1). Каждый тик просматривается
+// одна корзина; удержания, чей дедлайн ещё через оборот колеса, остаются в ней.
+// Время берётся из Clock, так что колесо можно проверять с управляемыми часами.
+@Component
+public class HoldTimer {
+
+    private final Clock clock;
+    private final long tickMillis;
+    private final long ttlMillis;
+    private final Node[] wheel;
+    private final int mask;
+    private final Map<Long, Node> byBooking = new HashMap<>();
+    // Следующий ещё не обработанный тик
+    private long currentTick;
+
+    public HoldTimer(Clock clock,
+                     @Value("${booking.hold.ttl-seconds:600}") long ttlSeconds,
+                     @Value("${booking.hold.tick-ms:1000}") long tickMillis,
+                     @Value("${booking.hold.wheel-size:1024}") int wheelSize) {
+        this.clock = clock;
+        this.ttlMillis = ttlSeconds * 1000;
+        this.tickMillis = tickMillis;
+        int size = Integer.highestOneBit(Math.max(2, wheelSize - 1)) << 1;
+        this.wheel = new Node[size];
+        for (int i = 0; i < size; i++) {
+            // Корзина — кольцевой список с заглушкой-головой
+            Node head = new Node(null, 0);
+            head.prev = head;
+            head.next = head;
+            wheel[i] = head;
+        }
+        this.mask = size - 1;
+        this.currentTick = clock.millis() / tickMillis;
+    }
+
+    // Срок нового удержания, если создать его сейчас
+    public Instant nextExpiry() {
+        return clock.instant().plusMillis(ttlMillis);
+    }
+
+    // Повторный вызов для той же брони переносит дедлайн
+    public synchronized void schedule(Long bookingId, Instant expiresAt) {
+        remove(byBooking.remove(bookingId));
+        long tick = Math.max(currentTick, (expiresAt.toEpochMilli() + tickMillis - 1) / tickMillis);
+        Node node = new Node(bookingId, tick);
+        Node head = wheel[(int) (tick & mask)];
+        node.prev = head.prev;
+        node.next = head;
+        head.prev.next = node;
+        head.prev = node;
+        byBooking.put(bookingId, node);
+    }
+
+    public synchronized boolean cancel(Long bookingId) {
+        Node node = byBooking.remove(bookingId);
+        remove(node);
+        return node != null;
+    }
+
+    public synchronized int size() {
+        return byBooking.size();
+    }
+
+    // Прокручивает колесо до текущего времени и возвращает брони с истёкшим удержанием
+    public synchronized List<Long> advance() {
+        long nowTick = clock.millis() / tickMillis;
+        List<Long> expired = new ArrayList<>();
+        if (nowTick < currentTick) {
+            return expired;
+        }
+        // После долгой паузы достаточно одного полного оборота
+        long last = Math.min(nowTick, currentTick + wheel.length - 1);
+        for (long tick = currentTick; tick <= last; tick++) {
+            Node head = wheel[(int) (tick & mask)];
+            for (Node node = head.next; node != head; ) {
+                Node next = node.next;
+                if (node.deadlineTick <= nowTick) {
+                    remove(node);
+                    byBooking.remove(node.bookingId);
+                    expired.add(node.bookingId);
+                }
+                node = next;
+            }
+        }
+        currentTick = nowTick + 1;
+        return expired;
+    }
+
+    private static void remove(Node node) {
+        if (node == null || node.prev == null) {
+            return;
+        }
+        node.prev.next = node.next;
+        node.next.prev = node.prev;
+        node.prev = null;
+        node.next = null;
+    }
+
+    private static final class Node {
+        final Long bookingId;
+        final long deadlineTick;
+        Node prev;
+        Node next;
+
+        Node(Long bookingId, long deadlineTick) {
+            this.bookingId = bookingId;
+            this.deadlineTick = deadlineTick;
+        }
+    }
+}
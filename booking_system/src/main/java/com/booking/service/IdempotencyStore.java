@@ -0,0 +1,170 @@
+package com.booking.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+// Хранилище ключей идемпотентности (заголовок Idempotency-Key) для повторяемых POST.
+// Первый запрос с ключом выполняется, его результат хранится ttl-seconds и отдаётся повторам;
+// повтор, пришедший, пока первый ещё выполняется, ждёт его результата, а не выполняется заново.
+// Ошибки не запоминаются: после неудачи ключ освобождается и следующий повтор выполнится.
+// Ключей не больше max-keys — при переполнении вытесняются самые старые завершённые.
+// Тело запроса сравнивается по SHA-256 от канонического JSON (поля и ключи словарей по алфавиту):
+// hashCode DTO дал бы совпадения у разных тел, и повтор с чужим телом получил бы чужой результат.
+@Component
+public class IdempotencyStore {
+
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private final long ttlMillis;
+    private final int maxKeys;
+    private final long waitMillis;
+    private final ObjectMapper canonicalMapper;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    // Ключи в порядке добавления — для вытеснения при переполнении
+    private final Queue<String> order = new ConcurrentLinkedQueue<>();
+
+    public IdempotencyStore(@Value("${booking.idempotency.ttl-seconds:86400}") long ttlSeconds,
+                            @Value("${booking.idempotency.max-keys:100000}") int maxKeys,
+                            @Value("${booking.idempotency.wait-ms:30000}") long waitMillis,
+                            ObjectMapper objectMapper) {
+        this.ttlMillis = ttlSeconds * 1000;
+        this.maxKeys = maxKeys;
+        this.waitMillis = waitMillis;
+        ObjectMapper canonical = objectMapper.copy().enable(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS);
+        canonical.setConfig(canonical.getSerializationConfig().with(MapperFeature.SORT_PROPERTIES_ALPHABETICALLY));
+        this.canonicalMapper = canonical;
+    }
+
+    // scope отделяет ключи разных операций и клиентов; request — тело запроса,
+    // повтор ключа с другим телом отклоняется. Без ключа action просто выполняется.
+    @SuppressWarnings("unchecked")
+    public <T> T execute(String scope, String key, Object request, Supplier<T> action) {
+        if (key == null || key.isBlank()) {
+            return action.get();
+        }
+        if (key.length() > MAX_KEY_LENGTH) {
+            throw new RuntimeException("Idempotency-Key is longer than " + MAX_KEY_LENGTH + " characters");
+        }
+        String id = scope + ":" + key;
+        byte[] fingerprint = fingerprint(request);
+        Entry entry = new Entry(fingerprint, System.currentTimeMillis() + ttlMillis);
+
+        while (true) {
+            Entry existing = entries.putIfAbsent(id, entry);
+            if (existing == null) {
+                order.add(id);
+                evictOverflow();
+                return run(id, entry, action);
+            }
+            if (existing.isExpired(System.currentTimeMillis())) {
+                entries.remove(id, existing);
+                continue;
+            }
+            if (!Arrays.equals(existing.fingerprint, fingerprint)) {
+                throw new RuntimeException("Idempotency-Key was already used with a different request");
+            }
+            return (T) await(existing);
+        }
+    }
+
+    private byte[] fingerprint(Object request) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(canonicalMapper.writeValueAsBytes(request));
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Failed to serialize request for Idempotency-Key check", e);
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("SHA-256 is not available", e);
+        }
+    }
+
+    private <T> T run(String id, Entry entry, Supplier<T> action) {
+        try {
+            T result = action.get();
+            entry.result.complete(result);
+            return result;
+        } catch (RuntimeException e) {
+            entries.remove(id, entry);
+            entry.result.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private Object await(Entry entry) {
+        try {
+            return entry.result.get(waitMillis, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new RuntimeException(e.getCause());
+        } catch (TimeoutException e) {
+            throw new RuntimeException("Request with this Idempotency-Key is still in progress");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for the original request");
+        }
+    }
+
+    // Выполняющиеся запросы не вытесняем: их ждут повторы
+    private void evictOverflow() {
+        int attempts = order.size();
+        while (entries.size() > maxKeys && attempts-- > 0) {
+            String id = order.poll();
+            if (id == null) {
+                return;
+            }
+            Entry entry = entries.get(id);
+            if (entry != null && !entry.result.isDone()) {
+                order.add(id);
+            } else if (entry != null) {
+                entries.remove(id, entry);
+            }
+        }
+    }
+
+    @Scheduled(fixedDelay = 60_000)
+    public void purgeExpired() {
+        long now = System.currentTimeMillis();
+        entries.entrySet().removeIf(e -> e.getValue().isExpired(now));
+        order.removeIf(id -> !entries.containsKey(id));
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    private static final class Entry {
+        final byte[] fingerprint;
+        final long expiresAt;
+        final CompletableFuture<Object> result = new CompletableFuture<>();
+
+        Entry(byte[] fingerprint, long expiresAt) {
+            this.fingerprint = fingerprint;
+            this.expiresAt = expiresAt;
+        }
+
+        // Пока запрос выполняется, запись не истекает
+        boolean isExpired(long now) {
+            return now >= expiresAt && result.isDone();
+        }
+    }
+}
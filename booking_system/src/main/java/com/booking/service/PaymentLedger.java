@@ -0,0 +1,247 @@
+package com.booking.service;
+
+import com.booking.model.LedgerAccount;
+import com.booking.model.LedgerEntry;
+import com.booking.model.Payment;
+import com.booking.repository.LedgerAccountRepository;
+import com.booking.repository.LedgerEntryRepository;
+import com.booking.repository.PaymentRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+// Книга платежей по двойной записи. Оплаченный платёж — две проводки:
+// гости -> владелец на всю сумму и владелец -> сайт на комиссию.
+// Проводки только добавляются, а обороты счетов меняются в той же транзакции,
+// что и сохраняет платёж, поэтому выручка сайта и владельца читается одной строкой счёта.
+// Возврат платежа — сторно обеих проводок: обороты и число проводок счетов уменьшаются.
+@Slf4j
+@Component
+public class PaymentLedger {
+
+    public static final String GUESTS = "guests";
+    public static final String PLATFORM = "platform";
+
+    // Комиссия сайта
+    private static final BigDecimal PLATFORM_FEE_RATE = new BigDecimal("0.10");
+
+    private final LedgerAccountRepository ledgerAccountRepository;
+    private final LedgerEntryRepository ledgerEntryRepository;
+    private final PaymentRepository paymentRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate newTransaction;
+    private final Clock clock;
+    private final int backfillBatch;
+
+    // code -> id; счета не удаляются, так что id можно не перечитывать
+    private final Map<String, Long> accountIds = new ConcurrentHashMap<>();
+
+    public PaymentLedger(LedgerAccountRepository ledgerAccountRepository,
+                         LedgerEntryRepository ledgerEntryRepository,
+                         PaymentRepository paymentRepository,
+                         PlatformTransactionManager transactionManager,
+                         Clock clock,
+                         @Value("${booking.ledger.backfill-batch:500}") int backfillBatch) {
+        this.ledgerAccountRepository = ledgerAccountRepository;
+        this.ledgerEntryRepository = ledgerEntryRepository;
+        this.paymentRepository = paymentRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.newTransaction = new TransactionTemplate(transactionManager);
+        this.newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.clock = clock;
+        this.backfillBatch = backfillBatch;
+    }
+
+    public static String owner(Long ownerId) {
+        return "owner:" + ownerId;
+    }
+
+    // Разбивка суммы платежа: 10% сайту, остальное владельцу
+    public static void split(Payment payment) {
+        BigDecimal platformFee = platformFee(payment.getAmount());
+        payment.setPlatformFee(platformFee);
+        payment.setOwnerAmount(payment.getAmount().subtract(platformFee));
+    }
+
+    public static BigDecimal platformFee(BigDecimal amount) {
+        return amount.multiply(PLATFORM_FEE_RATE).setScale(2, RoundingMode.HALF_UP);
+    }
+
+    // Проводки по оплаченным платежам; вызывается в транзакции, которая их сохраняет.
+    // Обороты — один UPDATE на счёт, по возрастанию id: параллельные транзакции
+    // берут блокировки строк счетов в одном порядке и не встают в дедлок.
+    public void record(Collection<Payment> payments) {
+        if (payments.isEmpty()) {
+            return;
+        }
+        Long guests = accountId(GUESTS, LedgerAccount.AccountType.GUESTS, null);
+        Long platform = accountId(PLATFORM, LedgerAccount.AccountType.PLATFORM, null);
+        LocalDateTime now = LocalDateTime.now(clock);
+
+        List<LedgerEntry> entries = new ArrayList<>();
+        Map<Long, Turnover> turnovers = new TreeMap<>();
+        for (Payment payment : payments) {
+            if (payment.getStatus() != Payment.PaymentStatus.PAID) {
+                throw new RuntimeException("Only paid payments can be posted to the ledger");
+            }
+            // Старые платежи без разбивки: комиссия считается здесь, платёж не меняется
+            BigDecimal platformFee = payment.getPlatformFee() != null
+                    ? payment.getPlatformFee() : platformFee(payment.getAmount());
+            Long ownerId = payment.getBooking().getApartment().getOwner().getId();
+            Long owner = accountId(owner(ownerId), LedgerAccount.AccountType.OWNER, ownerId);
+
+            post(entries, turnovers, guests, owner, payment.getAmount(), LedgerEntry.EntryKind.GUEST_PAYMENT, payment, now);
+            if (platformFee.signum() > 0) {
+                post(entries, turnovers, owner, platform, platformFee, LedgerEntry.EntryKind.PLATFORM_FEE, payment, now);
+            }
+        }
+        save(entries, turnovers, now);
+    }
+
+    public void record(Payment payment) {
+        record(List.of(payment));
+    }
+
+    // Сторно проводок возвращённого платежа; вызывается в транзакции, которая переводит его в REFUNDED.
+    // Суммы берутся из самих проводок, повторный возврат ничего не проводит.
+    public void reverse(Payment payment) {
+        if (payment.getStatus() != Payment.PaymentStatus.REFUNDED) {
+            throw new RuntimeException("Only refunded payments can be reversed in the ledger");
+        }
+        List<LedgerEntry> posted = ledgerEntryRepository.findByPaymentId(payment.getId());
+        Set<LedgerEntry.EntryKind> kinds = posted.stream().map(LedgerEntry::getKind).collect(Collectors.toSet());
+        LocalDateTime now = LocalDateTime.now(clock);
+
+        List<LedgerEntry> entries = new ArrayList<>();
+        Map<Long, Turnover> turnovers = new TreeMap<>();
+        for (LedgerEntry entry : posted) {
+            LedgerEntry.EntryKind reversal = switch (entry.getKind()) {
+                case GUEST_PAYMENT -> LedgerEntry.EntryKind.GUEST_REFUND;
+                case PLATFORM_FEE -> LedgerEntry.EntryKind.FEE_REFUND;
+                default -> null;
+            };
+            if (reversal != null && !kinds.contains(reversal)) {
+                post(entries, turnovers, entry.getDebitAccountId(), entry.getCreditAccountId(),
+                        entry.getAmount().negate(), reversal, payment, now);
+            }
+        }
+        save(entries, turnovers, now);
+    }
+
+    // Счёт по коду; ещё не созданный — с нулевыми оборотами
+    public LedgerAccount account(String code) {
+        return ledgerAccountRepository.findByCode(code)
+                .orElseGet(() -> LedgerAccount.builder().code(code).build());
+    }
+
+    // Выручка и число оплат по всем платежам
+    public Map<String, Object> stats() {
+        LedgerAccount guests = account(GUESTS);
+        LedgerAccount platform = account(PLATFORM);
+        Map<String, Object> stats = new LinkedHashMap<>();
+        // Число проводок счёта гостей — оплаты за вычетом сторнированных
+        stats.put("paidPayments", guests.getEntryCount());
+        stats.put("totalRevenue", guests.getDebits());
+        stats.put("platformRevenue", platform.getBalance());
+        return stats;
+    }
+
+    // Оплаты, проведённые до появления книги, переносятся при старте пачками
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        long posted = 0;
+        int batch;
+        do {
+            batch = transactionTemplate.execute(tx -> {
+                List<Payment> payments = paymentRepository.findUnposted(Payment.PaymentStatus.PAID, PageRequest.of(0, backfillBatch));
+                record(payments);
+                return payments.size();
+            });
+            posted += batch;
+        } while (batch == backfillBatch);
+        if (posted > 0) {
+            log.info("Payment ledger backfilled: {} payments posted", posted);
+        }
+    }
+
+    // Сторно (отрицательная сумма) уменьшает и обороты, и число проводок счетов
+    private void post(List<LedgerEntry> entries, Map<Long, Turnover> turnovers, Long debit, Long credit,
+                      BigDecimal amount, LedgerEntry.EntryKind kind, Payment payment, LocalDateTime now) {
+        entries.add(LedgerEntry.builder()
+                .debitAccountId(debit)
+                .creditAccountId(credit)
+                .amount(amount)
+                .kind(kind)
+                .paymentId(payment.getId())
+                .bookingId(payment.getBooking().getId())
+                .createdAt(now)
+                .build());
+        int count = amount.signum() < 0 ? -1 : 1;
+        Turnover debited = turnovers.computeIfAbsent(debit, id -> new Turnover());
+        debited.debits = debited.debits.add(amount);
+        debited.entries += count;
+        Turnover credited = turnovers.computeIfAbsent(credit, id -> new Turnover());
+        credited.credits = credited.credits.add(amount);
+        credited.entries += count;
+    }
+
+    // turnovers — TreeMap, так что счета обновляются по возрастанию id
+    private void save(List<LedgerEntry> entries, Map<Long, Turnover> turnovers, LocalDateTime now) {
+        ledgerEntryRepository.saveAll(entries);
+        turnovers.forEach((accountId, turnover) ->
+                ledgerAccountRepository.addTurnover(accountId, turnover.debits, turnover.credits, turnover.entries, now));
+    }
+
+    private Long accountId(String code, LedgerAccount.AccountType type, Long ownerId) {
+        Long cached = accountIds.get(code);
+        if (cached != null) {
+            return cached;
+        }
+        Long id = ledgerAccountRepository.findIdByCode(code).orElseGet(() -> createAccount(code, type, ownerId));
+        accountIds.put(code, id);
+        return id;
+    }
+
+    // Счёт создаётся в отдельной транзакции, чтобы он остался и при откате платежа;
+    // если его одновременно создала другая транзакция — берём её счёт
+    private Long createAccount(String code, LedgerAccount.AccountType type, Long ownerId) {
+        try {
+            return newTransaction.execute(tx -> ledgerAccountRepository.saveAndFlush(LedgerAccount.builder()
+                    .code(code)
+                    .type(type)
+                    .ownerId(ownerId)
+                    .updatedAt(LocalDateTime.now(clock))
+                    .build()).getId());
+        } catch (DataIntegrityViolationException e) {
+            return newTransaction.execute(tx -> ledgerAccountRepository.findIdByCode(code))
+                    .orElseThrow(() -> new RuntimeException("Ledger account not found: " + code));
+        }
+    }
+
+    private static final class Turnover {
+        BigDecimal debits = BigDecimal.ZERO;
+        BigDecimal credits = BigDecimal.ZERO;
+        long entries;
+    }
+}
@@ -8,6 +8,7 @@ import com.booking.repository.PaymentRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDateTime;
 
@@ -17,6 +18,16 @@ public class PaymentService {
     private final PaymentRepository paymentRepository;
     private final BookingRepository bookingRepository;
     private final NotificationService notificationService;
+    private final IdempotencyStore idempotencyStore;
+    private final TransactionTemplate transactionTemplate;
+    private final PaymentLedger paymentLedger;
+
+    // Оплата с ключом идемпотентности: повтор после таймаута получит тот же платёж,
+    // а не ошибку «Payment already completed». Результат запоминается только после коммита.
+    public Payment processPayment(Long bookingId, PaymentMethod method, String idempotencyKey) {
+        return idempotencyStore.execute("payment:" + bookingId, idempotencyKey, method.name(),
+                () -> transactionTemplate.execute(tx -> processPayment(bookingId, method)));
+    }
 
     @Transactional
     public Payment processPayment(Long bookingId, PaymentMethod method) {
@@ -33,14 +44,20 @@ public class PaymentService {
             throw new RuntimeException("Payment can only be processed after check-in");
         }
 
-        Payment payment = new Payment();
+        // Платёж, созданный при заселении, становится оплаченным; booking_id уникален
+        Payment payment = paymentRepository.findByBookingId(bookingId).orElseGet(Payment::new);
+        if (payment.getStatus() == Payment.PaymentStatus.PAID) {
+            throw new RuntimeException("Payment already completed");
+        }
         payment.setBooking(booking);
         payment.setAmount(booking.getTotalAmount());
         payment.setPaymentMethod(method);
         payment.setStatus(Payment.PaymentStatus.PAID);
         payment.setPaidAt(LocalDateTime.now());
+        PaymentLedger.split(payment);
 
         Payment savedPayment = paymentRepository.save(payment);
+        paymentLedger.record(savedPayment);
 
         booking.setPaymentCompleted(true);
         booking.setPaymentDate(LocalDateTime.now());
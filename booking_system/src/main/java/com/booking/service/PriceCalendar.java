@@ -0,0 +1,251 @@
+package com.booking.service;
+
+import com.booking.model.Apartment;
+import com.booking.model.PriceRule;
+import com.booking.repository.PriceRuleRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Clock;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Цены ночей по квартирам. Правила цены квартиры собираются в плотный массив
+// префиксных сумм цен (в копейках) на horizon-days вперёд от сегодняшнего дня,
+// поэтому сумма за любой диапазон внутри окна — разность двух элементов.
+// Массив строится лениво при первом запросе и пересобирается только при смене правил,
+// базовой цены или дня; квартиры без правил считаются как базовая цена × ночи.
+// Расчёт брони и предварительный расчёт цены идут через этот же класс.
+@Slf4j
+@Component
+public class PriceCalendar {
+
+    private final PriceRuleRepository priceRuleRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final Clock clock;
+    private final int horizonDays;
+
+    private final Map<Long, Base> bases = new ConcurrentHashMap<>();
+    private final Map<Long, List<Rule>> rules = new ConcurrentHashMap<>();
+    // Собранные календари — только для квартир с правилами
+    private final Map<Long, Compiled> compiled = new ConcurrentHashMap<>();
+
+    public PriceCalendar(PriceRuleRepository priceRuleRepository,
+                         JdbcTemplate jdbcTemplate,
+                         Clock clock,
+                         @Value("${booking.calendar.horizon-days:730}") int horizonDays) {
+        this.priceRuleRepository = priceRuleRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.clock = clock;
+        this.horizonDays = horizonDays;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        Map<Long, Base> loadedBases = new HashMap<>();
+        jdbcTemplate.query("SELECT id, price_per_night, max_guests FROM apartments", rs -> {
+            loadedBases.put(rs.getLong("id"),
+                    new Base(toCents(rs.getBigDecimal("price_per_night")), (Integer) rs.getObject("max_guests")));
+        });
+        Map<Long, List<Rule>> loadedRules = new HashMap<>();
+        List<PriceRule> all = priceRuleRepository.findAllByOrderByPriorityAscIdAsc();
+        for (PriceRule rule : all) {
+            loadedRules.computeIfAbsent(rule.getApartment().getId(), id -> new ArrayList<>()).add(Rule.of(rule));
+        }
+
+        bases.clear();
+        bases.putAll(loadedBases);
+        rules.clear();
+        rules.putAll(loadedRules);
+        compiled.clear();
+        log.info("Price calendar loaded: {} apartments, {} price rules", loadedBases.size(), all.size());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onApartmentChanged(ApartmentChangedEvent event) {
+        Apartment apartment = event.getApartment();
+        Base base = new Base(toCents(apartment.getPricePerNight()), apartment.getMaxGuests());
+        Base previous = bases.put(apartment.getId(), base);
+        if (previous == null || previous.cents != base.cents) {
+            compiled.remove(apartment.getId());
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPriceRulesChanged(PriceRulesChangedEvent event) {
+        List<Rule> changed = event.getRules().stream().map(Rule::of).toList();
+        if (changed.isEmpty()) {
+            rules.remove(event.getApartmentId());
+        } else {
+            rules.put(event.getApartmentId(), changed);
+        }
+        compiled.remove(event.getApartmentId());
+    }
+
+    // null — ограничения нет
+    public Integer maxGuests(Long apartmentId) {
+        Base base = bases.get(apartmentId);
+        return base != null ? base.maxGuests : null;
+    }
+
+    // Стоимость ночей [checkIn, checkOut) по закешированной базовой цене
+    public BigDecimal total(Long apartmentId, LocalDate checkIn, LocalDate checkOut) {
+        return BigDecimal.valueOf(nightly(apartmentId, base(apartmentId), checkIn, checkOut, false)[0], 2);
+    }
+
+    // Для брони: базовая цена берётся из загруженной в транзакции квартиры,
+    // а не из кеша, который обновится только после коммита её изменений
+    public BigDecimal total(Apartment apartment, LocalDate checkIn, LocalDate checkOut) {
+        Base base = new Base(toCents(apartment.getPricePerNight()), apartment.getMaxGuests());
+        return BigDecimal.valueOf(nightly(apartment.getId(), base, checkIn, checkOut, false)[0], 2);
+    }
+
+    // Цены каждой ночи [checkIn, checkOut)
+    public List<BigDecimal> nightlyPrices(Long apartmentId, LocalDate checkIn, LocalDate checkOut) {
+        long[] nightly = nightly(apartmentId, base(apartmentId), checkIn, checkOut, true);
+        List<BigDecimal> prices = new ArrayList<>(nightly.length);
+        for (long price : nightly) {
+            prices.add(BigDecimal.valueOf(price, 2));
+        }
+        return prices;
+    }
+
+    private Base base(Long apartmentId) {
+        Base base = bases.get(apartmentId);
+        if (base == null) {
+            throw new RuntimeException("Apartment not found");
+        }
+        return base;
+    }
+
+    // Сумма (perNight = false, массив из одного элемента) или цены по ночам, в копейках
+    private long[] nightly(Long apartmentId, Base base, LocalDate checkIn, LocalDate checkOut, boolean perNight) {
+        long from = checkIn.toEpochDay();
+        long to = checkOut.toEpochDay();
+        int nights = (int) (to - from);
+        long[] result = new long[perNight ? nights : 1];
+        List<Rule> apartmentRules = rules.get(apartmentId);
+        if (apartmentRules == null) {
+            if (perNight) {
+                Arrays.fill(result, base.cents);
+            } else {
+                result[0] = base.cents * nights;
+            }
+            return result;
+        }
+
+        Compiled calendar = calendar(apartmentId, base);
+        long start = from - calendar.origin;
+        long end = to - calendar.origin;
+        if (start >= 0 && end <= horizonDays) {
+            long[] prefix = calendar.prefix;
+            if (perNight) {
+                for (int i = 0; i < nights; i++) {
+                    result[i] = prefix[(int) start + i + 1] - prefix[(int) start + i];
+                }
+            } else {
+                result[0] = prefix[(int) end] - prefix[(int) start];
+            }
+            return result;
+        }
+
+        // Вне окна — по правилам напрямую
+        for (long day = from; day < to; day++) {
+            long price = priceOf(day, base, apartmentRules);
+            if (perNight) {
+                result[(int) (day - from)] = price;
+            } else {
+                result[0] += price;
+            }
+        }
+        return result;
+    }
+
+    // Правила читаются внутри compute: смена правил удаляет календарь уже после их замены
+    private Compiled calendar(Long apartmentId, Base base) {
+        long today = LocalDate.now(clock).toEpochDay();
+        return compiled.compute(apartmentId, (id, current) -> {
+            if (current != null && current.origin == today && current.baseCents == base.cents) {
+                return current;
+            }
+            return compile(today, base, rules.getOrDefault(id, List.of()));
+        });
+    }
+
+    private Compiled compile(long origin, Base base, List<Rule> apartmentRules) {
+        long[] nightly = new long[horizonDays];
+        Arrays.fill(nightly, base.cents);
+        long last = origin + horizonDays - 1;
+        // Правила идут по возрастанию приоритета — более сильное перезаписывает
+        for (Rule rule : apartmentRules) {
+            long from = Math.max(origin, rule.from);
+            long to = Math.min(last, rule.to);
+            for (long day = from; day <= to; day++) {
+                if (rule.matchesDay(day)) {
+                    nightly[(int) (day - origin)] = rule.cents;
+                }
+            }
+        }
+        long[] prefix = new long[horizonDays + 1];
+        for (int i = 0; i < horizonDays; i++) {
+            prefix[i + 1] = prefix[i] + nightly[i];
+        }
+        return new Compiled(origin, base.cents, prefix);
+    }
+
+    private static long priceOf(long day, Base base, List<Rule> apartmentRules) {
+        for (int i = apartmentRules.size() - 1; i >= 0; i--) {
+            Rule rule = apartmentRules.get(i);
+            if (rule.from <= day && day <= rule.to && rule.matchesDay(day)) {
+                return rule.cents;
+            }
+        }
+        return base.cents;
+    }
+
+    private static long toCents(BigDecimal price) {
+        if (price == null) {
+            return 0;
+        }
+        return price.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    private record Base(long cents, Integer maxGuests) {
+    }
+
+    private record Compiled(long origin, long baseCents, long[] prefix) {
+    }
+
+    private record Rule(long from, long to, int daysMask, long cents) {
+
+        static Rule of(PriceRule rule) {
+            return new Rule(
+                    rule.getDateFrom() != null ? rule.getDateFrom().toEpochDay() : Long.MIN_VALUE,
+                    rule.getDateTo() != null ? rule.getDateTo().toEpochDay() : Long.MAX_VALUE,
+                    rule.getDaysOfWeek() != null ? rule.getDaysOfWeek() : 0,
+                    toCents(rule.getPricePerNight()));
+        }
+
+        boolean matchesDay(long epochDay) {
+            if (daysMask == 0) {
+                return true;
+            }
+            // 1970-01-01 — четверг
+            DayOfWeek day = DayOfWeek.of((int) Math.floorMod(epochDay + 3, 7L) + 1);
+            return (daysMask & PriceRule.dayBit(day)) != 0;
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.booking.service;
+
+import com.booking.model.PriceRule;
+import lombok.Value;
+
+import java.util.List;
+
+// Событие об изменении правил цены квартиры; rules — все её правила после изменения
+@Value
+public class PriceRulesChangedEvent {
+    Long apartmentId;
+    List<PriceRule> rules;
+}
@@ -21,6 +21,7 @@ public class RatingService {
     private final RatingRepository ratingRepository;
     private final UserRepository userRepository;
     private final BookingRepository bookingRepository;
+    private final ReplicaRouting replicaRouting;
 
     @Transactional
     public RatingDTO createRating(RatingRequestDTO request, Long raterId) {
@@ -63,6 +64,7 @@ public class RatingService {
         }
 
         Rating savedRating = ratingRepository.save(rating);
+        replicaRouting.recordWrite(ReplicaRouting.user(ratedUser.getId()));
         
         // Обновляем репутацию пользователя
         updateUserReputation(ratedUser.getId());
@@ -70,13 +72,17 @@ public class RatingService {
         return RatingDTO.fromEntity(savedRating);
     }
 
+    @Transactional(readOnly = true)
     public List<RatingDTO> getRatingsByUser(Long userId) {
+        replicaRouting.readingAs(ReplicaRouting.user(userId));
         return ratingRepository.findByRatedUserId(userId).stream()
                 .map(RatingDTO::fromEntity)
                 .collect(Collectors.toList());
     }
 
+    @Transactional(readOnly = true)
     public List<RatingDTO> getRatingsByUserAndType(Long userId, Rating.RatingType type) {
+        replicaRouting.readingAs(ReplicaRouting.user(userId));
         return ratingRepository.findByRatedUserIdAndType(userId, type).stream()
                 .map(RatingDTO::fromEntity)
                 .collect(Collectors.toList());
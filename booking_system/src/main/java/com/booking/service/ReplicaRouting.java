@@ -0,0 +1,255 @@
+package com.booking.service;
+
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Выбор БД для соединения: read-only транзакции HTTP-запросов идут на реплики по кругу,
+// всё остальное (записи, фоновые задачи, построение индексов при старте) — на основную БД.
+// Реплика получает чтения, только пока её отставание по lag-query не больше max-lag-ms;
+// до первой проверки и при ошибке проверки чтения идут на основную БД.
+// Чтение после своей записи: ключи записанных данных (user:, booking:, apartment:) помнятся
+// sticky-ms после коммита, и read-only транзакция, объявившая такой ключ, читает с основной БД.
+@Slf4j
+@Component
+public class ReplicaRouting {
+
+    public static final String PRIMARY = "primary";
+
+    private final long maxLagMillis;
+    private final long stickyMillis;
+    private final String lagQuery;
+
+    private volatile List<Replica> replicas = List.of();
+    private final AtomicInteger next = new AtomicInteger();
+    // Ключ записанных данных -> до какого момента читать его с основной БД
+    private final Map<String, Long> sticky = new ConcurrentHashMap<>();
+    // Ключи, объявленные текущей read-only транзакцией
+    private final ThreadLocal<Collection<String>> reading = new ThreadLocal<>();
+
+    private final AtomicLong replicaReads = new AtomicLong();
+    private final AtomicLong stickyReads = new AtomicLong();
+    private final AtomicLong lagFallbacks = new AtomicLong();
+
+    public ReplicaRouting(@Value("${booking.datasource.replica.max-lag-ms:1000}") long maxLagMillis,
+                          @Value("${booking.datasource.replica.sticky-ms:5000}") long stickyMillis,
+                          @Value("${booking.datasource.replica.lag-query:}") String lagQuery) {
+        this.maxLagMillis = maxLagMillis;
+        this.stickyMillis = stickyMillis;
+        this.lagQuery = lagQuery;
+    }
+
+    public static String user(Long id) {
+        return "user:" + id;
+    }
+
+    public static String booking(Long id) {
+        return "booking:" + id;
+    }
+
+    public static String apartment(Long id) {
+        return "apartment:" + id;
+    }
+
+    // Пулы реплик по ключам маршрутизации; вызывается при создании DataSource
+    public void register(Map<String, DataSource> replicaPools) {
+        List<Replica> registered = new ArrayList<>();
+        replicaPools.forEach((key, dataSource) -> registered.add(new Replica(key, dataSource)));
+        replicas = List.copyOf(registered);
+    }
+
+    // Ключ маршрутизации для соединения, которое берётся прямо сейчас
+    public String route() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+                || RequestContextHolder.getRequestAttributes() == null) {
+            return PRIMARY;
+        }
+        List<Replica> current = replicas;
+        if (current.isEmpty()) {
+            return PRIMARY;
+        }
+        Collection<String> keys = reading.get();
+        if (keys != null && isSticky(keys)) {
+            stickyReads.incrementAndGet();
+            return PRIMARY;
+        }
+        for (int i = 0; i < current.size(); i++) {
+            Replica replica = current.get(Math.floorMod(next.getAndIncrement(), current.size()));
+            if (replica.healthy) {
+                replicaReads.incrementAndGet();
+                return replica.key;
+            }
+        }
+        lagFallbacks.incrementAndGet();
+        return PRIMARY;
+    }
+
+    // Объявить, чьи данные читает текущая read-only транзакция.
+    // Вызывать до первого запроса к БД в транзакции: соединение берётся при первом запросе.
+    public void readingAs(String key) {
+        readingAs(List.of(key));
+    }
+
+    public void readingAs(Collection<String> keys) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        reading.set(keys);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                reading.remove();
+            }
+        });
+    }
+
+    // Данные под ключом изменены в текущей транзакции: после коммита их чтения идут на основную БД
+    public void recordWrite(String key) {
+        recordWrites(List.of(key));
+    }
+
+    // Пачка ключей — одна синхронизация на транзакцию
+    public void recordWrites(Collection<String> keys) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            markSticky(keys);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                markSticky(keys);
+            }
+        });
+    }
+
+    private void markSticky(Collection<String> keys) {
+        long until = System.currentTimeMillis() + stickyMillis;
+        for (String key : keys) {
+            sticky.put(key, until);
+        }
+    }
+
+    @EventListener
+    public void onBookingChanged(BookingChangedEvent event) {
+        recordWrite(booking(event.getBookingId()));
+        recordWrite(user(event.getClientId()));
+        recordWrite(apartment(event.getApartmentId()));
+    }
+
+    @EventListener
+    public void onBookingsChanged(BookingBatchChangedEvent event) {
+        Set<String> keys = new HashSet<>();
+        for (BookingChangedEvent change : event.getChanges()) {
+            keys.add(booking(change.getBookingId()));
+            keys.add(user(change.getClientId()));
+            keys.add(apartment(change.getApartmentId()));
+        }
+        recordWrites(keys);
+    }
+
+    @EventListener
+    public void onApartmentChanged(ApartmentChangedEvent event) {
+        recordWrite(apartment(event.getApartment().getId()));
+        if (event.getApartment().getOwner() != null) {
+            recordWrite(user(event.getApartment().getOwner().getId()));
+        }
+    }
+
+    private boolean isSticky(Collection<String> keys) {
+        long now = System.currentTimeMillis();
+        for (String key : keys) {
+            Long until = sticky.get(key);
+            if (until != null && until > now) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Без lag-query проверяется только доступность реплики
+    @Scheduled(fixedDelayString = "${booking.datasource.replica.check-ms:1000}")
+    public void checkReplicas() {
+        for (Replica replica : replicas) {
+            boolean healthy;
+            try {
+                JdbcTemplate jdbc = new JdbcTemplate(replica.dataSource);
+                Long lag = lagQuery.isBlank()
+                        ? jdbc.queryForObject("SELECT 0", Long.class)
+                        : jdbc.queryForObject(lagQuery, Long.class);
+                replica.lagMillis = lag != null ? lag : 0;
+                healthy = replica.lagMillis <= maxLagMillis;
+            } catch (RuntimeException e) {
+                replica.lagMillis = -1;
+                healthy = false;
+            }
+            if (healthy != replica.healthy) {
+                log.info("Replica {} is now {} (lag {} ms)", replica.key, healthy ? "in rotation" : "out of rotation",
+                        replica.lagMillis);
+            }
+            replica.healthy = healthy;
+        }
+        long now = System.currentTimeMillis();
+        sticky.values().removeIf(until -> until <= now);
+    }
+
+    public Map<String, Object> stats() {
+        List<Map<String, Object>> states = new ArrayList<>();
+        for (Replica replica : replicas) {
+            Map<String, Object> state = new LinkedHashMap<>();
+            state.put("key", replica.key);
+            state.put("healthy", replica.healthy);
+            state.put("lagMillis", replica.lagMillis);
+            states.add(state);
+        }
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("replicas", states);
+        stats.put("maxLagMillis", maxLagMillis);
+        stats.put("stickyMillis", stickyMillis);
+        stats.put("stickyKeys", sticky.size());
+        stats.put("replicaReads", replicaReads.get());
+        stats.put("stickyReads", stickyReads.get());
+        stats.put("lagFallbacks", lagFallbacks.get());
+        return stats;
+    }
+
+    @PreDestroy
+    public void close() {
+        for (Replica replica : replicas) {
+            if (replica.dataSource instanceof HikariDataSource hikari) {
+                hikari.close();
+            }
+        }
+    }
+
+    private static final class Replica {
+        final String key;
+        final DataSource dataSource;
+        volatile boolean healthy;
+        volatile long lagMillis = -1;
+
+        Replica(String key, DataSource dataSource) {
+            this.key = key;
+            this.dataSource = dataSource;
+        }
+    }
+}
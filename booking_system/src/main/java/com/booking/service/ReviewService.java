@@ -11,6 +11,7 @@ import com.booking.repository.BookingRepository;
 import com.booking.repository.ReviewRepository;
 import com.booking.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -24,6 +25,8 @@ public class ReviewService {
     private final ApartmentRepository apartmentRepository;
     private final UserRepository userRepository;
     private final BookingRepository bookingRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ReplicaRouting replicaRouting;
 
     @Transactional
     public ReviewDTO createReview(ReviewRequestDTO request, Long reviewerId) {
@@ -61,6 +64,10 @@ public class ReviewService {
         // Note: Review model doesn't have booking field based on the entity
 
         Review savedReview = reviewRepository.save(review);
+        replicaRouting.recordWrite(ReplicaRouting.apartment(apartment.getId()));
+        if (reviewedOwner != null) {
+            replicaRouting.recordWrite(ReplicaRouting.user(reviewedOwner.getId()));
+        }
         
         // Обновляем рейтинг квартиры
         updateApartmentRating(apartment.getId());
@@ -73,7 +80,9 @@ public class ReviewService {
         return ReviewDTO.fromEntity(savedReview);
     }
 
+    @Transactional(readOnly = true)
     public List<ReviewDTO> getReviewsByApartment(Long apartmentId) {
+        replicaRouting.readingAs(ReplicaRouting.apartment(apartmentId));
         Apartment apartment = apartmentRepository.findById(apartmentId)
                 .orElseThrow(() -> new RuntimeException("Apartment not found"));
         return reviewRepository.findByTargetApartment(apartment).stream()
@@ -81,7 +90,9 @@ public class ReviewService {
                 .collect(Collectors.toList());
     }
 
+    @Transactional(readOnly = true)
     public List<ReviewDTO> getReviewsByOwner(Long ownerId) {
+        replicaRouting.readingAs(ReplicaRouting.user(ownerId));
         User owner = userRepository.findById(ownerId)
                 .orElseThrow(() -> new RuntimeException("Owner not found"));
         return reviewRepository.findByTargetUser(owner).stream()
@@ -103,6 +114,7 @@ public class ReviewService {
             apartment.setAverageRating(average);
             apartment.setReviewsCount(reviews.size());
             apartmentRepository.save(apartment);
+            eventPublisher.publishEvent(new ApartmentChangedEvent(apartment));
         }
     }
 
@@ -0,0 +1,308 @@
+package com.booking.service;
+
+import com.booking.model.Apartment;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Date;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+// Сетка номеров: сколько номеров квартиры/отеля продано на каждую ночь на horizon-days вперёд.
+// Продажи — AtomicIntegerArray на квартиру, бронь занимает по номеру на каждую ночь через CAS,
+// всё или ничего. Ночь отображается в слот кольца по epochDay % ёмкость, как в AvailabilityCalendar.
+// Сетка заводится лениво — при первой продаже или при старте для квартир со строками в room_nights;
+// у остальных все номера свободны. Число номеров помнится только для квартир, где их больше одного.
+// Проданные номера дублируются в room_nights пакетными UPDATE/INSERT в той же транзакции,
+// что и бронь; при старте сетка читается оттуда.
+@Slf4j
+@Component
+public class RoomInventory {
+
+    // Запас слотов кольца сверх горизонта: столько дней сдвиг окна может опоздать
+    private static final int SLACK_DAYS = 7;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NotificationService notificationService;
+    private final BookingLocks bookingLocks;
+    private final Clock clock;
+    private final int horizonDays;
+    private final int capacity;
+
+    // apartmentId -> номеров, только если больше одного
+    private final Map<Long, Integer> multiUnits = new ConcurrentHashMap<>();
+    private final Map<Long, Grid> grids = new ConcurrentHashMap<>();
+    private volatile long origin;
+
+    public RoomInventory(JdbcTemplate jdbcTemplate,
+                         NotificationService notificationService,
+                         BookingLocks bookingLocks,
+                         Clock clock,
+                         @Value("${booking.calendar.horizon-days:730}") int horizonDays) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.notificationService = notificationService;
+        this.bookingLocks = bookingLocks;
+        this.clock = clock;
+        this.horizonDays = horizonDays;
+        this.capacity = horizonDays + SLACK_DAYS;
+        this.origin = LocalDate.now(clock).toEpochDay();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        long today = LocalDate.now(clock).toEpochDay();
+        Map<Long, Integer> loadedUnits = new HashMap<>();
+        jdbcTemplate.query("SELECT id, total_rooms FROM apartments WHERE total_rooms > 1", rs -> {
+            loadedUnits.put(rs.getLong("id"), rs.getInt("total_rooms"));
+        });
+        Map<Long, Grid> loaded = new HashMap<>();
+        int[] nights = {0};
+        jdbcTemplate.query("SELECT apartment_id, night, booked FROM room_nights WHERE night >= ? AND night < ? AND booked > 0", rs -> {
+            long day = rs.getDate("night").toLocalDate().toEpochDay();
+            loaded.computeIfAbsent(rs.getLong("apartment_id"), id -> new Grid())
+                    .booked.set(slot(day), rs.getInt("booked"));
+            nights[0]++;
+        }, Date.valueOf(LocalDate.ofEpochDay(today)), Date.valueOf(LocalDate.ofEpochDay(today + horizonDays)));
+
+        origin = today;
+        multiUnits.clear();
+        multiUnits.putAll(loadedUnits);
+        grids.clear();
+        grids.putAll(loaded);
+        log.info("Room inventory loaded: {} multi-room apartments, {} grids, {} sold nights",
+                loadedUnits.size(), loaded.size(), nights[0]);
+    }
+
+    // Сдвиг окна: слоты прошедших ночей освобождаются под новые дни в конце горизонта
+    @Scheduled(cron = "${booking.calendar.rollover-cron:0 5 0 * * *}")
+    public void rollover() {
+        long today = LocalDate.now(clock).toEpochDay();
+        long previous = origin;
+        if (today - previous >= SLACK_DAYS) {
+            load();
+        } else if (today > previous) {
+            for (Grid grid : grids.values()) {
+                for (long day = previous; day < today; day++) {
+                    grid.booked.set(slot(day), 0);
+                }
+            }
+            origin = today;
+        }
+        int deleted = jdbcTemplate.update("DELETE FROM room_nights WHERE night < ?", Date.valueOf(LocalDate.ofEpochDay(today)));
+        log.info("Room inventory rolled over to {}, {} past nights removed", LocalDate.ofEpochDay(today), deleted);
+    }
+
+    // Смена числа номеров: сетка хранит проданные номера, поэтому меняется только число номеров.
+    // Под блокировкой квартиры — чтобы не разойтись с бронью, которая сейчас списывает номера.
+    // После коммита отелю (больше одного номера) отправляется остаток номеров на сегодня.
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onApartmentChanged(ApartmentChangedEvent event) {
+        Apartment apartment = event.getApartment();
+        int units = units(apartment.getTotalRooms());
+        bookingLocks.withApartment(apartment.getId(), () -> {
+            if (units > 1) {
+                multiUnits.put(apartment.getId(), units);
+            } else {
+                multiUnits.remove(apartment.getId());
+            }
+            return null;
+        });
+        if (units > 1) {
+            notificationService.sendHotelInfoUpdate(apartment.getId(),
+                    remaining(apartment.getId(), LocalDate.now(clock)), units);
+        }
+    }
+
+    // Списывает по номеру на каждую ночь [checkIn, checkOut); false — хотя бы на одну ночь мест нет.
+    // Вызывать внутри транзакции брони под bookingLocks.withApartment: при откате номера
+    // возвращаются в сетку, а запись room_nights для квартиры идёт по очереди.
+    public boolean reserve(Apartment apartment, LocalDate checkIn, LocalDate checkOut) {
+        long from = checkIn.toEpochDay();
+        long to = checkOut.toEpochDay();
+        long start = origin;
+        if (from < start) {
+            throw new RuntimeException("checkIn is in the past");
+        }
+        if (to > start + horizonDays) {
+            throw new RuntimeException("Bookings are accepted up to " + horizonDays + " days ahead");
+        }
+
+        // Число номеров — из загруженной в транзакции квартиры
+        int units = units(apartment.getTotalRooms());
+        Grid grid = grids.computeIfAbsent(apartment.getId(), id -> new Grid());
+        for (long day = from; day < to; day++) {
+            if (!grid.take(slot(day), units)) {
+                for (long taken = from; taken < day; taken++) {
+                    grid.give(slot(taken));
+                }
+                return false;
+            }
+        }
+
+        persist(apartment.getId(), from, to, 1);
+        afterCompletion(apartment.getId(), from, to, false);
+        return true;
+    }
+
+    // Возвращает номера брони в сетку после коммита. Вызывать под bookingLocks.withApartment, как reserve.
+    public void release(Long apartmentId, LocalDate checkIn, LocalDate checkOut) {
+        long from = Math.max(checkIn.toEpochDay(), origin);
+        long to = Math.min(checkOut.toEpochDay(), origin + horizonDays);
+        if (from >= to) {
+            return;
+        }
+        persist(apartmentId, from, to, -1);
+        afterCompletion(apartmentId, from, to, true);
+    }
+
+    // Есть ли хотя бы один свободный номер на каждую ночь [checkIn, checkOut)
+    public boolean isAvailable(Long apartmentId, LocalDate checkIn, LocalDate checkOut) {
+        long from = checkIn.toEpochDay();
+        long to = checkOut.toEpochDay();
+        long start = origin;
+        if (from < start || to > start + horizonDays) {
+            return false;
+        }
+        Grid grid = grids.get(apartmentId);
+        if (grid == null) {
+            return true;
+        }
+        int units = units(apartmentId);
+        for (long day = from; day < to; day++) {
+            if (grid.booked.get(slot(day)) >= units) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Свободные номера на ночь; за пределами окна сетка не ведётся — все номера
+    public int remaining(Long apartmentId, LocalDate night) {
+        int units = units(apartmentId);
+        Grid grid = grids.get(apartmentId);
+        long day = night.toEpochDay();
+        long start = origin;
+        if (grid == null || day < start || day >= start + horizonDays) {
+            return units;
+        }
+        return Math.max(0, units - grid.booked.get(slot(day)));
+    }
+
+    public int units(Long apartmentId) {
+        return multiUnits.getOrDefault(apartmentId, 1);
+    }
+
+    // Пакетная запись: UPDATE существующих ночей, INSERT тех, которых ещё нет
+    private void persist(Long apartmentId, long from, long to, int delta) {
+        List<Object[]> updates = new ArrayList<>();
+        for (long day = from; day < to; day++) {
+            updates.add(new Object[]{delta, apartmentId, Date.valueOf(LocalDate.ofEpochDay(day))});
+        }
+        int[] counts = jdbcTemplate.batchUpdate(
+                "UPDATE room_nights SET booked = booked + ? WHERE apartment_id = ? AND night = ?", updates);
+        if (delta <= 0) {
+            return;
+        }
+        List<Object[]> inserts = new ArrayList<>();
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] == 0) {
+                inserts.add(new Object[]{apartmentId, updates.get(i)[2], delta});
+            }
+        }
+        if (!inserts.isEmpty()) {
+            jdbcTemplate.batchUpdate("INSERT INTO room_nights (apartment_id, night, booked) VALUES (?, ?, ?)", inserts);
+        }
+    }
+
+    // Списание откатывается, если транзакция брони не закоммитилась; возврат применяется только после коммита.
+    // Об изменении остатка на сегодня сообщаем через WebSocket.
+    private void afterCompletion(Long apartmentId, long from, long to, boolean release) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            if (release) {
+                give(apartmentId, from, to);
+            }
+            notifyIfTonight(apartmentId, from, to);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                boolean committed = status == STATUS_COMMITTED;
+                if (committed == release) {
+                    give(apartmentId, from, to);
+                }
+                if (committed) {
+                    notifyIfTonight(apartmentId, from, to);
+                }
+            }
+        });
+    }
+
+    private void give(Long apartmentId, long from, long to) {
+        Grid grid = grids.get(apartmentId);
+        if (grid == null) {
+            return;
+        }
+        long start = Math.max(from, origin);
+        for (long day = start; day < to; day++) {
+            grid.give(slot(day));
+        }
+    }
+
+    // Только для отелей: у квартиры из одного номера остаток на сегодня не показывается
+    private void notifyIfTonight(Long apartmentId, long from, long to) {
+        long today = LocalDate.now(clock).toEpochDay();
+        int units = units(apartmentId);
+        if (units > 1 && from <= today && today < to) {
+            notificationService.sendHotelInfoUpdate(apartmentId, remaining(apartmentId, LocalDate.ofEpochDay(today)), units);
+        }
+    }
+
+    private int slot(long epochDay) {
+        return (int) Math.floorMod(epochDay, (long) capacity);
+    }
+
+    private static int units(Integer totalRooms) {
+        return totalRooms != null && totalRooms > 0 ? totalRooms : 1;
+    }
+
+    // Проданные номера по слотам кольца; новая сетка — ничего не продано
+    private final class Grid {
+        final AtomicIntegerArray booked = new AtomicIntegerArray(capacity);
+
+        boolean take(int slot, int units) {
+            while (true) {
+                int current = booked.get(slot);
+                if (current >= units) {
+                    return false;
+                }
+                if (booked.compareAndSet(slot, current, current + 1)) {
+                    return true;
+                }
+            }
+        }
+
+        void give(int slot) {
+            while (true) {
+                int current = booked.get(slot);
+                if (current <= 0 || booked.compareAndSet(slot, current, current - 1)) {
+                    return;
+                }
+            }
+        }
+    }
+}
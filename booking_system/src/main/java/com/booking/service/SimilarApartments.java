@@ -0,0 +1,365 @@
+package com.booking.service;
+
+import com.booking.model.Amenity;
+import com.booking.model.Apartment;
+import com.booking.repository.ApartmentRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import jakarta.annotation.PreDestroy;
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// Похожие квартиры: заранее посчитанные top-K ближайших соседей для каждой квартиры.
+// Квартира — числовой вектор (цена, комнаты, гости, кровати, ванные, рейтинг, удобства),
+// признаки нормированы по каталогу; расстояние — евклидово. Соседи ищутся в том же городе,
+// другие города добавляются со штрафом, только если в своём меньше K квартир.
+// Полный пересчёт — фоновая fork-join задача; создание квартиры и смена рейтинга
+// пересчитывают только затронутые списки. Запрос соседей — чтение готового массива.
+@Slf4j
+@Component
+public class SimilarApartments {
+
+    private static final float PRICE_WEIGHT = 2.0f;
+    private static final float SIZE_WEIGHT = 1.0f;
+    private static final float RATING_WEIGHT = 0.5f;
+    private static final float AMENITY_WEIGHT = 0.35f;
+    private static final float CITY_PENALTY = 100f;
+    private static final int SPLIT_THRESHOLD = 64;
+    private static final Amenity[] AMENITIES = Amenity.values();
+
+    private final ApartmentRepository apartmentRepository;
+    private final int k;
+    private final ForkJoinPool pool;
+
+    private final Object writeLock = new Object();
+    private volatile Scale scale = Scale.IDENTITY;
+    private volatile Map<Long, Item> items = new ConcurrentHashMap<>();
+    private volatile Map<String, Set<Long>> byCity = new ConcurrentHashMap<>();
+    private volatile Map<Long, Neighbours> neighbours = new ConcurrentHashMap<>();
+    // Изменения, пришедшие во время полного пересчёта, применяются после него
+    private Map<Long, Apartment> pending;
+
+    public SimilarApartments(ApartmentRepository apartmentRepository,
+                             @Value("${booking.similar.neighbours:10}") int k,
+                             @Value("${booking.similar.parallelism:0}") int parallelism) {
+        this.apartmentRepository = apartmentRepository;
+        this.k = k;
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    // Старт приложения не ждёт пересчёта: до его окончания список соседей пуст
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildInBackground() {
+        pool.execute(this::rebuild);
+    }
+
+    // Ночной пересчёт заодно обновляет нормировку признаков
+    @Scheduled(cron = "${booking.similar.rebuild-cron:0 30 3 * * *}")
+    public void rebuild() {
+        synchronized (writeLock) {
+            if (pending != null) {
+                return;
+            }
+            pending = new LinkedHashMap<>();
+        }
+        try {
+            long started = System.currentTimeMillis();
+            List<Apartment> apartments = apartmentRepository.findAll();
+            Scale builtScale = Scale.of(apartments);
+            Map<Long, Item> builtItems = new ConcurrentHashMap<>();
+            Map<String, Set<Long>> builtByCity = new ConcurrentHashMap<>();
+            for (Apartment apartment : apartments) {
+                Item item = new Item(apartment, builtScale);
+                builtItems.put(item.id, item);
+                builtByCity.computeIfAbsent(item.city, c -> ConcurrentHashMap.newKeySet()).add(item.id);
+            }
+
+            Item[] all = builtItems.values().toArray(new Item[0]);
+            Map<Long, Neighbours> builtNeighbours = new ConcurrentHashMap<>();
+            pool.invoke(new NeighbourTask(all, 0, all.length, builtItems, builtByCity, builtNeighbours));
+
+            synchronized (writeLock) {
+                scale = builtScale;
+                items = builtItems;
+                byCity = builtByCity;
+                neighbours = builtNeighbours;
+                Map<Long, Apartment> changed = pending;
+                pending = null;
+                changed.values().forEach(this::apply);
+            }
+            log.info("Similar apartments built: {} apartments, top-{} in {} ms",
+                    all.length, k, System.currentTimeMillis() - started);
+        } catch (RuntimeException e) {
+            synchronized (writeLock) {
+                pending = null;
+            }
+            throw e;
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onApartmentChanged(ApartmentChangedEvent event) {
+        Apartment apartment = event.getApartment();
+        synchronized (writeLock) {
+            if (pending != null) {
+                pending.put(apartment.getId(), apartment);
+            }
+            apply(apartment);
+        }
+    }
+
+    // id соседей по возрастанию расстояния, без архивных
+    public List<Long> similar(Long id, int limit) {
+        Neighbours list = neighbours.get(id);
+        if (list == null) {
+            return List.of();
+        }
+        Map<Long, Item> current = items;
+        List<Long> result = new ArrayList<>(Math.min(limit, list.ids().length));
+        for (int i = 0; i < list.ids().length && result.size() < limit; i++) {
+            Item item = current.get(list.ids()[i]);
+            if (item != null && item.status != Apartment.ApartmentStatus.ARCHIVED) {
+                result.add(item.id);
+            }
+        }
+        return result;
+    }
+
+    private void apply(Apartment apartment) {
+        Item updated = new Item(apartment, scale);
+        Item previous = items.put(updated.id, updated);
+        if (previous != null && previous.city.equals(updated.city)
+                && Arrays.equals(previous.vector, updated.vector)) {
+            // Сменился только статус (бронирование, заселение) — соседи те же
+            return;
+        }
+        if (previous != null && !previous.city.equals(updated.city)) {
+            Set<Long> ids = byCity.get(previous.city);
+            if (ids != null) {
+                ids.remove(updated.id);
+            }
+        }
+        byCity.computeIfAbsent(updated.city, c -> ConcurrentHashMap.newKeySet()).add(updated.id);
+        neighbours.put(updated.id, compute(updated, items, byCity));
+
+        // Списки, где квартира уже была, пересчитываем; в остальные она может только войти
+        for (Item other : items.values()) {
+            if (other.id.equals(updated.id)) {
+                continue;
+            }
+            Neighbours list = neighbours.get(other.id);
+            if (list == null || list.contains(updated.id) || list.ids().length < k) {
+                neighbours.put(other.id, compute(other, items, byCity));
+            } else if (updated.status != Apartment.ApartmentStatus.ARCHIVED) {
+                float distance = distance(other, updated);
+                if (distance < list.distances()[list.ids().length - 1]) {
+                    neighbours.put(other.id, list.with(updated.id, distance, k));
+                }
+            }
+        }
+    }
+
+    private Neighbours compute(Item item, Map<Long, Item> all, Map<String, Set<Long>> cities) {
+        // Max-heap по расстоянию: в вершине худший из K лучших
+        PriorityQueue<Candidate> heap = new PriorityQueue<>(k + 1, Comparator.comparingDouble(Candidate::distance).reversed());
+        Set<Long> sameCity = cities.getOrDefault(item.city, Set.of());
+        for (Long id : sameCity) {
+            offer(heap, item, all.get(id));
+        }
+        if (heap.size() < k) {
+            for (Item other : all.values()) {
+                if (!other.city.equals(item.city)) {
+                    offer(heap, item, other);
+                }
+            }
+        }
+
+        Candidate[] sorted = heap.toArray(new Candidate[0]);
+        Arrays.sort(sorted, Comparator.comparingDouble(Candidate::distance).thenComparing(Candidate::id));
+        long[] ids = new long[sorted.length];
+        float[] distances = new float[sorted.length];
+        for (int i = 0; i < sorted.length; i++) {
+            ids[i] = sorted[i].id();
+            distances[i] = sorted[i].distance();
+        }
+        return new Neighbours(ids, distances);
+    }
+
+    private void offer(PriorityQueue<Candidate> heap, Item item, Item other) {
+        if (other == null || other.id.equals(item.id) || other.status == Apartment.ApartmentStatus.ARCHIVED) {
+            return;
+        }
+        float distance = distance(item, other);
+        if (heap.size() < k) {
+            heap.add(new Candidate(other.id, distance));
+        } else if (distance < heap.peek().distance()) {
+            heap.poll();
+            heap.add(new Candidate(other.id, distance));
+        }
+    }
+
+    private static float distance(Item a, Item b) {
+        float sum = 0;
+        for (int i = 0; i < a.vector.length; i++) {
+            float d = a.vector[i] - b.vector[i];
+            sum += d * d;
+        }
+        float distance = (float) Math.sqrt(sum);
+        return a.city.equals(b.city) ? distance : distance + CITY_PENALTY;
+    }
+
+    // Делит массив квартир пополам, пока кусок не станет меньше SPLIT_THRESHOLD
+    private final class NeighbourTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Item[] all;
+        private final int from;
+        private final int to;
+        private final Map<Long, Item> byId;
+        private final Map<String, Set<Long>> cities;
+        private final Map<Long, Neighbours> result;
+
+        NeighbourTask(Item[] all, int from, int to, Map<Long, Item> byId,
+                      Map<String, Set<Long>> cities, Map<Long, Neighbours> result) {
+            this.all = all;
+            this.from = from;
+            this.to = to;
+            this.byId = byId;
+            this.cities = cities;
+            this.result = result;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= SPLIT_THRESHOLD) {
+                for (int i = from; i < to; i++) {
+                    result.put(all[i].id, SimilarApartments.this.compute(all[i], byId, cities));
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new NeighbourTask(all, from, middle, byId, cities, result),
+                    new NeighbourTask(all, middle, to, byId, cities, result));
+        }
+    }
+
+    private record Candidate(long id, float distance) {
+    }
+
+    // Отсортированный по расстоянию список соседей; неизменяемый
+    private record Neighbours(long[] ids, float[] distances) {
+        boolean contains(long id) {
+            for (long neighbour : ids) {
+                if (neighbour == id) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        Neighbours with(long id, float distance, int k) {
+            int position = 0;
+            while (position < ids.length && distances[position] <= distance) {
+                position++;
+            }
+            int n = Math.min(ids.length + 1, k);
+            long[] newIds = new long[n];
+            float[] newDistances = new float[n];
+            System.arraycopy(ids, 0, newIds, 0, Math.min(position, n));
+            System.arraycopy(distances, 0, newDistances, 0, Math.min(position, n));
+            if (position < n) {
+                newIds[position] = id;
+                newDistances[position] = distance;
+                System.arraycopy(ids, position, newIds, position + 1, n - position - 1);
+                System.arraycopy(distances, position, newDistances, position + 1, n - position - 1);
+            }
+            return new Neighbours(newIds, newDistances);
+        }
+    }
+
+    // Нормировка признаков min-max по каталогу; цена — в логарифмической шкале
+    private record Scale(float minPrice, float maxPrice, float[] minSize, float[] maxSize) {
+        static final Scale IDENTITY = new Scale(0, 1, new float[4], new float[]{1, 1, 1, 1});
+
+        static Scale of(List<Apartment> apartments) {
+            float minPrice = Float.MAX_VALUE;
+            float maxPrice = -Float.MAX_VALUE;
+            float[] min = {Float.MAX_VALUE, Float.MAX_VALUE, Float.MAX_VALUE, Float.MAX_VALUE};
+            float[] max = {-Float.MAX_VALUE, -Float.MAX_VALUE, -Float.MAX_VALUE, -Float.MAX_VALUE};
+            for (Apartment apartment : apartments) {
+                float price = logPrice(apartment.getPricePerNight());
+                minPrice = Math.min(minPrice, price);
+                maxPrice = Math.max(maxPrice, price);
+                float[] size = sizes(apartment);
+                for (int i = 0; i < size.length; i++) {
+                    min[i] = Math.min(min[i], size[i]);
+                    max[i] = Math.max(max[i], size[i]);
+                }
+            }
+            if (apartments.isEmpty()) {
+                return IDENTITY;
+            }
+            return new Scale(minPrice, maxPrice, min, max);
+        }
+
+        static float normalize(float value, float min, float max) {
+            return max > min ? (value - min) / (max - min) : 0f;
+        }
+    }
+
+    private static float logPrice(BigDecimal price) {
+        return price != null ? (float) Math.log1p(price.doubleValue()) : 0f;
+    }
+
+    private static float[] sizes(Apartment apartment) {
+        return new float[]{
+                valueOf(apartment.getRooms()),
+                valueOf(apartment.getMaxGuests()),
+                valueOf(apartment.getBeds()),
+                valueOf(apartment.getBathrooms())
+        };
+    }
+
+    private static float valueOf(Integer value) {
+        return value != null ? value : 0f;
+    }
+
+    private static final class Item {
+        final Long id;
+        final String city;
+        final Apartment.ApartmentStatus status;
+        final float[] vector;
+
+        Item(Apartment apartment, Scale scale) {
+            id = apartment.getId();
+            city = apartment.getCity() != null ? apartment.getCity().trim().toLowerCase(Locale.ROOT) : "";
+            status = apartment.getStatus();
+
+            float[] size = sizes(apartment);
+            int amenities = apartment.getAmenities() != null ? apartment.getAmenities() : 0;
+            vector = new float[2 + size.length + AMENITIES.length];
+            vector[0] = PRICE_WEIGHT * Scale.normalize(logPrice(apartment.getPricePerNight()), scale.minPrice(), scale.maxPrice());
+            for (int i = 0; i < size.length; i++) {
+                vector[1 + i] = SIZE_WEIGHT * Scale.normalize(size[i], scale.minSize()[i], scale.maxSize()[i]);
+            }
+            vector[1 + size.length] = RATING_WEIGHT * (float) (apartment.getAverageRating() / 5.0);
+            for (Amenity amenity : AMENITIES) {
+                vector[2 + size.length + amenity.ordinal()] = amenity.isIn(amenities) ? AMENITY_WEIGHT : 0f;
+            }
+        }
+    }
+}
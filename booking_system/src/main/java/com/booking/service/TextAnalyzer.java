@@ -0,0 +1,249 @@
+package com.booking.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Разбор текста для полнотекстового поиска: токенизация, стоп-слова и стемминг.
+// Для кириллицы — алгоритм Snowball (Russian), для латиницы — облегчённый английский стеммер.
+public final class TextAnalyzer {
+
+    private static final Pattern WORD = Pattern.compile("[\\p{L}\\p{N}]+");
+
+    private static final Set<String> STOP_WORDS = Set.of(
+            "a", "an", "and", "the", "of", "in", "on", "at", "to", "for", "with", "is", "are", "by", "from",
+            "и", "в", "во", "на", "с", "со", "к", "по", "из", "у", "о", "об", "от", "для", "до", "за", "не", "а", "но", "или");
+
+    private TextAnalyzer() {
+    }
+
+    // Токен исходного текста с позицией — нужен для подсветки сниппетов
+    public record Token(String term, int start, int end) {
+    }
+
+    public static List<Token> tokens(String text) {
+        List<Token> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        Matcher matcher = WORD.matcher(text);
+        while (matcher.find()) {
+            String word = normalize(matcher.group());
+            if (!STOP_WORDS.contains(word)) {
+                tokens.add(new Token(stem(word), matcher.start(), matcher.end()));
+            }
+        }
+        return tokens;
+    }
+
+    public static List<String> terms(String text) {
+        List<String> terms = new ArrayList<>();
+        for (Token token : tokens(text)) {
+            terms.add(token.term());
+        }
+        return terms;
+    }
+
+    public static String normalize(String word) {
+        return word.toLowerCase(Locale.ROOT).replace('ё', 'е');
+    }
+
+    public static String stem(String word) {
+        if (word.length() < 3) {
+            return word;
+        }
+        char first = word.charAt(0);
+        if (first >= 'а' && first <= 'я') {
+            return RussianStemmer.stem(word);
+        }
+        if (first >= 'a' && first <= 'z') {
+            return EnglishStemmer.stem(word);
+        }
+        return word;
+    }
+
+    // Snowball Russian stemmer
+    static final class RussianStemmer {
+        private static final String VOWELS = "аеиоуыэюя";
+
+        private static final String[] PERFECTIVE_GERUND_1 = {"вшись", "вши", "в"};
+        private static final String[] PERFECTIVE_GERUND_2 = {"ившись", "ывшись", "ивши", "ывши", "ив", "ыв"};
+        private static final String[] REFLEXIVE = {"ся", "сь"};
+        private static final String[] ADJECTIVE = {
+                "ими", "ыми", "его", "ого", "ему", "ому", "ее", "ие", "ые", "ое", "ей", "ий", "ый", "ой",
+                "ем", "им", "ым", "ом", "их", "ых", "ую", "юю", "ая", "яя", "ою", "ею"};
+        private static final String[] PARTICIPLE_1 = {"ем", "нн", "вш", "ющ", "щ"};
+        private static final String[] PARTICIPLE_2 = {"ивш", "ывш", "ующ"};
+        private static final String[] VERB_1 = {
+                "ете", "йте", "ешь", "нно", "ла", "на", "ли", "ем", "ло", "но", "ет", "ют", "ны", "ть", "й", "л", "н"};
+        private static final String[] VERB_2 = {
+                "ейте", "уйте", "ила", "ыла", "ена", "ите", "или", "ыли", "ило", "ыло", "ено", "ует", "уют", "ены",
+                "ить", "ыть", "ишь", "ей", "уй", "ил", "ыл", "им", "ым", "ен", "ят", "ит", "ыт", "ую", "ю"};
+        private static final String[] NOUN = {
+                "иями", "ями", "ами", "ией", "иям", "ием", "иях", "ев", "ов", "ие", "ье", "еи", "ии", "ей", "ой",
+                "ий", "ям", "ем", "ам", "ом", "ах", "ях", "ию", "ью", "ия", "ья", "а", "е", "и", "й", "о", "у",
+                "ы", "ь", "ю", "я"};
+        private static final String[] SUPERLATIVE = {"ейше", "ейш"};
+        private static final String[] DERIVATIONAL = {"ость", "ост"};
+
+        static String stem(String word) {
+            int rv = regionAfterVowel(word, 0);
+            if (rv >= word.length()) {
+                return word;
+            }
+            int r1 = regionAfterConsonant(word, 0);
+            int r2 = regionAfterConsonant(word, r1);
+
+            // Шаг 1
+            String stem = removeAfterAOrYa(word, rv, PERFECTIVE_GERUND_1);
+            if (stem == null) {
+                stem = remove(word, rv, PERFECTIVE_GERUND_2);
+            }
+            if (stem == null) {
+                String w = word;
+                String noReflexive = remove(w, rv, REFLEXIVE);
+                if (noReflexive != null) {
+                    w = noReflexive;
+                }
+                stem = remove(w, rv, ADJECTIVE);
+                if (stem != null) {
+                    String participle = removeAfterAOrYa(stem, rv, PARTICIPLE_1);
+                    if (participle == null) {
+                        participle = remove(stem, rv, PARTICIPLE_2);
+                    }
+                    if (participle != null) {
+                        stem = participle;
+                    }
+                } else {
+                    stem = removeAfterAOrYa(w, rv, VERB_1);
+                    if (stem == null) {
+                        stem = remove(w, rv, VERB_2);
+                    }
+                    if (stem == null) {
+                        stem = remove(w, rv, NOUN);
+                    }
+                    if (stem == null) {
+                        stem = w;
+                    }
+                }
+            }
+
+            // Шаг 2
+            if (stem.endsWith("и") && stem.length() - 1 >= rv) {
+                stem = stem.substring(0, stem.length() - 1);
+            }
+
+            // Шаг 3
+            String derivational = remove(stem, r2, DERIVATIONAL);
+            if (derivational != null) {
+                stem = derivational;
+            }
+
+            // Шаг 4
+            if (stem.endsWith("нн") && stem.length() - 1 >= rv) {
+                return stem.substring(0, stem.length() - 1);
+            }
+            String superlative = remove(stem, rv, SUPERLATIVE);
+            if (superlative != null) {
+                stem = superlative;
+                if (stem.endsWith("нн") && stem.length() - 1 >= rv) {
+                    stem = stem.substring(0, stem.length() - 1);
+                }
+                return stem;
+            }
+            if (stem.endsWith("ь") && stem.length() - 1 >= rv) {
+                stem = stem.substring(0, stem.length() - 1);
+            }
+            return stem;
+        }
+
+        private static String remove(String word, int region, String[] endings) {
+            for (String ending : endings) {
+                if (word.endsWith(ending) && word.length() - ending.length() >= region) {
+                    return word.substring(0, word.length() - ending.length());
+                }
+            }
+            return null;
+        }
+
+        // Окончания группы 1 удаляются только после "а" или "я"
+        private static String removeAfterAOrYa(String word, int region, String[] endings) {
+            for (String ending : endings) {
+                int cut = word.length() - ending.length();
+                if (word.endsWith(ending) && cut - 1 >= region) {
+                    char before = word.charAt(cut - 1);
+                    if (before == 'а' || before == 'я') {
+                        return word.substring(0, cut);
+                    }
+                }
+            }
+            return null;
+        }
+
+        private static int regionAfterVowel(String word, int from) {
+            for (int i = from; i < word.length(); i++) {
+                if (isVowel(word.charAt(i))) {
+                    return i + 1;
+                }
+            }
+            return word.length();
+        }
+
+        private static int regionAfterConsonant(String word, int from) {
+            for (int i = from + 1; i < word.length(); i++) {
+                if (!isVowel(word.charAt(i)) && isVowel(word.charAt(i - 1))) {
+                    return i + 1;
+                }
+            }
+            return word.length();
+        }
+
+        private static boolean isVowel(char c) {
+            return VOWELS.indexOf(c) >= 0;
+        }
+    }
+
+    // Облегчённый английский стеммер: множественное число, -ing/-ed/-ly
+    static final class EnglishStemmer {
+
+        static String stem(String word) {
+            String w = word;
+            if (w.endsWith("ies") && w.length() > 4) {
+                w = w.substring(0, w.length() - 3) + "y";
+            } else if (w.endsWith("sses")) {
+                w = w.substring(0, w.length() - 2);
+            } else if (w.endsWith("s") && !w.endsWith("ss") && !w.endsWith("us") && w.length() > 3) {
+                w = w.substring(0, w.length() - 1);
+            }
+
+            if (w.endsWith("ing") && hasVowel(w, w.length() - 3) && w.length() > 5) {
+                w = undouble(w.substring(0, w.length() - 3));
+            } else if (w.endsWith("ed") && hasVowel(w, w.length() - 2) && w.length() > 4) {
+                w = undouble(w.substring(0, w.length() - 2));
+            } else if (w.endsWith("ly") && w.length() > 4) {
+                w = w.substring(0, w.length() - 2);
+            }
+            return w;
+        }
+
+        private static boolean hasVowel(String word, int end) {
+            for (int i = 0; i < end; i++) {
+                if ("aeiouy".indexOf(word.charAt(i)) >= 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private static String undouble(String word) {
+            int n = word.length();
+            if (n >= 2 && word.charAt(n - 1) == word.charAt(n - 2) && "lsz".indexOf(word.charAt(n - 1)) < 0) {
+                return word.substring(0, n - 1);
+            }
+            return word;
+        }
+    }
+}
@@ -0,0 +1,380 @@
+package com.booking.service;
+
+import com.booking.dto.TimelineEventDTO;
+import com.booking.model.Ticket;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.zip.CRC32;
+
+// Лента событий броней (тикетов) — журнал только на дозапись в сегментных файлах,
+// отображённых в память. Запись — бинарная: длина, id тикета, брони и пользователя,
+// время, тип, JSON-данные и CRC32. Смещение записи в журнале (база сегмента + позиция)
+// служит курсором; индексы «бронь -> смещения» и «пользователь -> смещения» строятся
+// в памяти при старте проходом по сегментам. Источник истины — таблица tickets:
+// журнал дописывается после коммита пачки outbox и догоняет tickets при старте.
+// Сегменты старше booking.timeline.retention-days удаляются целиком.
+@Slf4j
+@Component
+public class TimelineLog {
+
+    private static final int MAGIC = 0x544C4731; // "TLG1"
+    private static final int HEADER_BYTES = 8;
+    // length, ticketId, bookingId, userId, createdAt, type, payloadLength, ..., crc
+    private static final int RECORD_OVERHEAD = 4 + 8 + 8 + 8 + 8 + 1 + 4 + 4;
+    private static final Ticket.TicketType[] TYPES = Ticket.TicketType.values();
+    private static final int CATCH_UP_BATCH = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Path dir;
+    private final int segmentBytes;
+    private final int retentionDays;
+
+    private final NavigableMap<Long, Segment> segments = new ConcurrentSkipListMap<>();
+    private final Map<Long, OffsetList> byBooking = new ConcurrentHashMap<>();
+    private final Map<Long, OffsetList> byUser = new ConcurrentHashMap<>();
+    private Segment active;
+    private long lastTicketId;
+    private volatile boolean opened;
+    private volatile boolean ready;
+
+    public TimelineLog(JdbcTemplate jdbcTemplate,
+                       @Value("${booking.timeline.dir:./data/timeline}") String dir,
+                       @Value("${booking.timeline.segment-bytes:67108864}") int segmentBytes,
+                       @Value("${booking.timeline.retention-days:365}") int retentionDays) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.dir = Paths.get(dir);
+        this.segmentBytes = segmentBytes;
+        this.retentionDays = retentionDays;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void open() {
+        try {
+            Files.createDirectories(dir);
+            List<Path> files = new ArrayList<>();
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, "*.seg")) {
+                stream.forEach(files::add);
+            }
+            files.sort(null);
+            long records = 0;
+            for (Path file : files) {
+                Segment segment = map(file, baseOf(file));
+                records += scan(segment);
+                segments.put(segment.base, segment);
+            }
+            active = segments.isEmpty() ? createSegment(0) : segments.lastEntry().getValue();
+            opened = true;
+            log.info("Timeline log opened: {} segments, {} records", segments.size(), records);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to open timeline log in " + dir, e);
+        }
+        catchUp();
+    }
+
+    // Готов ли журнал принимать новые тикеты; если нет — пробует догнать tickets
+    public boolean ensureCaughtUp() {
+        if (ready) {
+            return true;
+        }
+        if (opened) {
+            catchUp();
+        }
+        return ready;
+    }
+
+    // Дописывает тикеты, которых ещё нет в журнале (id больше последнего записанного)
+    public synchronized void append(List<Ticket> tickets) {
+        try {
+            for (Ticket ticket : tickets) {
+                write(ticket.getId(), ticket.getBooking().getId(), ticket.getUser().getId(),
+                        ticket.getType(), ticket.getDataJson(), ticket.getCreatedAt());
+            }
+            active.buffer.force();
+        } catch (RuntimeException e) {
+            // Пропущенные тикеты дочитаются из tickets при следующей попытке
+            ready = false;
+            log.warn("Failed to append {} tickets to timeline log", tickets.size(), e);
+        }
+    }
+
+    // События брони со смещением больше after, не более limit
+    public List<TimelineEventDTO> forBooking(Long bookingId, long after, int limit) {
+        return read(byBooking.get(bookingId), after, limit);
+    }
+
+    public List<TimelineEventDTO> forUser(Long userId, long after, int limit) {
+        return read(byUser.get(userId), after, limit);
+    }
+
+    // Удаляет сегменты, все записи которых старше срока хранения; активный сегмент не трогаем
+    @Scheduled(cron = "${booking.timeline.compaction-cron:0 30 3 * * *}")
+    public synchronized void compact() {
+        if (!opened) {
+            return;
+        }
+        long cutoff = Instant.now().minusSeconds(retentionDays * 86_400L).toEpochMilli();
+        int removed = 0;
+        for (Segment segment : new ArrayList<>(segments.values())) {
+            if (segment == active || segment.maxCreatedAt >= cutoff) {
+                break;
+            }
+            segments.remove(segment.base);
+            try {
+                Files.deleteIfExists(segment.path);
+            } catch (IOException e) {
+                log.warn("Failed to delete timeline segment {}", segment.path, e);
+            }
+            removed++;
+        }
+        if (removed == 0) {
+            return;
+        }
+        long first = segments.firstKey();
+        byBooking.values().removeIf(offsets -> offsets.dropBefore(first) == 0);
+        byUser.values().removeIf(offsets -> offsets.dropBefore(first) == 0);
+        log.info("Timeline log compacted: {} segments removed", removed);
+    }
+
+    private synchronized void catchUp() {
+        if (ready) {
+            return;
+        }
+        try {
+            long[] appended = {0};
+            jdbcTemplate.query("SELECT id, booking_id, user_id, type, data_json, created_at FROM tickets " +
+                    "WHERE id > ? ORDER BY id", rs -> {
+                Timestamp createdAt = rs.getTimestamp("created_at");
+                write(rs.getLong("id"), rs.getLong("booking_id"), rs.getLong("user_id"),
+                        Ticket.TicketType.valueOf(rs.getString("type")), rs.getString("data_json"),
+                        createdAt != null ? createdAt.toLocalDateTime() : null);
+                if (++appended[0] % CATCH_UP_BATCH == 0) {
+                    active.buffer.force();
+                }
+            }, lastTicketId);
+            active.buffer.force();
+            ready = true;
+            if (appended[0] > 0) {
+                log.info("Timeline log caught up with {} tickets", appended[0]);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Timeline log catch-up failed, retrying later", e);
+        }
+    }
+
+    private void write(long ticketId, long bookingId, long userId, Ticket.TicketType type,
+                       String data, LocalDateTime createdAt) {
+        if (ticketId <= lastTicketId) {
+            return;
+        }
+        byte[] payload = data != null ? data.getBytes(StandardCharsets.UTF_8) : new byte[0];
+        int length = RECORD_OVERHEAD + payload.length;
+        if (length > segmentBytes - HEADER_BYTES) {
+            throw new RuntimeException("Ticket " + ticketId + " is too large for a timeline segment");
+        }
+        if (active.position + length > active.buffer.capacity()) {
+            roll();
+        }
+        long millis = (createdAt != null ? createdAt : LocalDateTime.now())
+                .atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+
+        MappedByteBuffer buffer = active.buffer;
+        int pos = active.position;
+        buffer.putLong(pos + 4, ticketId);
+        buffer.putLong(pos + 12, bookingId);
+        buffer.putLong(pos + 20, userId);
+        buffer.putLong(pos + 28, millis);
+        buffer.put(pos + 36, (byte) type.ordinal());
+        buffer.putInt(pos + 37, payload.length);
+        buffer.put(pos + 41, payload);
+        buffer.putInt(pos + length - 4, crc(buffer, pos, length));
+        // Длина пишется последней: запись без длины при сбое считается концом сегмента
+        buffer.putInt(pos, length);
+
+        active.position = pos + length;
+        active.maxCreatedAt = Math.max(active.maxCreatedAt, millis);
+        index(active.base + pos, bookingId, userId);
+        lastTicketId = ticketId;
+    }
+
+    private void roll() {
+        active.buffer.force();
+        active = createSegment(active.base + active.buffer.capacity());
+    }
+
+    private Segment createSegment(long base) {
+        try {
+            Segment segment = map(dir.resolve(String.format("%020d.seg", base)), base);
+            segment.buffer.putInt(0, MAGIC);
+            segment.buffer.putInt(4, 1);
+            segment.position = HEADER_BYTES;
+            segments.put(base, segment);
+            return segment;
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to create timeline segment", e);
+        }
+    }
+
+    private Segment map(Path path, long base) throws IOException {
+        try (FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = channel.size() > 0 ? channel.size() : segmentBytes;
+            return new Segment(base, path, channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+        }
+    }
+
+    // Проход по сегменту при открытии: индексы, последний id тикета, позиция дозаписи.
+    // Хвост после первой битой записи обнуляется, чтобы новые записи не смешались со старыми.
+    private long scan(Segment segment) {
+        MappedByteBuffer buffer = segment.buffer;
+        if (buffer.getInt(0) != MAGIC) {
+            throw new RuntimeException("Not a timeline segment: " + segment.path);
+        }
+        int pos = HEADER_BYTES;
+        long records = 0;
+        while (pos + 4 <= buffer.capacity()) {
+            int length = buffer.getInt(pos);
+            if (length == 0) {
+                break;
+            }
+            if (length < RECORD_OVERHEAD || pos + length > buffer.capacity()
+                    || buffer.getInt(pos + length - 4) != crc(buffer, pos, length)) {
+                log.warn("Timeline segment {} is damaged at {}, truncating", segment.path, pos);
+                for (int i = pos; i < buffer.capacity(); i++) {
+                    buffer.put(i, (byte) 0);
+                }
+                buffer.force();
+                break;
+            }
+            index(segment.base + pos, buffer.getLong(pos + 12), buffer.getLong(pos + 20));
+            lastTicketId = Math.max(lastTicketId, buffer.getLong(pos + 4));
+            segment.maxCreatedAt = Math.max(segment.maxCreatedAt, buffer.getLong(pos + 28));
+            pos += length;
+            records++;
+        }
+        segment.position = pos;
+        return records;
+    }
+
+    private void index(long offset, long bookingId, long userId) {
+        byBooking.computeIfAbsent(bookingId, id -> new OffsetList()).add(offset);
+        byUser.computeIfAbsent(userId, id -> new OffsetList()).add(offset);
+    }
+
+    // Записи читаются прямо из отображённых сегментов, без промежуточного буфера
+    private List<TimelineEventDTO> read(OffsetList offsets, long after, int limit) {
+        List<TimelineEventDTO> events = new ArrayList<>();
+        if (offsets == null) {
+            return events;
+        }
+        for (long offset : offsets.after(after, limit)) {
+            Map.Entry<Long, Segment> entry = segments.floorEntry(offset);
+            if (entry == null) {
+                continue;
+            }
+            MappedByteBuffer buffer = entry.getValue().buffer;
+            int pos = (int) (offset - entry.getKey());
+            int payloadLength = buffer.getInt(pos + 37);
+            events.add(new TimelineEventDTO(
+                    offset,
+                    buffer.getLong(pos + 4),
+                    buffer.getLong(pos + 12),
+                    buffer.getLong(pos + 20),
+                    TYPES[buffer.get(pos + 36)],
+                    payloadLength > 0 ? StandardCharsets.UTF_8.decode(buffer.slice(pos + 41, payloadLength)).toString() : null,
+                    LocalDateTime.ofInstant(Instant.ofEpochMilli(buffer.getLong(pos + 28)), ZoneId.systemDefault())));
+        }
+        return events;
+    }
+
+    // CRC тела записи: всё между длиной и самим CRC
+    private static int crc(MappedByteBuffer buffer, int pos, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(buffer.slice(pos + 4, length - 8));
+        return (int) crc.getValue();
+    }
+
+    private static long baseOf(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring(0, name.length() - ".seg".length()));
+    }
+
+    private static final class Segment {
+        final long base;
+        final Path path;
+        final MappedByteBuffer buffer;
+        int position;
+        long maxCreatedAt;
+
+        Segment(long base, Path path, MappedByteBuffer buffer) {
+            this.base = base;
+            this.path = path;
+            this.buffer = buffer;
+        }
+    }
+
+    // Смещения записей по возрастанию
+    private static final class OffsetList {
+        private long[] offsets = new long[4];
+        private int size;
+
+        synchronized void add(long offset) {
+            if (size == offsets.length) {
+                offsets = Arrays.copyOf(offsets, size * 2);
+            }
+            offsets[size++] = offset;
+        }
+
+        synchronized long[] after(long after, int limit) {
+            int from = lowerBound(after + 1);
+            return Arrays.copyOfRange(offsets, from, Math.min(size, from + limit));
+        }
+
+        // Убирает смещения меньше offset; возвращает, сколько осталось
+        synchronized int dropBefore(long offset) {
+            int from = lowerBound(offset);
+            System.arraycopy(offsets, from, offsets, 0, size - from);
+            size -= from;
+            return size;
+        }
+
+        private int lowerBound(long offset) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (offsets[mid] < offset) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+}
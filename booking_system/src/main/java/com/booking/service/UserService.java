@@ -1,7 +1,9 @@
 package com.booking.service;
 
+import com.booking.dto.CursorPage;
 import com.booking.dto.LoginRequestDTO;
 import com.booking.dto.RegisterRequestDTO;
+import com.booking.dto.TimelineEventDTO;
 import com.booking.dto.UserDTO;
 import com.booking.model.User;
 import com.booking.repository.UserRepository;
@@ -18,6 +20,7 @@ import java.util.stream.Collectors;
 public class UserService {
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
+    private final TimelineLog timelineLog;
 
     @Transactional
     public UserDTO register(RegisterRequestDTO request) {
@@ -55,6 +58,16 @@ public class UserService {
         return UserDTO.fromEntity(user);
     }
 
+    // Лента событий по броням пользователя, постранично по смещению в журнале
+    public CursorPage<TimelineEventDTO> getUserTimeline(Long userId, Long after, Integer limit) {
+        if (!userRepository.existsById(userId)) {
+            throw new RuntimeException("User not found");
+        }
+        int size = CursorPage.limit(limit);
+        return CursorPage.of(timelineLog.forUser(userId, CursorPage.after(after), size + 1),
+                size, TimelineEventDTO::getOffset, event -> event);
+    }
+
     public List<UserDTO> getAllUsers() {
         return userRepository.findAll().stream()
                 .map(UserDTO::fromEntity)
@@ -0,0 +1,60 @@
+package com.booking;
+
+import com.booking.dto.ApartmentDTO;
+import com.booking.dto.BookingRequestDTO;
+import com.booking.model.User;
+import com.booking.repository.UserRepository;
+import com.booking.service.ApartmentService;
+import org.springframework.boot.test.context.TestComponent;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Пользователи и квартиры для тестов. Квартира создаётся через ApartmentService,
+// чтобы индексы в памяти получили событие, как при обычной работе.
+@TestComponent
+public class TestFixtures {
+    private static final AtomicLong SEQUENCE = new AtomicLong();
+
+    private final UserRepository userRepository;
+    private final ApartmentService apartmentService;
+
+    public TestFixtures(UserRepository userRepository, ApartmentService apartmentService) {
+        this.userRepository = userRepository;
+        this.apartmentService = apartmentService;
+    }
+
+    public User user(User.UserRole role) {
+        long n = SEQUENCE.incrementAndGet();
+        User user = new User();
+        user.setEmail(role.name().toLowerCase() + n + "-" + System.nanoTime() + "@test.local");
+        user.setPassword("secret");
+        user.setFirstName("Test");
+        user.setLastName(role.name() + n);
+        user.setRole(role);
+        return userRepository.save(user);
+    }
+
+    public ApartmentDTO apartment(Long ownerId, int totalRooms) {
+        ApartmentDTO dto = new ApartmentDTO();
+        dto.setTitle("Test apartment " + SEQUENCE.incrementAndGet());
+        dto.setAddress("Test street 1");
+        dto.setCity("Testville");
+        dto.setRooms(1);
+        dto.setMaxGuests(2);
+        dto.setPricePerNight(new BigDecimal("100.00"));
+        dto.setTotalRooms(totalRooms);
+        dto.setAvailableRooms(totalRooms);
+        return apartmentService.createApartment(dto, ownerId);
+    }
+
+    public static BookingRequestDTO request(Long apartmentId, LocalDate checkIn, LocalDate checkOut) {
+        BookingRequestDTO request = new BookingRequestDTO();
+        request.setApartmentId(apartmentId);
+        request.setCheckInDate(checkIn);
+        request.setCheckOutDate(checkOut);
+        request.setGuests(1);
+        return request;
+    }
+}
@@ -0,0 +1,134 @@
+package com.booking.service;
+
+import com.booking.dto.ApartmentSearchCriteria;
+import com.booking.model.Amenity;
+import com.booking.model.Apartment;
+import com.booking.repository.ApartmentRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// Замер фасетного поиска: прежний запрос по колонкам has_* против AND битовых карт индекса,
+// и объём битовых карт по id против плотных номеров. Цифры — в журнале теста.
+@Slf4j
+class ApartmentSearchBenchmarkTest {
+
+    private static final int APARTMENTS = 50_000;
+    private static final String[] CITIES = {"Moscow", "Kazan", "Sochi", "Tver", "Omsk", "Perm", "Ufa", "Samara"};
+    private static final int WARMUP = 20;
+    private static final int RUNS = 100;
+
+    @Test
+    void bitmapSearchBeatsColumnQuery() {
+        List<Apartment> apartments = apartments();
+
+        ApartmentRepository repository = mock(ApartmentRepository.class);
+        when(repository.findAll()).thenReturn(apartments);
+        ApartmentSearchIndex index = new ApartmentSearchIndex(repository);
+        index.rebuild();
+
+        JdbcTemplate jdbc = legacyTable(apartments);
+
+        ApartmentSearchCriteria criteria = new ApartmentSearchCriteria();
+        criteria.setCity("Sochi");
+        criteria.setHasWifi(true);
+        criteria.setHasParking(true);
+        criteria.setHasPool(true);
+        EnumSet<Apartment.ApartmentStatus> statuses = EnumSet.of(Apartment.ApartmentStatus.AVAILABLE, Apartment.ApartmentStatus.FREE);
+
+        Supplier<List<Long>> columns = () -> jdbc.queryForList(
+                "SELECT id FROM legacy_apartments WHERE status IN ('AVAILABLE', 'FREE') AND LOWER(city) = ? " +
+                        "AND has_wifi AND has_parking AND has_pool ORDER BY id", Long.class, "sochi");
+        Supplier<List<Long>> bitmaps = () -> index.search(criteria, statuses, id -> true).ids();
+
+        assertThat(bitmaps.get()).isNotEmpty().isEqualTo(columns.get());
+
+        double columnMicros = measure(columns);
+        double bitmapMicros = measure(bitmaps);
+        log.info("Amenity search over {} apartments: has_* column query {} us, bitmap index {} us (with facets)",
+                APARTMENTS, Math.round(columnMicros), Math.round(bitmapMicros));
+        assertThat(bitmapMicros).isLessThan(columnMicros);
+
+        // Те же постинги, если бы битом был сам id (как до плотных номеров): размер карты задаёт наибольший id в ней
+        Map<String, BitSet> byId = new HashMap<>();
+        for (Apartment apartment : apartments) {
+            int bit = Math.toIntExact(apartment.getId());
+            byId.computeIfAbsent("city:" + apartment.getCity().toLowerCase(), k -> new BitSet()).set(bit);
+            byId.computeIfAbsent("status:" + apartment.getStatus(), k -> new BitSet()).set(bit);
+            for (Amenity amenity : Amenity.values()) {
+                if (amenity.isIn(apartment.getAmenities())) {
+                    byId.computeIfAbsent("amenity:" + amenity, k -> new BitSet()).set(bit);
+                }
+            }
+        }
+        long byIdBytes = byId.values().stream().mapToLong(bitmap -> bitmap.size() / 8).sum();
+        log.info("Postings: keyed by id {} KB, by dense ordinal {} KB", byIdBytes / 1024, index.postingBytes() / 1024);
+        assertThat(index.postingBytes()).isLessThan(byIdBytes);
+    }
+
+    // Среднее время одного вызова в микросекундах после прогрева
+    private static double measure(Supplier<List<Long>> query) {
+        for (int i = 0; i < WARMUP; i++) {
+            query.get();
+        }
+        long started = System.nanoTime();
+        for (int i = 0; i < RUNS; i++) {
+            query.get();
+        }
+        return (System.nanoTime() - started) / 1000.0 / RUNS;
+    }
+
+    // Id с дырами, как у последовательности с блоками по 50 после нескольких рестартов
+    private static List<Apartment> apartments() {
+        Random random = new Random(42);
+        List<Apartment> apartments = new ArrayList<>(APARTMENTS);
+        long id = 0;
+        for (int i = 0; i < APARTMENTS; i++) {
+            id += i % 20 == 0 ? 50 : 1;
+            Apartment apartment = new Apartment();
+            apartment.setId(id);
+            apartment.setCity(CITIES[random.nextInt(CITIES.length)]);
+            apartment.setPricePerNight(BigDecimal.valueOf(50 + random.nextInt(200)));
+            apartment.setRooms(1 + random.nextInt(4));
+            apartment.setStatus(random.nextInt(10) == 0 ? Apartment.ApartmentStatus.ARCHIVED : Apartment.ApartmentStatus.AVAILABLE);
+            apartment.setAmenities(random.nextInt(1 << Amenity.values().length));
+            apartments.add(apartment);
+        }
+        return apartments;
+    }
+
+    // Таблица в прежней схеме: по boolean-колонке на удобство
+    private static JdbcTemplate legacyTable(List<Apartment> apartments) {
+        JdbcTemplate jdbc = new JdbcTemplate(new DriverManagerDataSource(
+                "jdbc:h2:mem:search-benchmark;DB_CLOSE_DELAY=-1", "sa", ""));
+        jdbc.execute("DROP TABLE IF EXISTS legacy_apartments");
+        jdbc.execute("CREATE TABLE legacy_apartments (id BIGINT PRIMARY KEY, city VARCHAR(100), status VARCHAR(20), " +
+                "price_per_night DECIMAL(10, 2), rooms INT, has_wifi BOOLEAN, has_parking BOOLEAN, has_kitchen BOOLEAN, " +
+                "has_air_conditioning BOOLEAN, has_washer BOOLEAN, has_tv BOOLEAN, has_pool BOOLEAN, has_balcony BOOLEAN)");
+        jdbc.execute("CREATE INDEX idx_legacy_city ON legacy_apartments (city)");
+        List<Object[]> rows = new ArrayList<>();
+        for (Apartment a : apartments) {
+            int m = a.getAmenities();
+            rows.add(new Object[]{a.getId(), a.getCity(), a.getStatus().name(), a.getPricePerNight(), a.getRooms(),
+                    Amenity.WIFI.isIn(m), Amenity.PARKING.isIn(m), Amenity.KITCHEN.isIn(m), Amenity.AIR_CONDITIONING.isIn(m),
+                    Amenity.WASHER.isIn(m), Amenity.TV.isIn(m), Amenity.POOL.isIn(m), Amenity.BALCONY.isIn(m)});
+        }
+        jdbc.batchUpdate("INSERT INTO legacy_apartments VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)", rows);
+        return jdbc;
+    }
+}
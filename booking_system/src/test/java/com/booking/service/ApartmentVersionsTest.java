@@ -0,0 +1,143 @@
+package com.booking.service;
+
+import com.booking.MutableClock;
+import com.booking.model.Booking;
+import com.booking.repository.ApartmentRepository;
+import com.booking.repository.ApartmentVersion;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// ETag квартиры и каталога: из сохранённого времени изменения и занятости по броням,
+// одинаковый после рестарта и меняется со сменой дня
+class ApartmentVersionsTest {
+
+    private static final LocalDateTime UPDATED = LocalDateTime.of(2026, 2, 1, 10, 0);
+
+    private final MutableClock clock = new MutableClock(Instant.parse("2026-03-01T12:00:00Z"));
+    private final ApartmentRepository apartmentRepository = mock(ApartmentRepository.class);
+    // Строки bookings, которые увидит rebuild занятости: id, apartment_id, check_out, status
+    private final List<Object[]> bookingRows = new ArrayList<>();
+    private ApartmentOccupancy occupancy;
+
+    @BeforeEach
+    void setUp() {
+        ApartmentVersion version = mock(ApartmentVersion.class);
+        when(version.getId()).thenReturn(1L);
+        when(version.getLastModified()).thenReturn(UPDATED);
+        when(apartmentRepository.findVersions()).thenReturn(List.of(version));
+    }
+
+    @Test
+    void bookingChangesEtagAndDropsLastModified() {
+        ApartmentVersions versions = start();
+        ApartmentVersions.Version listed = versions.of(1L);
+        ApartmentVersions.Version catalog = versions.catalog();
+        assertThat(listed.lastModified()).isPositive();
+        assertThat(catalog.lastModified()).isPositive();
+
+        book(today().plusDays(3));
+
+        assertThat(versions.of(1L).etag()).isNotEqualTo(listed.etag());
+        assertThat(versions.of(1L).lastModified()).isEqualTo(-1);
+        assertThat(versions.catalog().etag()).isNotEqualTo(catalog.etag());
+        assertThat(versions.catalog().lastModified()).isEqualTo(-1);
+    }
+
+    @Test
+    void restartKeepsEtags() {
+        ApartmentVersions running = start();
+        book(today().plusDays(3));
+
+        ApartmentVersions restarted = start();
+
+        assertThat(restarted.of(1L)).isEqualTo(running.of(1L));
+        assertThat(restarted.catalog()).isEqualTo(running.catalog());
+    }
+
+    @Test
+    void dayRolloverChangesEtagsWithoutEvents() {
+        ApartmentVersions versions = start();
+        ApartmentVersions.Version listed = versions.of(1L);
+        ApartmentVersions.Version listedCatalog = versions.catalog();
+        book(today().plusDays(3));
+        book(today().plusDays(5), 2L);
+        ApartmentVersions.Version booked = versions.of(1L);
+        ApartmentVersions.Version bookedCatalog = versions.catalog();
+
+        // Сдвиг дня меняет отпечаток каталога, даже если статусы ещё прежние
+        clock.advance(Duration.ofDays(1));
+        assertThat(versions.of(1L)).isEqualTo(booked);
+        assertThat(versions.catalog().etag()).isNotEqualTo(bookedCatalog.etag());
+
+        // Бронь квартиры 1 закончилась: ответ снова как до брони, и ETag тот же
+        clock.advance(Duration.ofDays(2));
+        assertThat(versions.of(1L)).isEqualTo(listed);
+        assertThat(versions.catalog().etag()).isNotEqualTo(listedCatalog.etag());
+        assertThat(start().catalog()).isEqualTo(versions.catalog());
+
+        clock.advance(Duration.ofDays(2));
+        assertThat(versions.catalog()).isEqualTo(listedCatalog);
+    }
+
+    // Как при старте приложения: обе структуры собираются из БД
+    private ApartmentVersions start() {
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        doAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(1);
+            LocalDate today = ((Date) invocation.getArgument(2)).toLocalDate();
+            for (Object[] row : bookingRows) {
+                if (((LocalDate) row[2]).isAfter(today)) {
+                    ResultSet rs = mock(ResultSet.class);
+                    when(rs.getLong("id")).thenReturn((Long) row[0]);
+                    when(rs.getLong("apartment_id")).thenReturn((Long) row[1]);
+                    when(rs.getDate("check_out")).thenReturn(Date.valueOf((LocalDate) row[2]));
+                    when(rs.getString("status")).thenReturn(row[3].toString());
+                    handler.processRow(rs);
+                }
+            }
+            return null;
+        }).when(jdbcTemplate).query(anyString(), any(RowCallbackHandler.class), any(Object.class));
+
+        ApartmentOccupancy occupancy = new ApartmentOccupancy(jdbcTemplate, clock);
+        occupancy.rebuild();
+        ApartmentVersions versions = new ApartmentVersions(apartmentRepository, occupancy);
+        versions.rebuild();
+        this.occupancy = occupancy;
+        return versions;
+    }
+
+    private void book(LocalDate checkOut) {
+        book(checkOut, 1L);
+    }
+
+    // Бронь пишется в «БД» для следующего старта и приходит событием в последний запущенный экземпляр
+    private void book(LocalDate checkOut, Long apartmentId) {
+        long bookingId = bookingRows.size() + 1;
+        bookingRows.add(new Object[]{bookingId, apartmentId, checkOut, Booking.BookingStatus.CONFIRMED});
+        occupancy.onBookingChanged(new BookingChangedEvent(bookingId, 1L, apartmentId,
+                today(), checkOut, Booking.BookingStatus.CONFIRMED));
+    }
+
+    private LocalDate today() {
+        return LocalDate.ofInstant(clock.instant(), ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,117 @@
+package com.booking.service;
+
+import com.booking.MutableClock;
+import com.booking.model.Booking;
+import com.booking.repository.BookingRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// Сдвиг окна календаря на управляемых часах: без чтения БД и без потери событий
+class AvailabilityCalendarTest {
+
+    // 30 дней окна — одно слово, кольцо на 64 слота
+    private static final int HORIZON_DAYS = 30;
+
+    private final MutableClock clock = new MutableClock(Instant.parse("2026-03-01T12:00:00Z"));
+    private final BookingRepository bookingRepository = mock(BookingRepository.class);
+    private AvailabilityIndex index;
+    private AvailabilityCalendar calendar;
+    private LocalDate start;
+    private long bookingIds;
+
+    @BeforeEach
+    void setUp() {
+        when(bookingRepository.findPeriods(any(), any())).thenReturn(List.of());
+        index = new AvailabilityIndex(bookingRepository, clock);
+        calendar = new AvailabilityCalendar(bookingRepository, index, clock, HORIZON_DAYS);
+        index.rebuild();
+        calendar.rebuild();
+        start = today();
+    }
+
+    @Test
+    void rolloverKeepsBookingsReceivedAsEvents() {
+        book(1L, start.plusDays(5), start.plusDays(7));
+
+        clock.advance(Duration.ofDays(1));
+        calendar.rollover();
+
+        assertThat(calendar.isOccupied(1L, start.plusDays(5))).isTrue();
+        assertThat(calendar.isOccupied(1L, start.plusDays(7))).isFalse();
+        // БД читалась только при старте
+        verify(bookingRepository, times(2)).findPeriods(any(), any());
+    }
+
+    @Test
+    void nightsEnteringTheWindowAreMarkedFromTheIndex() {
+        // Бронь за горизонтом: в календаре её нет, ответ даёт индекс
+        LocalDate farIn = start.plusDays(HORIZON_DAYS + 10);
+        book(2L, farIn, farIn.plusDays(2));
+        assertThat(calendar.isOccupied(2L, farIn)).isTrue();
+
+        clock.advance(Duration.ofDays(15));
+        calendar.rollover();
+
+        // Теперь ночи внутри окна: ответ из битов календаря, индекс не спрашивается
+        index.release(2L, bookingIds);
+        assertThat(calendar.isOccupied(2L, farIn)).isTrue();
+        assertThat(calendar.isOccupied(2L, farIn.plusDays(1))).isTrue();
+        assertThat(calendar.isOccupied(2L, farIn.plusDays(2))).isFalse();
+    }
+
+    @Test
+    void slotsOfPastNightsComeBackEmpty() {
+        book(3L, start, start.plusDays(2));
+
+        // Ночь start + 64 встаёт в слот ночи start
+        for (int day = 0; day < 40; day++) {
+            clock.advance(Duration.ofDays(1));
+            calendar.rollover();
+        }
+
+        assertThat(calendar.isOccupied(3L, start.plusDays(64))).isFalse();
+        assertThat(calendar.isOccupied(3L, start.plusDays(65))).isFalse();
+    }
+
+    @Test
+    void releaseAfterRolloverUsesTheNewWindow() {
+        book(4L, start.plusDays(2), start.plusDays(4));
+        clock.advance(Duration.ofDays(3));
+        calendar.rollover();
+
+        cancel(4L, start.plusDays(2), start.plusDays(4));
+
+        assertThat(calendar.isOccupied(4L, start.plusDays(3))).isFalse();
+    }
+
+    // Как после коммита: сначала индекс, потом календарь
+    private void book(Long apartmentId, LocalDate checkIn, LocalDate checkOut) {
+        publish(new BookingChangedEvent(++bookingIds, 1L, apartmentId, checkIn, checkOut, Booking.BookingStatus.CONFIRMED));
+    }
+
+    private void cancel(Long apartmentId, LocalDate checkIn, LocalDate checkOut) {
+        publish(new BookingChangedEvent(bookingIds, 1L, apartmentId, checkIn, checkOut, Booking.BookingStatus.CANCELLED));
+    }
+
+    private void publish(BookingChangedEvent event) {
+        index.onBookingChanged(event);
+        calendar.onBookingChanged(event);
+    }
+
+    private LocalDate today() {
+        return LocalDate.ofInstant(clock.instant(), ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,59 @@
+package com.booking.service;
+
+import com.booking.TestFixtures;
+import com.booking.dto.ApartmentDTO;
+import com.booking.dto.CursorPage;
+import com.booking.model.User;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Свободные квартиры по курсорам: занятые пропускаются, обход по курсорам доходит до конца
+@SpringBootTest
+@ActiveProfiles("test")
+@Import(TestFixtures.class)
+class AvailableApartmentsPagingTest {
+
+    @Autowired
+    private ApartmentService apartmentService;
+    @Autowired
+    private BookingService bookingService;
+    @Autowired
+    private TestFixtures fixtures;
+
+    @Test
+    void cursorWalkSkipsTakenApartments() {
+        User owner = fixtures.user(User.UserRole.OWNER);
+        User client = fixtures.user(User.UserRole.CLIENT);
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            ids.add(fixtures.apartment(owner.getId(), 1).getId());
+        }
+        LocalDate checkIn = LocalDate.now().plusDays(3);
+        bookingService.createBooking(TestFixtures.request(ids.get(1), checkIn, checkIn.plusDays(2)), client.getId());
+        bookingService.createBooking(TestFixtures.request(ids.get(3), checkIn, checkIn.plusDays(2)), client.getId());
+
+        List<Long> seen = new ArrayList<>();
+        Long cursor = ids.get(0) - 1;
+        int pages = 0;
+        do {
+            CursorPage<ApartmentDTO> page = apartmentService.getAvailableApartments(cursor, 1);
+            assertThat(page.getItems()).hasSizeLessThanOrEqualTo(1);
+            page.getItems().forEach(card -> seen.add(card.getId()));
+            cursor = page.getNextCursor();
+            pages++;
+        } while (cursor != null && pages < 100);
+
+        assertThat(cursor).isNull();
+        assertThat(seen).containsSubsequence(ids.get(0), ids.get(2), ids.get(4))
+                .doesNotContain(ids.get(1), ids.get(3));
+    }
+}
@@ -0,0 +1,196 @@
+package com.booking.service;
+
+import com.booking.TestFixtures;
+import com.booking.dto.BookingDTO;
+import com.booking.model.Booking;
+import com.booking.model.User;
+import com.booking.repository.BookingRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// Конкурентные брони одной квартиры на одни даты: проходит ровно одна.
+// Брони разных квартир друг друга не ждут; пропускная способность на 1/8/64 потоках — в журнале теста
+@Slf4j
+@SpringBootTest
+@ActiveProfiles("test")
+@Import(TestFixtures.class)
+class BookingAdmissionConcurrencyTest {
+
+    private static final int THREADS = 16;
+
+    @Autowired
+    private BookingService bookingService;
+    @Autowired
+    private BookingRepository bookingRepository;
+    @Autowired
+    private BookingLocks bookingLocks;
+    @Autowired
+    private TestFixtures fixtures;
+
+    @Test
+    void concurrentBookingsOfSameNightsHaveExactlyOneWinner() throws Exception {
+        User owner = fixtures.user(User.UserRole.OWNER);
+        Long apartmentId = fixtures.apartment(owner.getId(), 1).getId();
+        List<User> clients = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            clients.add(fixtures.user(User.UserRole.CLIENT));
+        }
+        LocalDate checkIn = LocalDate.now().plusDays(30);
+        LocalDate checkOut = checkIn.plusDays(3);
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<BookingDTO>> attempts = new ArrayList<>();
+        try {
+            for (User client : clients) {
+                attempts.add(executor.submit(() -> {
+                    start.await();
+                    return bookingService.createBooking(
+                            TestFixtures.request(apartmentId, checkIn, checkOut), client.getId());
+                }));
+            }
+            start.countDown();
+
+            int winners = 0;
+            for (Future<BookingDTO> attempt : attempts) {
+                try {
+                    attempt.get(30, TimeUnit.SECONDS);
+                    winners++;
+                } catch (java.util.concurrent.ExecutionException e) {
+                    assertThat(e.getCause()).isInstanceOf(RuntimeException.class);
+                }
+            }
+            assertThat(winners).isEqualTo(1);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        long stored = bookingRepository.findAll().stream()
+                .filter(b -> b.getApartment().getId().equals(apartmentId))
+                .filter(b -> b.getStatus().blocksDates())
+                .count();
+        assertThat(stored).isEqualTo(1);
+    }
+
+    @Test
+    void bookingsOfUnrelatedApartmentsDoNotWaitForEachOther() throws Exception {
+        User owner = fixtures.user(User.UserRole.OWNER);
+        User client = fixtures.user(User.UserRole.CLIENT);
+        Long busy = fixtures.apartment(owner.getId(), 1).getId();
+        Long other = fixtures.apartment(owner.getId(), 1).getId();
+        LocalDate checkIn = LocalDate.now().plusDays(50);
+
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            // Бронь квартиры busy «выполняется» — её полоса занята
+            executor.submit(() -> bookingLocks.withApartment(busy, () -> {
+                locked.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return null;
+            }));
+            assertThat(locked.await(5, TimeUnit.SECONDS)).isTrue();
+
+            Future<BookingDTO> sameApartment = executor.submit(() -> bookingService.createBooking(
+                    TestFixtures.request(busy, checkIn, checkIn.plusDays(1)), client.getId()));
+            Future<BookingDTO> otherApartment = executor.submit(() -> bookingService.createBooking(
+                    TestFixtures.request(other, checkIn, checkIn.plusDays(1)), client.getId()));
+
+            assertThat(otherApartment.get(5, TimeUnit.SECONDS).getStatus()).isEqualTo(Booking.BookingStatus.CONFIRMED);
+            Thread.sleep(200);
+            assertThat(sameApartment.isDone()).isFalse();
+
+            release.countDown();
+            assertThat(sameApartment.get(5, TimeUnit.SECONDS).getStatus()).isEqualTo(Booking.BookingStatus.CONFIRMED);
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    // Каждый поток бронирует свою квартиру; число броней одно на все прогоны
+    @Test
+    void reportsThroughputByThreadCount() throws Exception {
+        User owner = fixtures.user(User.UserRole.OWNER);
+        int bookings = 192;
+        // Прогрев: первые брони платят за загрузку классов и планы запросов
+        throughput(owner, 4, 32);
+        for (int threads : new int[]{1, 8, 64}) {
+            double perSecond = throughput(owner, threads, bookings);
+            log.info("createBooking throughput: {} threads, {} bookings, {} bookings/s",
+                    threads, bookings, Math.round(perSecond));
+        }
+    }
+
+    private double throughput(User owner, int threads, int bookings) throws Exception {
+        List<Long> apartments = new ArrayList<>();
+        List<User> clients = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            apartments.add(fixtures.apartment(owner.getId(), 1).getId());
+            clients.add(fixtures.user(User.UserRole.CLIENT));
+        }
+        LocalDate first = LocalDate.now().plusDays(1);
+        int perThread = bookings / threads;
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Integer>> workers = new ArrayList<>();
+        try {
+            for (int t = 0; t < threads; t++) {
+                Long apartmentId = apartments.get(t);
+                Long clientId = clients.get(t).getId();
+                workers.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < perThread; i++) {
+                        LocalDate checkIn = first.plusDays(2L * i);
+                        bookingService.createBooking(TestFixtures.request(apartmentId, checkIn, checkIn.plusDays(1)), clientId);
+                    }
+                    return perThread;
+                }));
+            }
+            long started = System.nanoTime();
+            start.countDown();
+            int done = 0;
+            for (Future<Integer> worker : workers) {
+                done += worker.get(120, TimeUnit.SECONDS);
+            }
+            long elapsed = System.nanoTime() - started;
+            assertThat(done).isEqualTo(perThread * threads);
+            return done * 1e9 / elapsed;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void missingApartmentIdIsRejectedBeforeLocking() {
+        User client = fixtures.user(User.UserRole.CLIENT);
+        LocalDate checkIn = LocalDate.now().plusDays(10);
+
+        assertThatThrownBy(() -> bookingService.createBooking(
+                TestFixtures.request(null, checkIn, checkIn.plusDays(1)), client.getId()))
+                .isExactlyInstanceOf(RuntimeException.class)
+                .hasMessage("Apartment not found");
+    }
+}
@@ -0,0 +1,91 @@
+package com.booking.service;
+
+import com.booking.TestFixtures;
+import com.booking.model.User;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Массовое завершение броней: все просроченные строки переходят в COMPLETED, занятость квартир
+// снимается пачечными событиями. Число строк — booking.completion.test-rows (замер на миллионе:
+// -Dbooking.completion.test-rows=1000000). Своя база и выключенный перенос outbox,
+// чтобы миллион тикетов не разбирался в фоне других тестов.
+@Slf4j
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:completiondb;DB_CLOSE_DELAY=-1",
+        "booking.outbox.poll-ms=86400000"
+})
+@ActiveProfiles("test")
+@Import(TestFixtures.class)
+class BookingCompletionTest {
+
+    private static final int ROWS = Integer.getInteger("booking.completion.test-rows", 20_000);
+    private static final int APARTMENTS = 10;
+    private static final int INSERT_BATCH = 10_000;
+
+    @Autowired
+    private BookingCompletion bookingCompletion;
+    @Autowired
+    private ApartmentOccupancy apartmentOccupancy;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private TestFixtures fixtures;
+
+    @Test
+    void sweepCompletesOverdueBookingsInBulk() {
+        User owner = fixtures.user(User.UserRole.OWNER);
+        User client = fixtures.user(User.UserRole.CLIENT);
+        List<Long> apartments = new ArrayList<>();
+        for (int i = 0; i < APARTMENTS; i++) {
+            apartments.add(fixtures.apartment(owner.getId(), 1).getId());
+        }
+        insertOverdue(apartments, client.getId());
+        // Заселённые брони делают квартиры занятыми до завершения
+        apartmentOccupancy.rebuild();
+        assertThat(apartments).allMatch(apartmentOccupancy::isTaken);
+
+        long started = System.nanoTime();
+        bookingCompletion.sweep();
+        long millis = Math.max(1, (System.nanoTime() - started) / 1_000_000);
+        log.info("Booking completion: {} rows in {} ms, {} rows/s", ROWS, millis, ROWS * 1000L / millis);
+
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM bookings WHERE status = 'COMPLETED' AND client_id = ?", Long.class, client.getId()))
+                .isEqualTo(ROWS);
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM booking_outbox WHERE user_id = ?", Long.class, client.getId()))
+                .isEqualTo(ROWS);
+        assertThat(apartments).noneMatch(apartmentOccupancy::isTaken);
+    }
+
+    // Брони с выездом вчера, каждая десятая — заселённая
+    private void insertOverdue(List<Long> apartments, Long clientId) {
+        LocalDate checkOut = LocalDate.now().minusDays(1);
+        Date checkInDate = Date.valueOf(checkOut.minusDays(2));
+        Date checkOutDate = Date.valueOf(checkOut);
+        long firstId = 1_000_000_000L;
+        List<Object[]> rows = new ArrayList<>(INSERT_BATCH);
+        for (int i = 0; i < ROWS; i++) {
+            rows.add(new Object[]{firstId + i, apartments.get(i % apartments.size()), clientId,
+                    checkInDate, checkOutDate, (i / apartments.size()) % 10 == 0 ? "CHECKED_IN" : "CONFIRMED"});
+            if (rows.size() == INSERT_BATCH || i == ROWS - 1) {
+                jdbcTemplate.batchUpdate("INSERT INTO bookings (id, apartment_id, client_id, check_in, check_out, status, " +
+                        "total_amount, non_refundable, payment_required, payment_completed, created_at) " +
+                        "VALUES (?, ?, ?, ?, ?, ?, 100.00, FALSE, FALSE, FALSE, CURRENT_TIMESTAMP)", rows);
+                rows.clear();
+            }
+        }
+    }
+}
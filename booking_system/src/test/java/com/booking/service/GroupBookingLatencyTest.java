@@ -0,0 +1,94 @@
+package com.booking.service;
+
+import com.booking.TestFixtures;
+import com.booking.dto.BookingRequestDTO;
+import com.booking.dto.GroupBookingRequestDTO;
+import com.booking.dto.GroupBookingResultDTO;
+import com.booking.model.User;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Замер групповой брони: один вызов на N квартир против N последовательных createBooking
+// на тех же условиях. Медиана по раундам — в журнале теста.
+@Slf4j
+@SpringBootTest
+@ActiveProfiles("test")
+@Import(TestFixtures.class)
+class GroupBookingLatencyTest {
+
+    private static final int WARMUP = 3;
+    private static final int ROUNDS = 9;
+
+    @Autowired
+    private BookingService bookingService;
+    @Autowired
+    private TestFixtures fixtures;
+
+    @Test
+    void groupBookingVersusSequentialCalls() {
+        User owner = fixtures.user(User.UserRole.OWNER);
+        User client = fixtures.user(User.UserRole.CLIENT);
+        for (int units : new int[]{10, 50}) {
+            List<Long> sequentialApartments = apartments(owner, units);
+            List<Long> groupApartments = apartments(owner, units);
+
+            long[] sequential = new long[ROUNDS];
+            long[] group = new long[ROUNDS];
+            for (int round = -WARMUP; round < ROUNDS; round++) {
+                // Каждый раунд — свои ночи, чтобы номера не кончались
+                LocalDate checkIn = LocalDate.now().plusDays(20 + 2L * (round + WARMUP));
+                List<BookingRequestDTO> items = new ArrayList<>();
+                long started = System.nanoTime();
+                for (Long apartmentId : sequentialApartments) {
+                    bookingService.createBooking(TestFixtures.request(apartmentId, checkIn, checkIn.plusDays(1)), client.getId());
+                }
+                long sequentialNanos = System.nanoTime() - started;
+
+                for (Long apartmentId : groupApartments) {
+                    items.add(TestFixtures.request(apartmentId, checkIn, checkIn.plusDays(1)));
+                }
+                GroupBookingRequestDTO request = new GroupBookingRequestDTO();
+                request.setItems(items);
+                started = System.nanoTime();
+                GroupBookingResultDTO result = bookingService.createGroupBooking(request, client.getId());
+                long groupNanos = System.nanoTime() - started;
+
+                assertThat(result.isSuccess()).isTrue();
+                assertThat(result.getItems()).hasSize(units)
+                        .allMatch(item -> item.getStatus() == GroupBookingResultDTO.ItemStatus.BOOKED);
+                if (round >= 0) {
+                    sequential[round] = sequentialNanos;
+                    group[round] = groupNanos;
+                }
+            }
+            log.info("{} units: {} sequential createBooking calls {} ms, one group booking {} ms (median of {})",
+                    units, units, medianMillis(sequential), medianMillis(group), ROUNDS);
+            assertThat(medianMillis(group)).isLessThan(medianMillis(sequential));
+        }
+    }
+
+    private List<Long> apartments(User owner, int count) {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            ids.add(fixtures.apartment(owner.getId(), 1).getId());
+        }
+        return ids;
+    }
+
+    private static double medianMillis(long[] nanos) {
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        return Math.round(sorted[sorted.length / 2] / 100_000.0) / 10.0;
+    }
+}
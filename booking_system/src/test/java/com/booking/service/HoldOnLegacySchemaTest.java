@@ -0,0 +1,102 @@
+package com.booking.service;
+
+import com.booking.MutableClock;
+import com.booking.TestFixtures;
+import com.booking.dto.BookingDTO;
+import com.booking.model.Booking;
+import com.booking.model.User;
+import com.booking.repository.BookingRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Удержание на базе, созданной до статусов HOLD и EXPIRED: копия закоммиченной data/bookingdb,
+// где CHECK на bookings.status их ещё не знает. SchemaMigrations должен его заменить.
+@SpringBootTest
+@ActiveProfiles("test")
+@Import({TestFixtures.class, HoldOnLegacySchemaTest.Config.class})
+class HoldOnLegacySchemaTest {
+
+    private static final Path LEGACY_DB = Path.of("..", "data", "bookingdb.mv.db");
+
+    @TestConfiguration
+    static class Config {
+        @Bean
+        @Primary
+        MutableClock mutableClock() {
+            return new MutableClock(Instant.now().truncatedTo(ChronoUnit.SECONDS));
+        }
+    }
+
+    @DynamicPropertySource
+    static void legacyDatabase(DynamicPropertyRegistry registry) throws IOException {
+        Path dir = Files.createDirectories(Path.of("target", "test-data", "legacy-" + System.nanoTime()));
+        Files.copy(LEGACY_DB, dir.resolve("bookingdb.mv.db"));
+        registry.add("spring.datasource.url",
+                () -> "jdbc:h2:file:" + dir.resolve("bookingdb").toAbsolutePath());
+    }
+
+    @Autowired
+    private BookingService bookingService;
+    @Autowired
+    private BookingRepository bookingRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private TestFixtures fixtures;
+    @Autowired
+    private Clock clock;
+
+    @Test
+    void holdIsStoredAndExpiresOnLegacySchema() {
+        User owner = fixtures.user(User.UserRole.OWNER);
+        User client = fixtures.user(User.UserRole.CLIENT);
+        Long apartmentId = fixtures.apartment(owner.getId(), 1).getId();
+        LocalDate checkIn = LocalDate.now(clock).plusDays(5);
+
+        BookingDTO hold = bookingService.holdBooking(
+                TestFixtures.request(apartmentId, checkIn, checkIn.plusDays(2)), client.getId());
+        assertThat(bookingRepository.findById(hold.getId()))
+                .get().extracting(Booking::getStatus).isEqualTo(Booking.BookingStatus.HOLD);
+
+        ((MutableClock) clock).advance(Duration.ofHours(1));
+        bookingService.expireHolds(List.of(hold.getId()));
+        assertThat(bookingRepository.findById(hold.getId()))
+                .get().extracting(Booking::getStatus).isEqualTo(Booking.BookingStatus.EXPIRED);
+    }
+
+    @Test
+    void statusCheckListsEveryStatus() {
+        List<String> clauses = jdbcTemplate.queryForList(
+                "SELECT cc.check_clause FROM information_schema.table_constraints tc " +
+                "JOIN information_schema.check_constraints cc " +
+                "ON cc.constraint_schema = tc.constraint_schema AND cc.constraint_name = tc.constraint_name " +
+                "WHERE tc.constraint_type = 'CHECK' AND LOWER(tc.table_name) = 'bookings'", String.class);
+
+        assertThat(clauses).anySatisfy(clause -> {
+            for (Booking.BookingStatus status : Booking.BookingStatus.values()) {
+                assertThat(clause).contains("'" + status.name() + "'");
+            }
+        });
+    }
+}
@@ -0,0 +1,103 @@
+package com.booking.service;
+
+import com.booking.MutableClock;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Колесо удержаний на управляемых часах: истечение зависит только от Clock
+class HoldTimerTest {
+
+    private static final long TTL_SECONDS = 60;
+    private static final long TICK_MILLIS = 1000;
+    private static final int WHEEL_SIZE = 8;
+
+    private MutableClock clock;
+    private HoldTimer timer;
+
+    @BeforeEach
+    void setUp() {
+        clock = new MutableClock(Instant.parse("2026-03-01T12:00:00Z"));
+        timer = new HoldTimer(clock, TTL_SECONDS, TICK_MILLIS, WHEEL_SIZE);
+    }
+
+    @Test
+    void holdExpiresOnceItsDeadlinePasses() {
+        timer.schedule(1L, clock.instant().plusSeconds(5));
+
+        clock.advance(Duration.ofSeconds(4));
+        assertThat(timer.advance()).isEmpty();
+
+        clock.advance(Duration.ofSeconds(1));
+        assertThat(timer.advance()).containsExactly(1L);
+        assertThat(timer.size()).isZero();
+        assertThat(timer.advance()).isEmpty();
+    }
+
+    @Test
+    void nextExpiryIsTtlFromClock() {
+        assertThat(timer.nextExpiry()).isEqualTo(clock.instant().plusSeconds(TTL_SECONDS));
+
+        timer.schedule(1L, timer.nextExpiry());
+        clock.advance(Duration.ofSeconds(TTL_SECONDS - 1));
+        assertThat(timer.advance()).isEmpty();
+        clock.advance(Duration.ofSeconds(1));
+        assertThat(timer.advance()).containsExactly(1L);
+    }
+
+    @Test
+    void cancelledHoldNeverExpires() {
+        timer.schedule(1L, clock.instant().plusSeconds(3));
+
+        assertThat(timer.cancel(1L)).isTrue();
+        assertThat(timer.cancel(1L)).isFalse();
+        clock.advance(Duration.ofSeconds(10));
+        assertThat(timer.advance()).isEmpty();
+    }
+
+    @Test
+    void rescheduleMovesDeadline() {
+        timer.schedule(1L, clock.instant().plusSeconds(2));
+        timer.schedule(1L, clock.instant().plusSeconds(6));
+
+        clock.advance(Duration.ofSeconds(3));
+        assertThat(timer.advance()).isEmpty();
+        clock.advance(Duration.ofSeconds(3));
+        assertThat(timer.advance()).containsExactly(1L);
+    }
+
+    @Test
+    void deadlineBeyondOneRotationWaitsForItsTurn() {
+        // 20 тиков при колесе на 8 корзин: корзина посещается дважды до срока
+        timer.schedule(1L, clock.instant().plusSeconds(20));
+
+        for (int second = 1; second < 20; second++) {
+            clock.advance(Duration.ofSeconds(1));
+            assertThat(timer.advance()).as("second %d", second).isEmpty();
+        }
+        clock.advance(Duration.ofSeconds(1));
+        assertThat(timer.advance()).containsExactly(1L);
+    }
+
+    @Test
+    void longPauseExpiresEverythingDue() {
+        timer.schedule(1L, clock.instant().plusSeconds(3));
+        timer.schedule(2L, clock.instant().plusSeconds(30));
+        timer.schedule(3L, clock.instant().plusSeconds(7200));
+
+        clock.advance(Duration.ofHours(1));
+        assertThat(timer.advance()).containsExactlyInAnyOrder(1L, 2L);
+        assertThat(timer.size()).isEqualTo(1);
+    }
+
+    @Test
+    void pastDeadlineExpiresOnNextTick() {
+        timer.schedule(1L, clock.instant().minusSeconds(30));
+
+        assertThat(timer.advance()).containsExactly(1L);
+    }
+}
@@ -0,0 +1,45 @@
+package com.booking.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// Повтор ключа сравнивается с первым запросом по SHA-256 канонического тела
+class IdempotencyStoreTest {
+
+    private final IdempotencyStore store = new IdempotencyStore(60, 100, 1000, new ObjectMapper());
+    private final AtomicInteger calls = new AtomicInteger();
+
+    @Test
+    void bodiesWithEqualHashCodesAreStillDifferentRequests() {
+        // "Aa" и "BB" — одинаковый String.hashCode, а значит и hashCode словарей
+        Map<String, String> first = Map.of("note", "Aa");
+        Map<String, String> second = Map.of("note", "BB");
+        assertThat(first.hashCode()).isEqualTo(second.hashCode());
+
+        assertThat(store.execute("booking:1", "key-1", first, calls::incrementAndGet)).isEqualTo(1);
+        assertThatThrownBy(() -> store.execute("booking:1", "key-1", second, calls::incrementAndGet))
+                .hasMessageContaining("different request");
+        assertThat(calls).hasValue(1);
+    }
+
+    @Test
+    void sameBodyInAnotherFieldOrderIsARepeat() {
+        Map<String, Object> first = new LinkedHashMap<>();
+        first.put("apartmentId", 7);
+        first.put("guests", 2);
+        Map<String, Object> reordered = new LinkedHashMap<>();
+        reordered.put("guests", 2);
+        reordered.put("apartmentId", 7);
+
+        assertThat(store.execute("booking:1", "key-2", first, calls::incrementAndGet)).isEqualTo(1);
+        assertThat(store.execute("booking:1", "key-2", reordered, calls::incrementAndGet)).isEqualTo(1);
+        assertThat(calls).hasValue(1);
+    }
+}
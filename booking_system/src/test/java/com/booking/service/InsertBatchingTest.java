@@ -0,0 +1,103 @@
+package com.booking.service;
+
+import com.booking.TestFixtures;
+import com.booking.model.User;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Сколько JDBC-операторов готовит Hibernate на вставку: пакетами по sequence-id против построчно,
+// как было при IDENTITY (id известен только после INSERT, поэтому пакет невозможен)
+@Slf4j
+@SpringBootTest
+@ActiveProfiles("test")
+@Import(TestFixtures.class)
+class InsertBatchingTest {
+
+    private static final int ROWS = 100;
+
+    @Autowired
+    private EntityManager entityManager;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Autowired
+    private BookingService bookingService;
+    @Autowired
+    private TestFixtures fixtures;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void enableStatistics() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+    }
+
+    @AfterEach
+    void disableStatistics() {
+        statistics.setStatisticsEnabled(false);
+    }
+
+    @Test
+    void batchedInsertsPrepareAFractionOfPerRowStatements() {
+        long perRow = insertUsers(1);
+        long batched = insertUsers(50);
+        log.info("{} inserts: {} statements row by row, {} with batch_size=50", ROWS, perRow, batched);
+
+        // Построчно — по оператору на строку; пакетом — пара INSERT на 100 строк и выборки из sequence.
+        // Запас сверху — на фоновые задачи приложения, которые пишут в ту же статистику
+        assertThat(perRow).isGreaterThanOrEqualTo(ROWS);
+        assertThat(batched).isLessThan(10);
+    }
+
+    @Test
+    void reportsStatementsPerBooking() {
+        User owner = fixtures.user(User.UserRole.OWNER);
+        User client = fixtures.user(User.UserRole.CLIENT);
+        Long apartmentId = fixtures.apartment(owner.getId(), 1).getId();
+        LocalDate checkIn = LocalDate.now().plusDays(40);
+
+        statistics.clear();
+        bookingService.createBooking(TestFixtures.request(apartmentId, checkIn, checkIn.plusDays(2)), client.getId());
+        log.info("createBooking: {} statements prepared by Hibernate, {} entities inserted",
+                statistics.getPrepareStatementCount(), statistics.getEntityInsertCount());
+        assertThat(statistics.getEntityInsertCount()).isPositive();
+    }
+
+    // Операторы, подготовленные на ROWS вставок при заданном размере пакета
+    private long insertUsers(int batchSize) {
+        statistics.clear();
+        transactionTemplate.executeWithoutResult(tx -> {
+            entityManager.unwrap(Session.class).setJdbcBatchSize(batchSize);
+            for (int i = 0; i < ROWS; i++) {
+                User user = new User();
+                user.setEmail("batch" + batchSize + "-" + i + "-" + System.nanoTime() + "@test.local");
+                user.setPassword("secret");
+                user.setFirstName("Batch");
+                user.setLastName("User" + i);
+                user.setRole(User.UserRole.CLIENT);
+                entityManager.persist(user);
+            }
+            entityManager.flush();
+        });
+        assertThat(statistics.getEntityStatistics(User.class.getName()).getInsertCount()).isEqualTo(ROWS);
+        return statistics.getPrepareStatementCount();
+    }
+}
@@ -0,0 +1,115 @@
+package com.booking.service;
+
+import com.booking.TestFixtures;
+import com.booking.dto.BookingDTO;
+import com.booking.model.Booking;
+import com.booking.model.User;
+import com.booking.repository.BookingRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Возврат номеров идёт под блокировкой квартиры: пока её держит бронь, отмена, выезд,
+// завершение и истечение удержания ждут и не трогают сетку
+@SpringBootTest
+@ActiveProfiles("test")
+@Import(TestFixtures.class)
+class InventoryLockingTest {
+
+    @Autowired
+    private BookingService bookingService;
+    @Autowired
+    private BookingRepository bookingRepository;
+    @Autowired
+    private BookingLocks bookingLocks;
+    @Autowired
+    private TestFixtures fixtures;
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(2);
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void cancelWaitsForApartmentLock() throws Exception {
+        BookingDTO booking = book(false);
+        assertWaitsForLock(booking, id -> bookingService.cancelBooking(id, "test"), Booking.BookingStatus.CANCELLED);
+    }
+
+    @Test
+    void checkOutWaitsForApartmentLock() throws Exception {
+        BookingDTO booking = book(false);
+        assertWaitsForLock(booking, bookingService::checkOut, Booking.BookingStatus.COMPLETED);
+    }
+
+    @Test
+    void completeWaitsForApartmentLock() throws Exception {
+        BookingDTO booking = book(false);
+        assertWaitsForLock(booking, bookingService::completeBooking, Booking.BookingStatus.COMPLETED);
+    }
+
+    @Test
+    void holdExpiryWaitsForApartmentLock() throws Exception {
+        BookingDTO hold = book(true);
+        // Срок удержания в прошлом — истечение его не пропустит
+        Booking stored = bookingRepository.findById(hold.getId()).orElseThrow();
+        stored.setHoldExpiresAt(stored.getHoldExpiresAt().minusDays(1));
+        bookingRepository.save(stored);
+
+        assertWaitsForLock(hold, id -> bookingService.expireHolds(List.of(id)), Booking.BookingStatus.EXPIRED);
+    }
+
+    private BookingDTO book(boolean hold) {
+        User owner = fixtures.user(User.UserRole.OWNER);
+        User client = fixtures.user(User.UserRole.CLIENT);
+        Long apartmentId = fixtures.apartment(owner.getId(), 1).getId();
+        LocalDate checkIn = LocalDate.now().plusDays(7);
+        var request = TestFixtures.request(apartmentId, checkIn, checkIn.plusDays(2));
+        return hold ? bookingService.holdBooking(request, client.getId())
+                : bookingService.createBooking(request, client.getId());
+    }
+
+    private void assertWaitsForLock(BookingDTO booking, Consumer<Long> action, Booking.BookingStatus expected)
+            throws Exception {
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Future<?> holder = executor.submit(() -> bookingLocks.withApartment(booking.getApartmentId(), () -> {
+            locked.countDown();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return null;
+        }));
+        assertThat(locked.await(5, TimeUnit.SECONDS)).isTrue();
+
+        Future<?> change = executor.submit(() -> action.accept(booking.getId()));
+        Thread.sleep(300);
+        assertThat(change.isDone()).isFalse();
+        assertThat(bookingRepository.findById(booking.getId())).get()
+                .extracting(Booking::getStatus).isNotEqualTo(expected);
+
+        release.countDown();
+        holder.get(5, TimeUnit.SECONDS);
+        change.get(5, TimeUnit.SECONDS);
+        assertThat(bookingRepository.findById(booking.getId())).get()
+                .extracting(Booking::getStatus).isEqualTo(expected);
+    }
+}
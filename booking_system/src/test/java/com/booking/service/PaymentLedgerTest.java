@@ -0,0 +1,151 @@
+package com.booking.service;
+
+import com.booking.TestFixtures;
+import com.booking.dto.BookingDTO;
+import com.booking.model.LedgerAccount;
+import com.booking.model.LedgerEntry;
+import com.booking.model.Payment;
+import com.booking.model.User;
+import com.booking.repository.LedgerEntryRepository;
+import com.booking.repository.PaymentRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// Книга платежей: оплата, возврат при отмене и перенос старых оплат
+@SpringBootTest
+@ActiveProfiles("test")
+@Import(TestFixtures.class)
+class PaymentLedgerTest {
+
+    @Autowired
+    private BookingService bookingService;
+    @Autowired
+    private PaymentLedger paymentLedger;
+    @Autowired
+    private PaymentRepository paymentRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private LedgerEntryRepository ledgerEntryRepository;
+    @Autowired
+    private TestFixtures fixtures;
+
+    @Test
+    void cancellingPaidBookingReversesItsEntries() {
+        User owner = fixtures.user(User.UserRole.OWNER);
+        User client = fixtures.user(User.UserRole.CLIENT);
+        Long apartmentId = fixtures.apartment(owner.getId(), 1).getId();
+        LocalDate checkIn = LocalDate.now().plusDays(20);
+        BigDecimal platformBefore = paymentLedger.account(PaymentLedger.PLATFORM).getBalance();
+
+        BookingDTO hold = bookingService.holdBooking(
+                TestFixtures.request(apartmentId, checkIn, checkIn.plusDays(2)), client.getId());
+        bookingService.confirmBooking(hold.getId());
+        Payment payment = paymentRepository.findByBookingId(hold.getId()).orElseThrow();
+        LedgerAccount paid = paymentLedger.account(PaymentLedger.owner(owner.getId()));
+        assertThat(paid.getCredits()).isEqualByComparingTo(payment.getAmount());
+        assertThat(paid.getBalance()).isEqualByComparingTo(payment.getOwnerAmount());
+
+        bookingService.cancelBooking(hold.getId(), "test");
+        assertThatThrownBy(() -> bookingService.cancelBooking(hold.getId(), "again"))
+                .hasMessageContaining("cannot be cancelled");
+
+        assertThat(paymentRepository.findById(payment.getId())).get()
+                .extracting(Payment::getStatus).isEqualTo(Payment.PaymentStatus.REFUNDED);
+        Map<LedgerEntry.EntryKind, BigDecimal> amounts = ledgerEntryRepository.findByPaymentId(payment.getId()).stream()
+                .collect(Collectors.toMap(LedgerEntry::getKind, LedgerEntry::getAmount));
+        assertThat(amounts).hasSize(4);
+        assertThat(amounts.get(LedgerEntry.EntryKind.GUEST_REFUND))
+                .isEqualByComparingTo(amounts.get(LedgerEntry.EntryKind.GUEST_PAYMENT).negate());
+        assertThat(amounts.get(LedgerEntry.EntryKind.FEE_REFUND))
+                .isEqualByComparingTo(amounts.get(LedgerEntry.EntryKind.PLATFORM_FEE).negate());
+
+        LedgerAccount refunded = paymentLedger.account(PaymentLedger.owner(owner.getId()));
+        assertThat(refunded.getCredits()).isEqualByComparingTo(BigDecimal.ZERO);
+        assertThat(refunded.getBalance()).isEqualByComparingTo(BigDecimal.ZERO);
+        assertThat(refunded.getEntryCount()).isZero();
+        assertThat(paymentLedger.account(PaymentLedger.PLATFORM).getBalance()).isEqualByComparingTo(platformBefore);
+    }
+
+    @Test
+    void completedBookingCannotBeCancelled() {
+        User owner = fixtures.user(User.UserRole.OWNER);
+        User client = fixtures.user(User.UserRole.CLIENT);
+        Long apartmentId = fixtures.apartment(owner.getId(), 1).getId();
+        LocalDate checkIn = LocalDate.now().plusDays(30);
+        BookingDTO booking = bookingService.createBooking(
+                TestFixtures.request(apartmentId, checkIn, checkIn.plusDays(1)), client.getId());
+        bookingService.completeBooking(booking.getId());
+        Payment payment = paymentRepository.findByBookingId(booking.getId()).orElseThrow();
+
+        assertThatThrownBy(() -> bookingService.cancelBooking(booking.getId(), "late"))
+                .isExactlyInstanceOf(RuntimeException.class)
+                .hasMessage("Booking in status COMPLETED cannot be cancelled");
+
+        assertThat(paymentRepository.findById(payment.getId())).get()
+                .extracting(Payment::getStatus).isEqualTo(Payment.PaymentStatus.PAID);
+        assertThat(ledgerEntryRepository.findByPaymentId(payment.getId())).extracting(LedgerEntry::getKind)
+                .containsExactlyInAnyOrder(LedgerEntry.EntryKind.GUEST_PAYMENT, LedgerEntry.EntryKind.PLATFORM_FEE);
+    }
+
+    @Test
+    void backfillPostsOldPaymentsWithoutChangingThem() {
+        User owner = fixtures.user(User.UserRole.OWNER);
+        User client = fixtures.user(User.UserRole.CLIENT);
+        Long apartmentId = fixtures.apartment(owner.getId(), 1).getId();
+        LocalDate checkIn = LocalDate.now().plusDays(40);
+        // Удержание платежа не создаёт; платёж до появления книги вставляется напрямую:
+        // оплачен, без разбивки и без проводок
+        BookingDTO booking = bookingService.holdBooking(
+                TestFixtures.request(apartmentId, checkIn, checkIn.plusDays(1)), client.getId());
+        Long paymentId = jdbcTemplate.queryForObject("SELECT NEXT VALUE FOR payments_seq", Long.class);
+        jdbcTemplate.update("INSERT INTO payments (id, booking_id, amount, status, paid_at, payment_method) " +
+                "VALUES (?, ?, 100.00, 'PAID', CURRENT_TIMESTAMP, 'CREDIT_CARD')", paymentId, booking.getId());
+        assertThat(ledgerEntryRepository.findByPaymentId(paymentId)).isEmpty();
+
+        paymentLedger.backfill();
+
+        List<LedgerEntry> entries = ledgerEntryRepository.findByPaymentId(paymentId);
+        assertThat(entries).hasSize(2);
+        Long guests = paymentLedger.account(PaymentLedger.GUESTS).getId();
+        Long platform = paymentLedger.account(PaymentLedger.PLATFORM).getId();
+        Long ownerAccount = paymentLedger.account(PaymentLedger.owner(owner.getId())).getId();
+        Map<LedgerEntry.EntryKind, LedgerEntry> byKind = entries.stream()
+                .collect(Collectors.toMap(LedgerEntry::getKind, entry -> entry));
+        LedgerEntry guestPayment = byKind.get(LedgerEntry.EntryKind.GUEST_PAYMENT);
+        assertThat(guestPayment.getDebitAccountId()).isEqualTo(guests);
+        assertThat(guestPayment.getCreditAccountId()).isEqualTo(ownerAccount);
+        assertThat(guestPayment.getAmount()).isEqualByComparingTo("100.00");
+        LedgerEntry fee = byKind.get(LedgerEntry.EntryKind.PLATFORM_FEE);
+        assertThat(fee.getDebitAccountId()).isEqualTo(ownerAccount);
+        assertThat(fee.getCreditAccountId()).isEqualTo(platform);
+        assertThat(fee.getAmount()).isEqualByComparingTo("10.00");
+        assertThat(entries).allSatisfy(entry -> assertThat(entry.getCreatedAt()).isNotNull());
+        assertThat(paymentLedger.account(PaymentLedger.owner(owner.getId())).getBalance())
+                .isEqualByComparingTo("90.00");
+
+        Map<String, Object> row = jdbcTemplate.queryForMap(
+                "SELECT amount, status, platform_fee, owner_amount FROM payments WHERE id = ?", paymentId);
+        assertThat((BigDecimal) row.get("amount")).isEqualByComparingTo("100.00");
+        assertThat(row.get("status")).isEqualTo("PAID");
+        assertThat(row.get("platform_fee")).isNull();
+        assertThat(row.get("owner_amount")).isNull();
+
+        // Повторный перенос платёж не трогает: проводки уже есть
+        paymentLedger.backfill();
+        assertThat(ledgerEntryRepository.findByPaymentId(paymentId)).hasSize(2);
+    }
+}
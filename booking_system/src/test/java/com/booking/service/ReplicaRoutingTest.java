@@ -0,0 +1,141 @@
+package com.booking.service;
+
+import com.booking.TestFixtures;
+import com.booking.config.DevReplicaFeeder;
+import com.booking.model.User;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Маршрутизация соединений: read-only транзакция запроса — на реплику, остальное — на основную БД.
+// Реплика, как в профиле dev, — отдельная база H2, которую DevReplicaFeeder заполняет снимком основной.
+// Снимки здесь только вручную (sync), чтобы отставание реплики было под контролем теста.
+@SpringBootTest(properties = {
+        "booking.datasource.replica.urls=jdbc:h2:mem:replicadb;DB_CLOSE_DELAY=-1",
+        "booking.datasource.replica.sync-ms=86400000",
+        "booking.datasource.replica.max-lag-ms=86400000"
+})
+@ActiveProfiles({"test", "dev"})
+@Import(TestFixtures.class)
+class ReplicaRoutingTest {
+
+    @Autowired
+    private ReplicaRouting replicaRouting;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private DevReplicaFeeder devReplicaFeeder;
+    @Autowired
+    private TestFixtures fixtures;
+
+    @BeforeEach
+    void inRequest() {
+        devReplicaFeeder.sync();
+        replicaRouting.checkReplicas();
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+    }
+
+    @AfterEach
+    void clearRequest() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    @Transactional(readOnly = true)
+    void readOnlyTransactionOfRequestGoesToReplica() {
+        long before = replicaReads();
+
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM bookings", Long.class)).isNotNull();
+
+        assertThat(replicaReads()).isGreaterThan(before);
+        assertThat(replicaRouting.route()).isEqualTo("replica-0");
+    }
+
+    @Test
+    void readWriteTransactionGoesToPrimary() {
+        String key = new TransactionTemplate(transactionManager).execute(tx -> replicaRouting.route());
+
+        assertThat(key).isEqualTo(ReplicaRouting.PRIMARY);
+    }
+
+    @Test
+    void readOnlyTransactionOutsideRequestGoesToPrimary() {
+        RequestContextHolder.resetRequestAttributes();
+
+        String routed = readOnly().execute(tx -> replicaRouting.route());
+
+        assertThat(routed).isEqualTo(ReplicaRouting.PRIMARY);
+    }
+
+    @Test
+    void readAfterOwnWriteGoesToPrimary() {
+        String key = ReplicaRouting.booking(-1L);
+        replicaRouting.recordWrite(key);
+
+        String routed = readOnly().execute(tx -> {
+            replicaRouting.readingAs(key);
+            return replicaRouting.route();
+        });
+
+        String unrelated = readOnly().execute(tx -> replicaRouting.route());
+
+        assertThat(routed).isEqualTo(ReplicaRouting.PRIMARY);
+        assertThat(unrelated).isEqualTo("replica-0");
+    }
+
+    @Test
+    void staleReplicaIsReadUntilOwnWriteOrNextSync() {
+        User user = fixtures.user(User.UserRole.CLIENT);
+        String key = ReplicaRouting.user(user.getId());
+        devReplicaFeeder.sync();
+
+        // Запись на основную БД; реплика ещё хранит прежний снимок
+        new TransactionTemplate(transactionManager).executeWithoutResult(tx -> {
+            jdbcTemplate.update("UPDATE users SET first_name = 'Renamed' WHERE id = ?", user.getId());
+        });
+        assertThat(firstName(user.getId(), null)).isEqualTo(user.getFirstName());
+
+        // Автор записи читает свои данные с основной БД
+        new TransactionTemplate(transactionManager).executeWithoutResult(tx -> replicaRouting.recordWrite(key));
+        assertThat(firstName(user.getId(), key)).isEqualTo("Renamed");
+        // Чтение без ключа по-прежнему идёт на реплику и видит старое значение
+        assertThat(firstName(user.getId(), null)).isEqualTo(user.getFirstName());
+
+        devReplicaFeeder.sync();
+        assertThat(firstName(user.getId(), null)).isEqualTo("Renamed");
+    }
+
+    private String firstName(Long userId, String readingAs) {
+        return readOnly().execute(tx -> {
+            if (readingAs != null) {
+                replicaRouting.readingAs(readingAs);
+            }
+            return jdbcTemplate.queryForObject("SELECT first_name FROM users WHERE id = ?", String.class, userId);
+        });
+    }
+
+    private TransactionTemplate readOnly() {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setReadOnly(true);
+        return template;
+    }
+
+    private long replicaReads() {
+        return ((Number) replicaRouting.stats().get("replicaReads")).longValue();
+    }
+}
@@ -0,0 +1,141 @@
+package com.booking.service;
+
+import com.booking.MutableClock;
+import com.booking.model.Apartment;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class RoomInventoryTest {
+
+    private final MutableClock clock = new MutableClock(Instant.parse("2026-03-01T12:00:00Z"));
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final NotificationService notificationService = mock(NotificationService.class);
+    private RoomInventory inventory;
+
+    @BeforeEach
+    void setUp() {
+        // room_nights: каждой ночи ещё нет, UPDATE ничего не меняет
+        when(jdbcTemplate.batchUpdate(anyString(), anyList()))
+                .thenAnswer(invocation -> new int[((List<?>) invocation.getArgument(1)).size()]);
+        inventory = new RoomInventory(jdbcTemplate, notificationService, new BookingLocks(16, 1000), clock, 30);
+    }
+
+    @Test
+    void singleUnitApartmentSellsOnceAndSendsNoHotelUpdates() {
+        Apartment apartment = apartment(1L, 1);
+        LocalDate today = today();
+
+        assertThat(inventory.remaining(1L, today)).isEqualTo(1);
+        assertThat(inventory.reserve(apartment, today, today.plusDays(2))).isTrue();
+        assertThat(inventory.reserve(apartment, today.plusDays(1), today.plusDays(3))).isFalse();
+        assertThat(inventory.isAvailable(1L, today.plusDays(2), today.plusDays(3))).isTrue();
+
+        verify(notificationService, never()).sendHotelInfoUpdate(anyLong(), anyInt(), anyInt());
+    }
+
+    @Test
+    void multiUnitApartmentReportsTonightsRemainder() {
+        Apartment apartment = apartment(2L, 3);
+        inventory.onApartmentChanged(new ApartmentChangedEvent(apartment));
+        LocalDate today = today();
+
+        assertThat(inventory.reserve(apartment, today, today.plusDays(1))).isTrue();
+
+        assertThat(inventory.remaining(2L, today)).isEqualTo(2);
+        verify(notificationService).sendHotelInfoUpdate(eq(2L), eq(2), eq(3));
+    }
+
+    @Test
+    void apartmentChangeReportsHotelRemainderOnlyForHotels() {
+        inventory.onApartmentChanged(new ApartmentChangedEvent(apartment(6L, 1)));
+        verify(notificationService, never()).sendHotelInfoUpdate(anyLong(), anyInt(), anyInt());
+
+        Apartment hotel = apartment(7L, 3);
+        inventory.onApartmentChanged(new ApartmentChangedEvent(hotel));
+        verify(notificationService).sendHotelInfoUpdate(eq(7L), eq(3), eq(3));
+
+        // Остаток — на сегодня по часам сетки
+        assertThat(inventory.reserve(hotel, today(), today().plusDays(1))).isTrue();
+        hotel.setTotalRooms(4);
+        inventory.onApartmentChanged(new ApartmentChangedEvent(hotel));
+        verify(notificationService).sendHotelInfoUpdate(eq(7L), eq(3), eq(4));
+    }
+
+    @Test
+    void resizeKeepsSoldRooms() {
+        Apartment apartment = apartment(3L, 3);
+        inventory.onApartmentChanged(new ApartmentChangedEvent(apartment));
+        LocalDate night = today().plusDays(5);
+        assertThat(inventory.reserve(apartment, night, night.plusDays(1))).isTrue();
+        assertThat(inventory.reserve(apartment, night, night.plusDays(1))).isTrue();
+
+        apartment.setTotalRooms(2);
+        inventory.onApartmentChanged(new ApartmentChangedEvent(apartment));
+        assertThat(inventory.remaining(3L, night)).isZero();
+
+        apartment.setTotalRooms(4);
+        inventory.onApartmentChanged(new ApartmentChangedEvent(apartment));
+        assertThat(inventory.remaining(3L, night)).isEqualTo(2);
+    }
+
+    @Test
+    void rolloverMovesTheWindowWithTheClock() {
+        Apartment apartment = apartment(4L, 1);
+        LocalDate today = today();
+        assertThatThrownBy(() -> inventory.reserve(apartment, today.plusDays(30), today.plusDays(31)))
+                .hasMessageContaining("days ahead");
+
+        clock.advance(Duration.ofDays(1));
+        inventory.rollover();
+
+        assertThatThrownBy(() -> inventory.reserve(apartment, today, today.plusDays(1)))
+                .hasMessage("checkIn is in the past");
+        assertThat(inventory.reserve(apartment, today.plusDays(30), today.plusDays(31))).isTrue();
+    }
+
+    @Test
+    void rolloverFreesSlotsOfPastNightsForReuse() {
+        Apartment apartment = apartment(5L, 1);
+        LocalDate today = today();
+        assertThat(inventory.reserve(apartment, today, today.plusDays(1))).isTrue();
+
+        // Ёмкость кольца — 30 дней окна + 7 запаса: ночь today + 37 встаёт в слот ночи today
+        for (int day = 0; day < 8; day++) {
+            clock.advance(Duration.ofDays(1));
+            inventory.rollover();
+        }
+
+        assertThat(inventory.remaining(5L, today.plusDays(37))).isEqualTo(1);
+        assertThat(inventory.reserve(apartment, today.plusDays(37), today.plusDays(38))).isTrue();
+    }
+
+    private LocalDate today() {
+        return LocalDate.ofInstant(clock.instant(), ZoneOffset.UTC);
+    }
+
+    private static Apartment apartment(Long id, int totalRooms) {
+        Apartment apartment = new Apartment();
+        apartment.setId(id);
+        apartment.setTotalRooms(totalRooms);
+        return apartment;
+    }
+}
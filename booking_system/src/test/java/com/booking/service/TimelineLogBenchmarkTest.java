@@ -0,0 +1,146 @@
+package com.booking.service;
+
+import com.booking.dto.TimelineEventDTO;
+import com.booking.model.Booking;
+import com.booking.model.Ticket;
+import com.booking.model.User;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+// Замер журнала ленты: дозапись пачками outbox против вставки строки tickets на каждое событие,
+// и чтение ленты брони из сегментов против запроса по booking_id. Цифры — в журнале теста.
+@Slf4j
+class TimelineLogBenchmarkTest {
+
+    private static final int EVENTS = 100_000;
+    // Вставки по строке медленнее, их скорость мерится на части событий
+    private static final int ROW_EVENTS = 10_000;
+    private static final int BOOKINGS = 2_000;
+    private static final int USERS = 500;
+    private static final int OUTBOX_BATCH = 500;
+    private static final int SEGMENT_BYTES = 4 << 20;
+    private static final int WARMUP = 200;
+    private static final int RUNS = 2_000;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void segmentLogOutrunsRowPerEventInserts() {
+        List<Ticket> tickets = tickets();
+
+        // Пустой tickets: журнал готов сразу после открытия
+        TimelineLog timeline = new TimelineLog(mock(JdbcTemplate.class), dir.toString(), SEGMENT_BYTES, 365);
+        timeline.open();
+        long started = System.nanoTime();
+        for (int from = 0; from < EVENTS; from += OUTBOX_BATCH) {
+            timeline.append(tickets.subList(from, Math.min(EVENTS, from + OUTBOX_BATCH)));
+        }
+        double logPerSecond = EVENTS * 1e9 / (System.nanoTime() - started);
+
+        JdbcTemplate jdbc = ticketsTable();
+        started = System.nanoTime();
+        for (int i = 0; i < ROW_EVENTS; i++) {
+            insert(jdbc, tickets.get(i));
+        }
+        double rowsPerSecond = ROW_EVENTS * 1e9 / (System.nanoTime() - started);
+        List<Object[]> rest = new ArrayList<>();
+        for (Ticket ticket : tickets.subList(ROW_EVENTS, EVENTS)) {
+            rest.add(row(ticket));
+        }
+        jdbc.batchUpdate("INSERT INTO tickets (id, booking_id, user_id, type, data_json, created_at) " +
+                "VALUES (?, ?, ?, ?, ?, ?)", rest);
+
+        log.info("Timeline writes: segment log {} events/s in batches of {}, row per event {} events/s",
+                Math.round(logPerSecond), OUTBOX_BATCH, Math.round(rowsPerSecond));
+        assertThat(logPerSecond).isGreaterThan(rowsPerSecond);
+
+        Random random = new Random(7);
+        Supplier<List<Long>> rows = () -> jdbc.queryForList("SELECT id FROM tickets WHERE booking_id = ? " +
+                "ORDER BY created_at, id", Long.class, (long) random.nextInt(BOOKINGS) + 1);
+        Supplier<List<Long>> segments = () -> timeline.forBooking((long) random.nextInt(BOOKINGS) + 1, 0, 100)
+                .stream().map(TimelineEventDTO::getTicketId).toList();
+
+        Long sample = 17L;
+        assertThat(timeline.forBooking(sample, 0, 100).stream().map(TimelineEventDTO::getTicketId).toList())
+                .isNotEmpty()
+                .isEqualTo(jdbc.queryForList("SELECT id FROM tickets WHERE booking_id = ? ORDER BY created_at, id",
+                        Long.class, sample));
+
+        double rowMicros = measure(rows);
+        double segmentMicros = measure(segments);
+        log.info("Booking timeline read ({} events per booking): tickets query {} us, segment log {} us",
+                EVENTS / BOOKINGS, Math.round(rowMicros), Math.round(segmentMicros));
+    }
+
+    // Среднее время одного чтения в микросекундах после прогрева
+    private static double measure(Supplier<List<Long>> read) {
+        for (int i = 0; i < WARMUP; i++) {
+            read.get();
+        }
+        long started = System.nanoTime();
+        for (int i = 0; i < RUNS; i++) {
+            read.get();
+        }
+        return (System.nanoTime() - started) / 1000.0 / RUNS;
+    }
+
+    // Тикеты в порядке id, как их отдаёт outbox; время растёт вместе с id
+    private static List<Ticket> tickets() {
+        Random random = new Random(42);
+        Ticket.TicketType[] types = Ticket.TicketType.values();
+        LocalDateTime start = LocalDateTime.now().minusDays(30);
+        List<Ticket> tickets = new ArrayList<>(EVENTS);
+        for (int i = 1; i <= EVENTS; i++) {
+            long bookingId = random.nextInt(BOOKINGS) + 1;
+            User user = new User();
+            user.setId(bookingId % USERS + 1);
+            tickets.add(Ticket.builder()
+                    .id((long) i)
+                    .booking(Booking.builder().id(bookingId).build())
+                    .user(user)
+                    .type(types[random.nextInt(types.length)])
+                    .dataJson("{\"total\":\"" + (100 + random.nextInt(900)) + ".00\"}")
+                    .createdAt(start.plusSeconds(i))
+                    .build());
+        }
+        return tickets;
+    }
+
+    // Таблица tickets без внешних ключей, с индексом, по которому читалась лента; одно соединение, как из пула
+    private static JdbcTemplate ticketsTable() {
+        JdbcTemplate jdbc = new JdbcTemplate(new SingleConnectionDataSource(
+                "jdbc:h2:mem:timeline-benchmark;DB_CLOSE_DELAY=-1", "sa", "", true));
+        jdbc.execute("DROP TABLE IF EXISTS tickets");
+        jdbc.execute("CREATE TABLE tickets (id BIGINT PRIMARY KEY, booking_id BIGINT NOT NULL, user_id BIGINT NOT NULL, " +
+                "type VARCHAR(40) NOT NULL, data_json TEXT, created_at TIMESTAMP NOT NULL)");
+        jdbc.execute("CREATE INDEX idx_tickets_booking ON tickets (booking_id)");
+        jdbc.execute("CREATE INDEX idx_tickets_user ON tickets (user_id)");
+        return jdbc;
+    }
+
+    // Строка на событие, каждая в своей транзакции (autocommit), как при сохранении тикета сервисом
+    private static void insert(JdbcTemplate jdbc, Ticket ticket) {
+        jdbc.update("INSERT INTO tickets (id, booking_id, user_id, type, data_json, created_at) " +
+                "VALUES (?, ?, ?, ?, ?, ?)", row(ticket));
+    }
+
+    private static Object[] row(Ticket ticket) {
+        return new Object[]{ticket.getId(), ticket.getBooking().getId(), ticket.getUser().getId(),
+                ticket.getType().name(), ticket.getDataJson(), Timestamp.valueOf(ticket.getCreatedAt())};
+    }
+}